@@ -4,9 +4,12 @@ package arenstorf;
 import java.awt.Color;
 import java.util.ArrayList;
 import math.matrices.Vector;
+import numerics.ArrayODE;
 import numerics.DormandPrince;
 import numerics.ODE;
 import numerics.RungeKutta;
+import numerics.StepListener;
+import numerics.Trajectory;
 import plot.PlotObject;
 
 /**
@@ -33,10 +36,43 @@ public class Arenstorf
             );
     }
     
+    /**
+     * Calculates the orbit. If the previous calculation differed only by a shorter time,
+     * it is continued from its end checkpoint instead of being repeated.
+     * @param sd parameters of the simulation.
+     */
     public void calculate(SimData sd)
     {
         makeODE(sd.time);
-        rk.solve(ode, sd.tolerance);
+        if (canContinue(sd))
+            rk.resume(ode, sd.tolerance, rk.getEndCheckpoint());
+        else
+        {
+            rk = sd.method.getMethod();
+            rk.solve(ode, sd.tolerance);
+        }
+        last = sd;
+    }
+
+    /**
+     * Calculates the orbit without storing it, for headless runs. Steps are passed to
+     * the listener; period end infos are collected as usual.
+     * @param sd parameters of the simulation.
+     * @param listener receives accepted steps.
+     */
+    public void calculate(SimData sd, StepListener listener)
+    {
+        makeODE(sd.time);
+        rk = sd.method.getMethod();
+        rk.solve(ode, sd.tolerance, listener);
+        last = null;
+    }
+
+    private boolean canContinue(SimData sd)
+    {
+        return last != null && rk.getEndCheckpoint() != null && sd.time > last.time
+                && sd.tolerance == last.tolerance
+                && sd.method.getClass() == last.method.getClass();
     }
     
     public PlotObject[] getPlotData()
@@ -63,16 +99,17 @@ public class Arenstorf
     
     private int insertPointsFromOneRotation(int ind, double time, PlotObject po)
     {
-        for (int i = ind; i < rk.getSteps(); ++i)
+        Trajectory tr = rk.getTrajectory();
+        for (int i = ind; i < tr.getSize(); ++i)
         {
-            double t = rk.getXAt(i);
-            double x = rk.getYAt(i).get(1);
-            double y = rk.getYAt(i).get(2);
+            double t = tr.getX(i);
+            double x = tr.getY(i, 1);
+            double y = tr.getY(i, 2);
             if (t > time)
                 return i;
             po.addPoint(x, y);
         }
-        return rk.getSteps();
+        return tr.getSize();
     }
     
     private PlotObject initPlotObjectForNextRotation(int rot)
@@ -95,9 +132,19 @@ public class Arenstorf
 
     private void makeODE(double time)
     {
-        ode = new ODE(0, time, y0, period) {
-            @Override public Vector f(double x, Vector y) {
-                return Arenstorf.this.f(x, y);
+        ode = getODE(time);
+    }
+
+    /**
+     * Returns the equations of motion over given time, e.g. for {@link numerics.Ensemble}.
+     * @param time length of the integration.
+     * @return the equations of motion.
+     */
+    public ODE getODE(double time)
+    {
+        return new ArrayODE(0, time, y0, period) {
+            @Override public void f(double x, double[] y, double[] dydx) {
+                Arenstorf.this.f(x, y, dydx);
             }
         };
     }
@@ -107,16 +154,15 @@ public class Arenstorf
         return x*x;
     }
 
-    private Vector f(double x, Vector y)
+    private void f(double x, double[] y, double[] dydx)
     {
-        double y1 = y.get(1), y2 = y.get(2), y3 = y.get(3), y4 = y.get(4);
+        double y1 = y[0], y2 = y[1], y3 = y[2], y4 = y[3];
         double D1 = Math.pow( sqr(y1 + mu1) + sqr(y2), 1.5 );
         double D2 = Math.pow( sqr(y1 - mu2) + sqr(y2), 1.5 );
-        double dy1 = y3;
-        double dy2 = y4;
-        double dy3 = y1 + 2*y4 - mu2 * (y1 + mu1) / D1 - mu1 * (y1 - mu2) / D2;
-        double dy4 = y2 - 2*y3 - mu2 * y2 / D1 - mu1 * y2 / D2;
-        return new Vector( new double[] {dy1, dy2, dy3, dy4} );
+        dydx[0] = y3;
+        dydx[1] = y4;
+        dydx[2] = y1 + 2*y4 - mu2 * (y1 + mu1) / D1 - mu1 * (y1 - mu2) / D2;
+        dydx[3] = y2 - 2*y3 - mu2 * y2 / D1 - mu1 * y2 / D2;
     }
     
     public ArrayList<PeriodEndInfo> getResultInfo()
@@ -128,5 +174,6 @@ public class Arenstorf
     private double mu1, mu2;
     private RungeKutta rk;
     private ODE ode;
+    private SimData last;
     private final double period = 17.06521656015;
 }
@@ -0,0 +1,42 @@
+package arenstorf;
+
+import numerics.BatchODE;
+
+/**
+ * Equations of motion of many Arenstorf orbits, differing in initial conditions and masses,
+ * for {@link numerics.BatchRungeKutta}. Lane l has initial state y0[l] and mass mu1[l].
+ * @author Grzegorz Los
+ */
+public class ArenstorfBatch extends BatchODE
+{
+    public ArenstorfBatch(double time, double[][] y0, double[] mu1)
+    {
+        super(0, time, y0);
+        if (mu1.length != lanes)
+            throw new IllegalArgumentException("One mass per lane is required");
+        this.mu1 = mu1.clone();
+        mu2 = new double[lanes];
+        for (int l = 0; l < lanes; ++l)
+            mu2[l] = 1 - mu1[l];
+    }
+
+    @Override
+    public void f(double[] x, double[][] y, double[][] dydx)
+    {
+        double[] y1 = y[0], y2 = y[1], y3 = y[2], y4 = y[3];
+        double[] dy1 = dydx[0], dy2 = dydx[1], dy3 = dydx[2], dy4 = dydx[3];
+        for (int l = 0; l < lanes; ++l)
+        {
+            double a = y1[l] + mu1[l], b = y1[l] - mu2[l], yy = y2[l] * y2[l];
+            double D1 = Math.pow(a*a + yy, 1.5);
+            double D2 = Math.pow(b*b + yy, 1.5);
+            dy1[l] = y3[l];
+            dy2[l] = y4[l];
+            dy3[l] = y1[l] + 2*y4[l] - mu2[l] * a / D1 - mu1[l] * b / D2;
+            dy4[l] = y2[l] - 2*y3[l] - mu2[l] * y2[l] / D1 - mu1[l] * y2[l] / D2;
+        }
+    }
+
+    private final double[] mu1;
+    private final double[] mu2;
+}
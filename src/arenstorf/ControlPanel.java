@@ -6,6 +6,10 @@ package arenstorf;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import numerics.DOP853;
+import numerics.DormandPrince;
+import numerics.EmbeddedMethod;
+import numerics.Verner98;
 
 /**
  *
@@ -40,7 +44,20 @@ public class ControlPanel extends javax.swing.JPanel
     
     public SimData getSimData()
     {
-        return new SimData(getTolerance(), getTime());
+        return new SimData(getTolerance(), getTime(), getMethod());
+    }
+
+    public EmbeddedMethod getMethod()
+    {
+        String name = method.getSelectedItem().toString();
+        if (name.equalsIgnoreCase("Dormand-Prince 5(4)"))
+            return new DormandPrince();
+        else if (name.equalsIgnoreCase("DOP853"))
+            return new DOP853();
+        else if (name.equalsIgnoreCase("Verner 9(8)"))
+            return new Verner98();
+        else
+            throw new RuntimeException("Method \"" + name + "\" not known.");
     }
     
     public double getTime()
@@ -78,6 +95,8 @@ public class ControlPanel extends javax.swing.JPanel
         mLogTol = new javax.swing.JSpinner();
         tolerance = new javax.swing.JLabel();
         draw = new javax.swing.JButton();
+        jLabel4 = new javax.swing.JLabel();
+        method = new javax.swing.JComboBox();
 
         jLabel1.setText("time");
 
@@ -87,7 +106,7 @@ public class ControlPanel extends javax.swing.JPanel
 
         time.setModel(new javax.swing.SpinnerNumberModel(18.0d, 1.0d, 103.0d, 5.0d));
 
-        mLogTol.setModel(new javax.swing.SpinnerNumberModel(20, 10, 40, 1));
+        mLogTol.setModel(new javax.swing.SpinnerNumberModel(20, 10, 46, 1));
         mLogTol.addChangeListener(new javax.swing.event.ChangeListener()
         {
             public void stateChanged(javax.swing.event.ChangeEvent evt)
@@ -107,6 +126,10 @@ public class ControlPanel extends javax.swing.JPanel
             }
         });
 
+        jLabel4.setText("method");
+
+        method.setModel(new javax.swing.DefaultComboBoxModel(new String[] { "Dormand-Prince 5(4)", "DOP853", "Verner 9(8)" }));
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(this);
         this.setLayout(layout);
         layout.setHorizontalGroup(
@@ -117,7 +140,8 @@ public class ControlPanel extends javax.swing.JPanel
                     .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING, false)
                         .addComponent(jLabel1, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                         .addComponent(jLabel2, javax.swing.GroupLayout.DEFAULT_SIZE, 134, Short.MAX_VALUE))
-                    .addComponent(jLabel3, javax.swing.GroupLayout.PREFERRED_SIZE, 118, javax.swing.GroupLayout.PREFERRED_SIZE))
+                    .addComponent(jLabel3, javax.swing.GroupLayout.PREFERRED_SIZE, 118, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(jLabel4, javax.swing.GroupLayout.PREFERRED_SIZE, 118, javax.swing.GroupLayout.PREFERRED_SIZE))
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
                     .addGroup(layout.createSequentialGroup()
@@ -129,7 +153,8 @@ public class ControlPanel extends javax.swing.JPanel
                             .addComponent(mLogTol))
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, 228, Short.MAX_VALUE)
                         .addComponent(draw, javax.swing.GroupLayout.PREFERRED_SIZE, 79, javax.swing.GroupLayout.PREFERRED_SIZE)
-                        .addGap(98, 98, 98))))
+                        .addGap(98, 98, 98))
+                    .addComponent(method, javax.swing.GroupLayout.PREFERRED_SIZE, 180, javax.swing.GroupLayout.PREFERRED_SIZE)))
         );
         layout.setVerticalGroup(
             layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
@@ -147,7 +172,11 @@ public class ControlPanel extends javax.swing.JPanel
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                         .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                             .addComponent(jLabel3)
-                            .addComponent(tolerance)))
+                            .addComponent(tolerance))
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                            .addComponent(jLabel4)
+                            .addComponent(method, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)))
                     .addGroup(layout.createSequentialGroup()
                         .addGap(43, 43, 43)
                         .addComponent(draw)))
@@ -170,7 +199,9 @@ public class ControlPanel extends javax.swing.JPanel
     private javax.swing.JLabel jLabel1;
     private javax.swing.JLabel jLabel2;
     private javax.swing.JLabel jLabel3;
+    private javax.swing.JLabel jLabel4;
     private javax.swing.JSpinner mLogTol;
+    private javax.swing.JComboBox method;
     private javax.swing.JSpinner time;
     private javax.swing.JLabel tolerance;
     // End of variables declaration//GEN-END:variables
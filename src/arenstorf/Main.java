@@ -83,7 +83,7 @@ public class Main extends JFrame
     
     private void calculate()
     {
-        Arenstorf a = new Arenstorf();
+        Arenstorf a = arenstorf;
         a.calculate(controlPanel.getSimData());
         plotOrbit.clear();
         plotOrbit.addPlotObjects(a.getPlotData());
@@ -120,6 +120,7 @@ public class Main extends JFrame
         resultInfo.append("\n\n");
     }
     
+    private final Arenstorf arenstorf = new Arenstorf();
     private ControlPanel controlPanel;
     private JTabbedPane paneResults;
     private PlotPanel plotOrbit;
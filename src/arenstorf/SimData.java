@@ -1,6 +1,9 @@
 
 package arenstorf;
 
+import numerics.DormandPrince;
+import numerics.EmbeddedMethod;
+
 /**
  *
  * @author Grzegorz Los
@@ -9,10 +12,17 @@ public class SimData
 {
 
     public SimData(double tolerance, double time)
+    {
+        this(tolerance, time, new DormandPrince());
+    }
+
+    public SimData(double tolerance, double time, EmbeddedMethod method)
     {
         this.tolerance = tolerance;
         this.time = time;
+        this.method = method;
     }
     public final double tolerance;
     public final double time;
+    public final EmbeddedMethod method;
 }
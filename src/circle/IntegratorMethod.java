@@ -0,0 +1,61 @@
+package circle;
+
+import math.matrices.Matrix;
+import math.matrices.Vector;
+import numerics.Integrator;
+import numerics.LinearODE;
+import numerics.ODE;
+import numerics.Propagator;
+import numerics.SeparableODE;
+import numerics.StateView;
+import numerics.StepListener;
+
+/**
+ * Runs one of the fixed step integrators of the numerics package on the rotation,
+ * written as the harmonic oscillator with q = y and p = x. The {@link Propagator} gets it
+ * as the linear system with the state (q, p) instead.
+ * @author Grzegorz Los
+ */
+public class IntegratorMethod implements Method
+{
+    public IntegratorMethod(Integrator integrator)
+    {
+        this.integrator = integrator;
+    }
+
+    @Override
+    public Points run(Parameters params)
+    {
+        if (params == null)
+            throw new NullPointerException();
+        final Points points = new Points();
+        integrator.setMaxStep(params.h);
+        integrator.solve(makeODE(params.getNumberOfSteps() * params.h), tol, new StepListener() {
+            @Override public boolean stepAccepted(double x, double h, StateView y) {
+                points.addPoint(y.get(2), y.get(1));
+                return true;
+            }
+        });
+        return points;
+    }
+
+    private ODE makeODE(double time)
+    {
+        if (integrator instanceof Propagator)
+            return new LinearODE(0, time, new Vector(new double[]{ 0, 1 }), 2 * Math.PI,
+                    new Matrix(new double[][]{ { 0, 1 }, { -1, 0 } }));
+        Vector q0 = new Vector(new double[]{ 0 });
+        Vector p0 = new Vector(new double[]{ 1 });
+        return new SeparableODE(0, time, q0, p0, 2 * Math.PI) {
+            @Override public void velocity(double x, double[] p, double[] dqdx) {
+                dqdx[0] = p[0];
+            }
+            @Override public void force(double x, double[] q, double[] dpdx) {
+                dpdx[0] = -q[0];
+            }
+        };
+    }
+
+    private final Integrator integrator;
+    private final double tol = 1e-14;
+}
@@ -8,6 +8,11 @@ import java.awt.BorderLayout;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import javax.swing.JOptionPane;
+import numerics.ImplicitMidpoint;
+import numerics.Propagator;
+import numerics.StormerVerlet;
+import numerics.Yoshida4;
+import numerics.Yoshida6;
 import plot.PlotProxy;
 
 /**
@@ -72,6 +77,16 @@ public class MainPanel extends javax.swing.JPanel
             return new TrapezoidalRule();
         else if (name.equalsIgnoreCase("Runge-Kutta 4"))
             return new RungeKutta4();
+        else if (name.equalsIgnoreCase("Stormer-Verlet"))
+            return new IntegratorMethod(new StormerVerlet());
+        else if (name.equalsIgnoreCase("Yoshida 4"))
+            return new IntegratorMethod(new Yoshida4());
+        else if (name.equalsIgnoreCase("Yoshida 6"))
+            return new IntegratorMethod(new Yoshida6());
+        else if (name.equalsIgnoreCase("Implicit Midpoint"))
+            return new IntegratorMethod(new ImplicitMidpoint());
+        else if (name.equalsIgnoreCase("Exact Propagator"))
+            return new IntegratorMethod(new Propagator());
         else
             throw new RuntimeException("Method \"" + name + "\" not known.");
     }
@@ -142,7 +157,7 @@ public class MainPanel extends javax.swing.JPanel
 
         jLabel4.setText("Method:");
 
-        methods.setModel(new javax.swing.DefaultComboBoxModel(new String[] { "Explicit Euler", "Incorrect Euler", "Backward Euler", "Improved Euler", "Midpoint Euler", "Trapezoidal Rule", "Runge-Kutta 4" }));
+        methods.setModel(new javax.swing.DefaultComboBoxModel(new String[] { "Explicit Euler", "Incorrect Euler", "Backward Euler", "Improved Euler", "Midpoint Euler", "Trapezoidal Rule", "Runge-Kutta 4", "Stormer-Verlet", "Yoshida 4", "Yoshida 6", "Implicit Midpoint", "Exact Propagator" }));
 
         draw.setText("Draw!");
         draw.addActionListener(new java.awt.event.ActionListener() {
@@ -0,0 +1,130 @@
+package math.matrices;
+
+/**
+ * LU decomposition with partial pivoting of a square matrix. Once computed, it solves
+ * linear systems with the matrix in O(n^2) operations, so it pays off when many systems
+ * with the same matrix are solved.
+ * @author Grzegorz Los
+ */
+public class LUDecomposition
+{
+    /**
+     * Decomposes given matrix, which stays intact.
+     * @param m square matrix.
+     * @throws UninvertibleMatrixException if the matrix is not square or singular.
+     */
+    public LUDecomposition(Matrix m) throws UninvertibleMatrixException
+    {
+        if (!m.isSquare())
+            throw new UninvertibleMatrixException("Matrix is not square");
+        n = m.getRows();
+        lu = new double[n][n];
+        perm = new int[n];
+        for (int row = 0; row < n; ++row)
+        {
+            perm[row] = row;
+            for (int col = 0; col < n; ++col)
+                lu[row][col] = m.get(row+1, col+1);
+        }
+        decompose();
+    }
+
+    public int getSize()
+    {
+        return n;
+    }
+
+    /**
+     * Solves the system with the decomposed matrix in place.
+     * @param b right hand side, 0-based; it is replaced by the solution.
+     */
+    public void solve(double[] b)
+    {
+        if (b.length != n)
+            throw new DimensionException();
+        double[] x = new double[n];
+        solve(b, x);
+        System.arraycopy(x, 0, b, 0, n);
+    }
+
+    /**
+     * Solves the system with the decomposed matrix without allocating.
+     * @param b right hand side, 0-based.
+     * @param x array receiving the solution, different from b.
+     */
+    public void solve(double[] b, double[] x)
+    {
+        for (int i = 0; i < n; ++i)
+        {
+            double sum = b[perm[i]];
+            double[] row = lu[i];
+            for (int j = 0; j < i; ++j)
+                sum -= row[j] * x[j];
+            x[i] = sum;
+        }
+        for (int i = n - 1; i >= 0; --i)
+        {
+            double sum = x[i];
+            double[] row = lu[i];
+            for (int j = i + 1; j < n; ++j)
+                sum -= row[j] * x[j];
+            x[i] = sum / row[i];
+        }
+    }
+
+    public Vector solve(Vector b)
+    {
+        if (b.getSize() != n)
+            throw new DimensionException();
+        double[] arg = new double[n];
+        for (int i = 0; i < n; ++i)
+            arg[i] = b.get(i+1);
+        double[] res = new double[n];
+        solve(arg, res);
+        return new Vector(res);
+    }
+
+    private void decompose() throws UninvertibleMatrixException
+    {
+        for (int col = 0; col < n; ++col)
+        {
+            int p = findPivot(col);
+            if (p != col)
+            {
+                double[] aux = lu[p];
+                lu[p] = lu[col];
+                lu[col] = aux;
+                int auxPerm = perm[p];
+                perm[p] = perm[col];
+                perm[col] = auxPerm;
+            }
+            double pivot = lu[col][col];
+            for (int row = col + 1; row < n; ++row)
+            {
+                double[] r = lu[row];
+                double coef = r[col] / pivot;
+                r[col] = coef;
+                if (coef == 0)
+                    continue;
+                for (int j = col + 1; j < n; ++j)
+                    r[j] -= coef * lu[col][j];
+            }
+        }
+    }
+
+    private int findPivot(int col) throws UninvertibleMatrixException
+    {
+        int best = col;
+        for (int row = col + 1; row < n; ++row)
+            if (Math.abs(lu[row][col]) > Math.abs(lu[best][col]))
+                best = row;
+        double pivot = Math.abs(lu[best][col]);
+        if (!(pivot > 0) || Double.isInfinite(pivot))
+            throw new UninvertibleMatrixException("Matrix is singular");
+        return best;
+    }
+
+    private final int n;
+    private final double[][] lu;
+    private final int[] perm;
+}
@@ -249,6 +249,17 @@ public class Matrix
         L.set(row, row, Math.sqrt(x));
     }
 
+    /**
+     * Returns LU decomposition of the matrix, which can be used to solve many linear
+     * systems with the matrix.
+     * @return LU decomposition of the matrix.
+     * @throws UninvertibleMatrixException if the matrix is not square or singular.
+     */
+    public LUDecomposition lu() throws UninvertibleMatrixException
+    {
+        return new LUDecomposition(this);
+    }
+
     /**
      * Performs matrix addition.
      * @param other a matrix standing on the right side of the multiplication.
@@ -613,7 +624,161 @@ public class Matrix
             set(row, col, coef * get(row, col));
     }
     
+    /**
+     * Computes the exponential of this square matrix by scaling and squaring with the
+     * diagonal Pade approximants of degrees 3 to 13, chosen by the 1-norm as in Higham's
+     * algorithm (2005), which gives full double precision. This matrix stays intact.
+     * @return the exponential of this matrix.
+     * @throws DimensionException if the matrix is not square.
+     */
+    public Matrix exp() throws DimensionException
+    {
+        if (!isSquare())
+            throw new DimensionException("Exponential of a non-square matrix, size = "
+                    + rows + "x" + cols);
+        double norm = 0;
+        for (int col = 0; col < cols; ++col)
+        {
+            double sum = 0;
+            for (int row = 0; row < rows; ++row)
+                sum += Math.abs(fields[row][col]);
+            norm = Math.max(norm, sum);
+        }
+        for (int j = 0; j < padeThetas.length - 1; ++j)
+            if (norm <= padeThetas[j])
+                return new Matrix(pade(fields, padeCoefficients[j]));
+        int squarings = 0;
+        if (norm > padeThetas[padeThetas.length - 1])
+            squarings = (int) Math.ceil(Math.log(norm / padeThetas[padeThetas.length - 1])
+                    / Math.log(2));
+        double[][] a = new double[rows][];
+        double scale = Math.scalb(1.0, -squarings);
+        for (int row = 0; row < rows; ++row)
+        {
+            a[row] = fields[row].clone();
+            for (int col = 0; col < cols; ++col)
+                a[row][col] *= scale;
+        }
+        double[][] res = pade(a, padeCoefficients[padeCoefficients.length - 1]);
+        for (int k = 0; k < squarings; ++k)
+            res = product(res, res);
+        return new Matrix(res);
+    }
+
+    /**
+     * Computes the diagonal Pade approximant r(a) = q(a)^-1 p(a) of the exponential with
+     * given coefficients, p(a) = v + u and q(a) = v - u, where u collects the odd powers of a
+     * and v the even ones. The degree 13 uses the powers a^2, a^4 and a^6 only.
+     */
+    private static double[][] pade(double[][] a, double[] b)
+    {
+        int n = a.length;
+        double[][] id = new double[n][n];
+        for (int i = 0; i < n; ++i)
+            id[i][i] = 1;
+        double[][] a2 = product(a, a), u, v;
+        if (b.length < 14)
+        {
+            double[][] power = id;
+            u = new double[n][n];
+            v = new double[n][n];
+            for (int j = 0; j < b.length; j += 2)
+            {
+                combine(v, b[j], power);
+                combine(u, b[j+1], power);
+                power = product(power, a2);
+            }
+        }
+        else
+        {
+            double[][] a4 = product(a2, a2), a6 = product(a2, a4);
+            double[][] t = new double[n][n];
+            combine(t, b[13], a6);
+            combine(t, b[11], a4);
+            combine(t, b[9], a2);
+            u = product(a6, t);
+            combine(u, b[7], a6);
+            combine(u, b[5], a4);
+            combine(u, b[3], a2);
+            combine(u, b[1], id);
+            t = new double[n][n];
+            combine(t, b[12], a6);
+            combine(t, b[10], a4);
+            combine(t, b[8], a2);
+            v = product(a6, t);
+            combine(v, b[6], a6);
+            combine(v, b[4], a4);
+            combine(v, b[2], a2);
+            combine(v, b[0], id);
+        }
+        u = product(a, u);
+        double[][] p = new double[n][n], q = new double[n][n];
+        for (int i = 0; i < n; ++i)
+            for (int j = 0; j < n; ++j)
+            {
+                p[i][j] = v[i][j] + u[i][j];
+                q[i][j] = v[i][j] - u[i][j];
+            }
+        LUDecomposition lu;
+        try {
+            lu = new Matrix(q).lu();
+        } catch (UninvertibleMatrixException ex) {
+            throw new ArithmeticException("Denominator of the Pade approximant is singular");
+        }
+        double[][] res = new double[n][n];
+        double[] col = new double[n], x = new double[n];
+        for (int j = 0; j < n; ++j)
+        {
+            for (int i = 0; i < n; ++i)
+                col[i] = p[i][j];
+            lu.solve(col, x);
+            for (int i = 0; i < n; ++i)
+                res[i][j] = x[i];
+        }
+        return res;
+    }
+
+    /**
+     * Adds coef * m to dest.
+     */
+    private static void combine(double[][] dest, double coef, double[][] m)
+    {
+        for (int i = 0; i < dest.length; ++i)
+            for (int j = 0; j < dest[i].length; ++j)
+                dest[i][j] += coef * m[i][j];
+    }
+
+    private static double[][] product(double[][] a, double[][] b)
+    {
+        int n = a.length, m = b[0].length, l = b.length;
+        double[][] res = new double[n][m];
+        for (int i = 0; i < n; ++i)
+            for (int k = 0; k < l; ++k)
+            {
+                double aik = a[i][k];
+                if (aik == 0)
+                    continue;
+                for (int j = 0; j < m; ++j)
+                    res[i][j] += aik * b[k][j];
+            }
+        return res;
+    }
+
     private final double[][] fields;
     private final int rows;
     private final int cols;
+    private static final double[] padeThetas = {
+        1.495585217958292e-2, 2.539398330063230e-1, 9.504178996162932e-1,
+        2.097847961257068e0, 5.371920351148152e0
+    };
+    private static final double[][] padeCoefficients = {
+        { 120, 60, 12, 1 },
+        { 30240, 15120, 3360, 420, 30, 1 },
+        { 17297280, 8648640, 1995840, 277200, 25200, 1512, 56, 1 },
+        { 17643225600.0, 8821612800.0, 2075673600, 302702400, 30270240, 2162160, 110880,
+            3960, 90, 1 },
+        { 64764752532480000.0, 32382376266240000.0, 7771770303897600.0,
+            1187353796428800.0, 129060195264000.0, 10559470521600.0, 670442572800.0,
+            33522128640.0, 1323241920, 40840800, 960960, 16380, 182, 1 }
+    };
 }
\ No newline at end of file
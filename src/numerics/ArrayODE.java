@@ -0,0 +1,30 @@
+package numerics;
+
+import math.matrices.Vector;
+
+/**
+ * ODE defined by the in-place right hand side, which solvers call directly. The
+ * {@link Vector} form is derived from it.
+ * @author Grzegorz Los
+ */
+public abstract class ArrayODE extends ODE
+{
+    public ArrayODE(double x0, double xn, Vector y0, double period)
+    {
+        super(x0, xn, y0, period);
+    }
+
+    @Override
+    abstract public void f(double x, double[] y, double[] dydx);
+
+    @Override
+    public Vector f(double x, Vector y)
+    {
+        double[] arg = new double[y.getSize()];
+        for (int i = 0; i < arg.length; ++i)
+            arg[i] = y.get(i+1);
+        double[] res = new double[arg.length];
+        f(x, arg, res);
+        return new Vector(res);
+    }
+}
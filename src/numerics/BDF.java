@@ -0,0 +1,284 @@
+package numerics;
+
+/**
+ * Variable order (1 to 5), variable step backward differentiation formulas in the
+ * quasi-constant step size implementation of Shampine and Reichelt. The solution is
+ * represented by its backward differences D, which are rescaled whenever the step size
+ * changes. Implicit equations are solved by a simplified Newton iteration.
+ * <p>
+ * The Jacobian is kept until the Newton iteration fails to converge, and the LU
+ * decomposition of I - h/alpha J is kept as long as the step size and the order do not
+ * change. Step size and order are chosen after order + 1 steps of constant size, by
+ * comparing error estimates of orders k - 1, k and k + 1.
+ * @author Grzegorz Los
+ */
+public class BDF extends StiffIntegrator
+{
+    @Override
+    void allocate(int dim)
+    {
+        D = new double[maxOrder + 3][dim];
+        yPredict = new double[dim];
+        yNew = new double[dim];
+        psi = new double[dim];
+        d = new double[dim];
+        f = new double[dim];
+        rhs = new double[dim];
+        dy = new double[dim];
+        err = new double[dim];
+    }
+
+    @Override
+    void start()
+    {
+        newtonTol = Math.max(10 * Math.ulp(1.0) / tol, Math.min(0.03, Math.sqrt(tol)));
+        order = 1;
+        equalSteps = 0;
+        evalF(x, y, f);
+        h = initialStep(f, 2);
+        updateJacobian(x, y, f);
+        for (int i = 0; i < dim; ++i)
+        {
+            D[0][i] = y[i];
+            D[1][i] = h * f[i];
+        }
+    }
+
+    @Override
+    double step()
+    {
+        double limited = limitStep(h);
+        if (limited != h)
+            changeStep(limited / h);
+        while (true)
+        {
+            ensureStepOK(h);
+            double xNew = h >= ode.xn - x ? ode.xn : x + h;
+            predict();
+            boolean jacobianFresh = false;
+            int iterations;
+            while (true)
+            {
+                if (lu == null && !factorize(h / alpha[order]))
+                {
+                    iterations = -1;
+                    break;
+                }
+                iterations = solveSystem(xNew);
+                if (iterations > 0 || jacobianFresh)
+                    break;
+                evalF(xNew, yPredict, f);
+                updateJacobian(xNew, yPredict, f);
+                jacobianFresh = true;
+            }
+            if (iterations <= 0)
+            {
+                rejected++;
+                changeStep(0.5);
+                continue;
+            }
+            safety = 0.9 * (2 * newtonMaxIter + 1) / (2 * newtonMaxIter + iterations);
+            for (int i = 0; i < dim; ++i)
+                err[i] = errorConst[order] * d[i];
+            double e = norm(err, yNew);
+            if (e > 1)
+            {
+                rejected++;
+                changeStep(Math.max(minFactor, safety * Math.pow(e, -1.0 / (order + 1))));
+                continue;
+            }
+            double hDone = xNew - x;
+            accept(xNew);
+            chooseOrderAndStep(e);
+            return hDone;
+        }
+    }
+
+    /**
+     * Returns the order of the formula for the next step.
+     */
+    int getOrder()
+    {
+        return order;
+    }
+
+    private void predict()
+    {
+        for (int i = 0; i < dim; ++i)
+        {
+            double sum = 0, p = 0;
+            for (int j = 0; j <= order; ++j)
+                sum += D[j][i];
+            for (int j = 1; j <= order; ++j)
+                p += gamma[j] * D[j][i];
+            yPredict[i] = sum;
+            psi[i] = p / alpha[order];
+        }
+    }
+
+    /**
+     * Solves the equation of the formula by simplified Newton iteration, starting from
+     * the predicted value. On success yNew is the solution and d its difference from
+     * the prediction.
+     * @return the number of iterations, or 0 if the iteration does not converge.
+     */
+    private int solveSystem(double xNew)
+    {
+        double c = h / alpha[order];
+        System.arraycopy(yPredict, 0, yNew, 0, dim);
+        for (int i = 0; i < dim; ++i)
+            d[i] = 0;
+        double normOld = 0;
+        for (int k = 0; k < newtonMaxIter; ++k)
+        {
+            evalF(xNew, yNew, f);
+            for (int i = 0; i < dim; ++i)
+            {
+                if (Double.isNaN(f[i]) || Double.isInfinite(f[i]))
+                    return 0;
+                rhs[i] = c * f[i] - psi[i] - d[i];
+            }
+            lu.solve(rhs, dy);
+            double dyNorm = norm(dy, yPredict);
+            double rate = k > 0 ? dyNorm / normOld : 0;
+            if (k > 0 && (rate >= 1
+                    || Math.pow(rate, newtonMaxIter - k) / (1 - rate) * dyNorm > newtonTol))
+                return 0;
+            for (int i = 0; i < dim; ++i)
+            {
+                yNew[i] += dy[i];
+                d[i] += dy[i];
+            }
+            if (dyNorm == 0 || k > 0 && rate / (1 - rate) * dyNorm < newtonTol)
+                return k + 1;
+            normOld = dyNorm;
+        }
+        return 0;
+    }
+
+    /**
+     * Accepts the step and updates the differences; D[order + 1] becomes d, the difference
+     * of order + 1 of the new solution, and D[order + 2] the change of it.
+     */
+    private void accept(double xNew)
+    {
+        x = xNew;
+        System.arraycopy(yNew, 0, y, 0, dim);
+        equalSteps++;
+        for (int i = 0; i < dim; ++i)
+        {
+            D[order + 2][i] = d[i] - D[order + 1][i];
+            D[order + 1][i] = d[i];
+        }
+        for (int j = order; j >= 0; --j)
+            for (int i = 0; i < dim; ++i)
+                D[j][i] += D[j + 1][i];
+    }
+
+    private void chooseOrderAndStep(double e)
+    {
+        if (equalSteps < order + 1)
+            return;
+        double eLower = Double.POSITIVE_INFINITY, eHigher = Double.POSITIVE_INFINITY;
+        if (order > 1)
+        {
+            for (int i = 0; i < dim; ++i)
+                err[i] = errorConst[order - 1] * D[order][i];
+            eLower = norm(err, y);
+        }
+        if (order < maxOrder)
+        {
+            for (int i = 0; i < dim; ++i)
+                err[i] = errorConst[order + 1] * D[order + 2][i];
+            eHigher = norm(err, y);
+        }
+        double facLower = Math.pow(eLower, -1.0 / order);
+        double fac = Math.pow(e, -1.0 / (order + 1));
+        double facHigher = Math.pow(eHigher, -1.0 / (order + 2));
+        double best = fac;
+        if (facLower > best)
+        {
+            best = facLower;
+            order--;
+        }
+        else if (facHigher > best)
+        {
+            best = facHigher;
+            order++;
+        }
+        changeStep(Math.min(maxFactor, safety * best));
+    }
+
+    /**
+     * Multiplies the step size by given factor, rescaling the differences of the
+     * interpolating polynomial accordingly.
+     */
+    private void changeStep(double factor)
+    {
+        double[][] R = computeR(order, factor);
+        double[][] U = computeR(order, 1);
+        double[][] RU = new double[order + 1][order + 1];
+        for (int i = 0; i <= order; ++i)
+            for (int j = 0; j <= order; ++j)
+                for (int k = 0; k <= order; ++k)
+                    RU[i][j] += R[i][k] * U[k][j];
+        double[] col = new double[order + 1];
+        for (int comp = 0; comp < dim; ++comp)
+        {
+            for (int i = 0; i <= order; ++i)
+            {
+                double sum = 0;
+                for (int j = 0; j <= order; ++j)
+                    sum += RU[j][i] * D[j][comp];
+                col[i] = sum;
+            }
+            for (int i = 0; i <= order; ++i)
+                D[i][comp] = col[i];
+        }
+        h *= factor;
+        equalSteps = 0;
+        lu = null;
+    }
+
+    private static double[][] computeR(int order, double factor)
+    {
+        double[][] R = new double[order + 1][order + 1];
+        for (int j = 0; j <= order; ++j)
+            R[0][j] = 1;
+        for (int i = 1; i <= order; ++i)
+            for (int j = 0; j <= order; ++j)
+                R[i][j] = j == 0 ? 0 : R[i-1][j] * (i - 1 - factor * j) / i;
+        return R;
+    }
+
+    private static double[] makeGamma()
+    {
+        double[] res = new double[maxOrder + 1];
+        for (int k = 1; k <= maxOrder; ++k)
+            res[k] = res[k-1] + 1.0 / k;
+        return res;
+    }
+
+    private static double[] makeErrorConst()
+    {
+        double[] res = new double[maxOrder + 2];
+        for (int k = 0; k <= maxOrder + 1; ++k)
+            res[k] = 1.0 / (k + 1);
+        return res;
+    }
+
+    private static final int maxOrder = 5;
+    private static final int newtonMaxIter = 4;
+    private static final double minFactor = 0.2;
+    private static final double maxFactor = 10;
+    private static final double[] gamma = makeGamma();
+    private static final double[] alpha = gamma;
+    private static final double[] errorConst = makeErrorConst();
+    private double newtonTol;
+    private double h;
+    private double safety;
+    private int order;
+    private int equalSteps;
+    private double[][] D;
+    private double[] yPredict, yNew, psi, d, f, rhs, dy, err;
+}
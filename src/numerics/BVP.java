@@ -0,0 +1,59 @@
+package numerics;
+
+/**
+ * Two-point boundary value problem y' = f(x, y) on [a, b] with separated boundary
+ * conditions: some of them involve only y(a) and the rest only y(b), and together there
+ * are as many of them as components of the state. Problems with conditions coupling both
+ * ends can be brought to this form by adding the constant components z' = 0, z(a) = y(a).
+ * @author Grzegorz Los
+ */
+public abstract class BVP
+{
+    /**
+     * @param a left end of the interval.
+     * @param b right end of the interval.
+     * @param dim number of components of the state.
+     * @param left number of conditions at the left end, between 0 and dim.
+     */
+    public BVP(double a, double b, int dim, int left)
+    {
+        if (!(a < b))
+            throw new IllegalArgumentException("Interval [" + a + ", " + b + "] is empty");
+        if (left < 0 || left > dim)
+            throw new IllegalArgumentException("Number of left conditions must be between 0 and "
+                    + dim + ", left = " + left);
+        this.a = a;
+        this.b = b;
+        this.dim = dim;
+        this.left = left;
+    }
+
+    /**
+     * Computes the right hand side.
+     * @param x the argument.
+     * @param y the state, 0-based.
+     * @param dydx array receiving the derivative.
+     */
+    abstract public void f(double x, double[] y, double[] dydx);
+
+    /**
+     * Computes the residuals of the conditions at the left end, which are zero for the
+     * solution.
+     * @param ya the state at a.
+     * @param res array of length {@link #left} receiving the residuals.
+     */
+    abstract public void leftConditions(double[] ya, double[] res);
+
+    /**
+     * Computes the residuals of the conditions at the right end, which are zero for the
+     * solution.
+     * @param yb the state at b.
+     * @param res array of length dim - {@link #left} receiving the residuals.
+     */
+    abstract public void rightConditions(double[] yb, double[] res);
+
+    public final double a;
+    public final double b;
+    public final int dim;
+    public final int left;
+}
@@ -0,0 +1,109 @@
+package numerics;
+
+import java.util.Arrays;
+
+/**
+ * LU decomposition with partial pivoting of a square band matrix, whose entry (i, j) is
+ * zero unless -lower &lt;= j - i &lt;= upper. Row interchanges widen the upper band of U to
+ * lower + upper, so every row keeps 2 lower + upper + 1 entries, and both the
+ * decomposition and solutions cost time linear in the size of the matrix.
+ * @author Grzegorz Los
+ */
+class BandedLU
+{
+    BandedLU(int n, int lower, int upper)
+    {
+        this.n = n;
+        this.lower = lower;
+        this.upper = upper;
+        a = new double[n][2 * lower + upper + 1];
+        pivot = new int[n];
+    }
+
+    void clear()
+    {
+        for (double[] row: a)
+            Arrays.fill(row, 0);
+    }
+
+    /**
+     * Sets entry (i, j) of the matrix before the decomposition; it must lie in the band.
+     */
+    void set(int i, int j, double v)
+    {
+        a[i][j - i + lower] = v;
+    }
+
+    /**
+     * Decomposes the matrix in place.
+     * @return false if the matrix is singular.
+     */
+    boolean decompose()
+    {
+        for (int k = 0; k < n; ++k)
+        {
+            int last = Math.min(n - 1, k + lower);
+            int p = k;
+            for (int i = k + 1; i <= last; ++i)
+                if (Math.abs(a[i][k - i + lower]) > Math.abs(a[p][k - p + lower]))
+                    p = i;
+            pivot[k] = p;
+            if (a[p][k - p + lower] == 0)
+                return false;
+            int end = Math.min(n - 1, k + lower + upper);
+            if (p != k)
+            {
+                for (int j = k; j <= end; ++j)
+                {
+                    double t = a[k][j - k + lower];
+                    a[k][j - k + lower] = a[p][j - p + lower];
+                    a[p][j - p + lower] = t;
+                }
+            }
+            double[] rowK = a[k];
+            double d = rowK[lower];
+            for (int i = k + 1; i <= last; ++i)
+            {
+                double[] rowI = a[i];
+                int shift = i - k;
+                double l = rowI[lower - shift] / d;
+                rowI[lower - shift] = l;
+                if (l == 0)
+                    continue;
+                for (int j = k + 1; j <= end; ++j)
+                    rowI[j - i + lower] -= l * rowK[j - k + lower];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Solves the system with the decomposed matrix in place.
+     * @param b the right hand side, receiving the solution.
+     */
+    void solve(double[] b)
+    {
+        for (int k = 0; k < n; ++k)
+        {
+            int p = pivot[k];
+            double t = b[k];
+            b[k] = b[p];
+            b[p] = t;
+            int last = Math.min(n - 1, k + lower);
+            for (int i = k + 1; i <= last; ++i)
+                b[i] -= a[i][k - i + lower] * b[k];
+        }
+        for (int k = n - 1; k >= 0; --k)
+        {
+            int end = Math.min(n - 1, k + lower + upper);
+            double s = b[k];
+            for (int j = k + 1; j <= end; ++j)
+                s -= a[k][j - k + lower] * b[j];
+            b[k] = s / a[k][lower];
+        }
+    }
+
+    private final int n, lower, upper;
+    private final double[][] a;
+    private final int[] pivot;
+}
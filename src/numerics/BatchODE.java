@@ -0,0 +1,82 @@
+package numerics;
+
+/**
+ * Family of problems of the same dimension, integrated together by {@link BatchRungeKutta}.
+ * Every member of the family is a lane. States are stored as structure of arrays: y[i][l]
+ * is the (i+1)-th component of the state of lane l, so that right hand sides can be
+ * computed for all lanes in tight loops.
+ * @author Grzegorz Los
+ */
+public abstract class BatchODE
+{
+    /**
+     * Creates the family.
+     * @param x0 initial argument, common to all lanes.
+     * @param xn final argument, common to all lanes.
+     * @param y0 initial states, y0[l] being the state of lane l.
+     */
+    public BatchODE(double x0, double xn, double[][] y0)
+    {
+        if (y0.length == 0)
+            throw new IllegalArgumentException("At least one lane is required");
+        this.x0 = x0;
+        this.xn = xn;
+        lanes = y0.length;
+        dim = y0[0].length;
+        this.y0 = new double[dim][lanes];
+        for (int l = 0; l < lanes; ++l)
+        {
+            if (y0[l].length != dim)
+                throw new IllegalArgumentException("All lanes must have the same dimension");
+            for (int i = 0; i < dim; ++i)
+                this.y0[i][l] = y0[l][i];
+        }
+    }
+
+    /**
+     * Computes right hand sides of all lanes.
+     * @param x arguments of the lanes.
+     * @param y states of the lanes, y[i][l] being component i of lane l.
+     * @param dydx array receiving derivatives, in the same layout as y.
+     */
+    abstract public void f(double[] x, double[][] y, double[][] dydx);
+
+    /**
+     * Makes a family out of separate problems; they must share the interval of integration.
+     * The right hand side is evaluated lane after lane then.
+     * @param odes the problems.
+     * @return family of the problems.
+     */
+    public static BatchODE of(final ODE[] odes)
+    {
+        double[][] y0 = new double[odes.length][];
+        for (int l = 0; l < odes.length; ++l)
+        {
+            if (odes[l].x0 != odes[0].x0 || odes[l].xn != odes[0].xn)
+                throw new IllegalArgumentException("Problems must share the interval of integration");
+            y0[l] = new double[odes[l].y0.getSize()];
+            for (int i = 0; i < y0[l].length; ++i)
+                y0[l][i] = odes[l].y0.get(i+1);
+        }
+        return new BatchODE(odes[0].x0, odes[0].xn, y0) {
+            @Override public void f(double[] x, double[][] y, double[][] dydx) {
+                for (int l = 0; l < lanes; ++l)
+                {
+                    for (int i = 0; i < dim; ++i)
+                        arg[i] = y[i][l];
+                    odes[l].f(x[l], arg, res);
+                    for (int i = 0; i < dim; ++i)
+                        dydx[i][l] = res[i];
+                }
+            }
+            private final double[] arg = new double[dim];
+            private final double[] res = new double[dim];
+        };
+    }
+
+    public final double x0;
+    public final double xn;
+    public final int lanes;
+    public final int dim;
+    final double[][] y0;
+}
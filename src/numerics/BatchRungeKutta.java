@@ -0,0 +1,301 @@
+package numerics;
+
+import math.matrices.Vector;
+
+/**
+ * Runge-Kutta method integrating all lanes of a {@link BatchODE} in lockstep. Stages are
+ * computed for all lanes at once, with the lane index in the innermost loops over
+ * structure-of-arrays workspaces, which lets the JIT compiler vectorize them. Every lane
+ * has its own step size and step control; lanes which rejected their step retry it in the
+ * next round, and lanes which finished or failed are masked out.
+ * @author Grzegorz Los
+ */
+public class BatchRungeKutta
+{
+    /**
+     * Creates batched version of given method, e.g. {@code new DormandPrince().getMethod()}.
+     * @param method method supplying the Butcher tableau, step control and step limit.
+     */
+    public BatchRungeKutta(RungeKutta method)
+    {
+        A = method.getA();
+        b3 = method.getB3();
+        b4 = method.getB4();
+        b5 = method.getB5();
+        c = method.getC();
+        s = b5.length;
+        controlStep = method.isStepControlled();
+        fsal = method.usesFSAL();
+        maxStep = method.getMaxStep();
+        controller = new PIController(method.getErrorOrder());
+    }
+
+    public void solve(BatchODE ode, double tol)
+    {
+        this.ode = ode;
+        this.tol = tol;
+        prepare();
+        for (int i = 0; i < maxRounds && activeLanes > 0; ++i)
+        {
+            updateKs();
+            combine(b5, y5);
+            if (controlStep)
+            {
+                combine(b4, y4);
+                if (b3 != null)
+                    combine(b3, y3);
+            }
+            finishRound();
+        }
+    }
+
+    public int getLanes()
+    {
+        return lanes;
+    }
+
+    public double getLastX(int lane)
+    {
+        return x[lane];
+    }
+
+    public Vector getLastY(int lane)
+    {
+        Vector res = new Vector(dim);
+        for (int i = 0; i < dim; ++i)
+            res.set(i+1, y[i][lane]);
+        return res;
+    }
+
+    public int getAcceptedSteps(int lane)
+    {
+        return accepted[lane];
+    }
+
+    public int getRejectedSteps(int lane)
+    {
+        return rejected[lane];
+    }
+
+    /**
+     * Returns true if the step size of the lane became too small or its error could not be
+     * estimated; such lane stops at {@link #getLastX(int)}.
+     * @param lane the lane.
+     * @return true if integration of the lane failed.
+     */
+    public boolean hasFailed(int lane)
+    {
+        return failed[lane];
+    }
+
+    /**
+     * Returns the number of evaluations of the batched right hand side during the last run.
+     * @return the number of evaluations of the batched right hand side.
+     */
+    public int getEvaluations()
+    {
+        return evaluations;
+    }
+
+    private void prepare()
+    {
+        ensureWorkspace(ode.lanes, ode.dim);
+        activeLanes = 0;
+        for (int l = 0; l < lanes; ++l)
+        {
+            x[l] = ode.x0;
+            h[l] = Math.min(1.0/512, Math.min(maxStep, ode.xn - ode.x0));
+            errOld[l] = PIController.initialErrOld;
+            lastRejected[l] = false;
+            accepted[l] = 0;
+            rejected[l] = 0;
+            failed[l] = false;
+            active[l] = ode.x0 < ode.xn;
+            if (active[l])
+                activeLanes++;
+            else
+                h[l] = 0;
+        }
+        for (int i = 0; i < dim; ++i)
+            System.arraycopy(ode.y0[i], 0, y[i], 0, lanes);
+        evaluations = 0;
+        firstStageKnown = false;
+    }
+
+    private void ensureWorkspace(int lanes, int dim)
+    {
+        if (k != null && this.lanes == lanes && this.dim == dim)
+            return;
+        this.lanes = lanes;
+        this.dim = dim;
+        k = new double[s][dim][lanes];
+        y = new double[dim][lanes];
+        yTmp = new double[dim][lanes];
+        y3 = b3 != null ? new double[dim][lanes] : null;
+        y4 = new double[dim][lanes];
+        y5 = new double[dim][lanes];
+        x = new double[lanes];
+        xTmp = new double[lanes];
+        h = new double[lanes];
+        errOld = new double[lanes];
+        lastRejected = new boolean[lanes];
+        active = new boolean[lanes];
+        failed = new boolean[lanes];
+        accepted = new int[lanes];
+        rejected = new int[lanes];
+    }
+
+    private void updateKs()
+    {
+        for (int i = firstStageKnown ? 1 : 0; i < s; ++i)
+            updateK(i);
+        firstStageKnown = false;
+    }
+
+    private void updateK(int i)
+    {
+        for (int l = 0; l < lanes; ++l)
+            xTmp[l] = x[l] + c[i] * h[l];
+        for (int comp = 0; comp < dim; ++comp)
+        {
+            double[] t = yTmp[comp];
+            System.arraycopy(y[comp], 0, t, 0, lanes);
+            for (int j = 0; j < i; ++j)
+            {
+                double a = A[i][j];
+                if (a == 0)
+                    continue;
+                double[] kj = k[j][comp];
+                for (int l = 0; l < lanes; ++l)
+                    t[l] += a * h[l] * kj[l];
+            }
+        }
+        ode.f(xTmp, yTmp, k[i]);
+        evaluations++;
+    }
+
+    private void combine(double[] b, double[][] newY)
+    {
+        for (int comp = 0; comp < dim; ++comp)
+        {
+            double[] t = newY[comp];
+            System.arraycopy(y[comp], 0, t, 0, lanes);
+            for (int j = 0; j < s; ++j)
+            {
+                double bj = b[j];
+                if (bj == 0)
+                    continue;
+                double[] kj = k[j][comp];
+                for (int l = 0; l < lanes; ++l)
+                    t[l] += bj * h[l] * kj[l];
+            }
+        }
+    }
+
+    /**
+     * Accepts or rejects the step of every active lane and chooses its next step size.
+     */
+    private void finishRound()
+    {
+        for (int l = 0; l < lanes; ++l)
+        {
+            if (!active[l])
+                continue;
+            double err = controlStep ? errorNorm(l) : 0;
+            if (err <= 1)
+                acceptStep(l, err);
+            else
+                rejectStep(l, err);
+        }
+        // rejected lanes keep their first stage, accepted ones take it from the last stage
+        firstStageKnown = fsal;
+    }
+
+    private void acceptStep(int l, double err)
+    {
+        accepted[l]++;
+        x[l] = h[l] >= ode.xn - x[l] ? ode.xn : x[l] + h[l];
+        for (int comp = 0; comp < dim; ++comp)
+        {
+            y[comp][l] = y5[comp][l];
+            if (fsal)
+                k[0][comp][l] = k[s-1][comp][l];
+        }
+        if (controlStep)
+        {
+            h[l] /= controller.acceptedFactor(err, errOld[l], lastRejected[l]);
+            errOld[l] = controller.nextErrOld(err);
+            lastRejected[l] = false;
+        }
+        h[l] = Math.min(h[l], Math.min(maxStep, ode.xn - x[l]));
+        if (x[l] >= ode.xn)
+            deactivate(l);
+    }
+
+    private void rejectStep(int l, double err)
+    {
+        rejected[l]++;
+        h[l] /= controller.rejectedFactor(err);
+        lastRejected[l] = true;
+        if (h[l] <= 16 * Math.ulp(x[l]))
+        {
+            failed[l] = true;
+            deactivate(l);
+        }
+    }
+
+    private void deactivate(int l)
+    {
+        active[l] = false;
+        h[l] = 0;
+        activeLanes--;
+    }
+
+    private double errorNorm(int l)
+    {
+        double err = maxError(y4, l);
+        if (b3 == null || err == 0 || Double.isInfinite(err))
+            return err;
+        double err3 = maxError(y3, l);
+        if (Double.isInfinite(err3))
+            return err3;
+        return err * err / Math.sqrt(err * err + 0.01 * err3 * err3);
+    }
+
+    private double maxError(double[][] yLow, int l)
+    {
+        double err = 0;
+        for (int comp = 0; comp < dim; ++comp)
+        {
+            double y5i = y5[comp][l];
+            double e = Math.abs(yLow[comp][l] - y5i) / ((1 + Math.abs(y5i)) * tol);
+            if (Double.isNaN(e))
+                return Double.POSITIVE_INFINITY;
+            err = Math.max(err, e);
+        }
+        return err;
+    }
+
+    private final double[][] A;
+    private final double[] b3;
+    private final double[] b4;
+    private final double[] b5;
+    private final double[] c;
+    private final int s;
+    private final boolean controlStep;
+    private final boolean fsal;
+    private final double maxStep;
+    private final PIController controller;
+    private BatchODE ode;
+    private double tol;
+    private int lanes, dim;
+    private int activeLanes;
+    private double[][][] k;
+    private double[][] y, yTmp, y3, y4, y5;
+    private double[] x, xTmp, h, errOld;
+    private boolean[] lastRejected, active, failed;
+    private int[] accepted, rejected;
+    private boolean firstStageKnown;
+    private int evaluations;
+    private final int maxRounds = 10000000;
+}
@@ -0,0 +1,282 @@
+package numerics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Solves f(x) = y for many target values y of a monotone function at once, e.g. to build
+ * a table of an inverse distribution function or of times of crossings.
+ * <p>
+ * Targets are sorted and the interval is divided recursively: the value in the middle of
+ * the interval splits the targets into the ones with roots to the left and to the right of
+ * it, so this single evaluation serves all targets of the interval. A target which is
+ * alone in its interval is finished by {@link Brent}'s method starting from the already
+ * known values at the ends. Both halves are independent and are processed concurrently by
+ * a fork/join pool, so the function is called from several threads at once and must be
+ * thread safe.
+ * <p>
+ * Every root is within the accuracy from the exact one. Targets which are not bracketed by
+ * the values at the ends of their interval get NaN.
+ * @author Grzegorz Los
+ */
+public class BatchSolver
+{
+    /**
+     * Creates the solver running on the common pool.
+     * @param f the function.
+     * @param eps accuracy of the roots.
+     */
+    public BatchSolver(Function f, double eps)
+    {
+        this(f, eps, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates the solver running on given pool, which is not shut down by the solver.
+     * @param f the function.
+     * @param eps accuracy of the roots.
+     * @param pool pool running the subproblems.
+     */
+    public BatchSolver(Function f, double eps, ForkJoinPool pool)
+    {
+        this.f = f;
+        this.eps = eps;
+        this.pool = pool;
+    }
+
+    /**
+     * Sets the accuracy of the roots found by the next calls of solve.
+     * @param eps accuracy of the roots.
+     */
+    public void setAccuracy(double eps)
+    {
+        this.eps = eps;
+    }
+
+    /**
+     * Solves f(x) = targets[j] in given interval for every j. The function must be
+     * monotone in the interval.
+     * @param i the interval.
+     * @param targets target values.
+     * @param roots receives the roots, NaN for targets which are not bracketed.
+     * @return the number of targets which are not bracketed.
+     */
+    public int solve(Interval i, double[] targets, double[] roots)
+    {
+        Interval[] intervals = new Interval[targets.length];
+        Arrays.fill(intervals, i);
+        return solve(intervals, targets, roots);
+    }
+
+    /**
+     * Solves f(x) = targets[j] in intervals[j] for every j. Targets whose intervals overlap
+     * share the evaluations, so the function must be monotone in the union of every chain
+     * of overlapping intervals; otherwise the intervals should be disjoint.
+     * @param intervals intervals of the targets.
+     * @param targets target values.
+     * @param roots receives the roots, NaN for targets which are not bracketed.
+     * @return the number of targets which are not bracketed.
+     */
+    public int solve(final Interval[] intervals, double[] targets, double[] roots)
+    {
+        if (intervals.length != targets.length || roots.length != targets.length)
+            throw new IllegalArgumentException("Arrays of intervals, targets and roots must "
+                    + "have equal lengths");
+        this.targets = targets;
+        this.roots = roots;
+        evaluations.set(0);
+        Integer[] byBeg = sortedIndices(new Comparator<Integer>() {
+            @Override public int compare(Integer j, Integer k) {
+                return Double.compare(intervals[j].beg, intervals[k].beg);
+            }
+        });
+        ArrayList<Range> tasks = new ArrayList<>();
+        int first = 0;
+        while (first < byBeg.length)
+        {
+            double beg = intervals[byBeg[first]].beg, end = intervals[byBeg[first]].end;
+            int last = first + 1;
+            while (last < byBeg.length && intervals[byBeg[last]].beg <= end)
+                end = Math.max(end, intervals[byBeg[last++]].end);
+            tasks.add(new Range(beg, end, Arrays.copyOfRange(byBeg, first, last)));
+            first = last;
+        }
+        for (Range task: tasks)
+            pool.execute(task);
+        for (Range task: tasks)
+            task.join();
+        int failed = 0;
+        for (int j = 0; j < roots.length; ++j)
+        {
+            double root = roots[j];
+            if (root < intervals[j].beg - eps || root > intervals[j].end + eps)
+                roots[j] = Double.NaN;
+            else if (!Double.isNaN(root))
+                roots[j] = Math.max(intervals[j].beg, Math.min(intervals[j].end, root));
+            if (Double.isNaN(roots[j]))
+                failed++;
+        }
+        return failed;
+    }
+
+    /**
+     * Returns the number of evaluations of the function made by the last call.
+     * @return the number of evaluations.
+     */
+    public int getEvaluations()
+    {
+        return evaluations.get();
+    }
+
+    /**
+     * Hull of a chain of overlapping intervals together with its targets, which it sorts
+     * and passes to the recursive division.
+     */
+    private class Range extends RecursiveAction
+    {
+        Range(double beg, double end, Integer[] indices)
+        {
+            this.beg = beg;
+            this.end = end;
+            this.indices = indices;
+        }
+
+        @Override
+        protected void compute()
+        {
+            Arrays.sort(indices, new Comparator<Integer>() {
+                @Override public int compare(Integer j, Integer k) {
+                    return Double.compare(targets[j], targets[k]);
+                }
+            });
+            int[] order = new int[indices.length];
+            for (int j = 0; j < order.length; ++j)
+                order[j] = indices[j];
+            double fBeg = eval(beg), fEnd = eval(end);
+            int from = 0, to = order.length;
+            double lo = Math.min(fBeg, fEnd), hi = Math.max(fBeg, fEnd);
+            // targets outside of the range of values are not bracketed; NaN sorts last
+            while (from < to && !(targets[order[from]] >= lo))
+                roots[order[from++]] = Double.NaN;
+            while (to > from && !(targets[order[to-1]] <= hi))
+                roots[order[--to]] = Double.NaN;
+            new Division(order, from, to, beg, fBeg, end, fEnd, fEnd >= fBeg).compute();
+        }
+
+        private static final long serialVersionUID = 1L;
+        private final double beg, end;
+        private final Integer[] indices;
+    }
+
+    /**
+     * Finds roots of the targets order[from], ..., order[to-1], sorted ascending, whose
+     * values lie between the values at the ends of [a, b].
+     */
+    private class Division extends RecursiveAction
+    {
+        Division(int[] order, int from, int to, double a, double fa, double b, double fb,
+                boolean increasing)
+        {
+            this.order = order;
+            this.from = from;
+            this.to = to;
+            this.a = a;
+            this.fa = fa;
+            this.b = b;
+            this.fb = fb;
+            this.increasing = increasing;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (from == to)
+                return;
+            if (to - from == 1)
+            {
+                refine(order[from]);
+                return;
+            }
+            double mid = 0.5 * (a + b);
+            if (b - a <= eps || mid <= a || mid >= b)
+            {
+                for (int j = from; j < to; ++j)
+                    roots[order[j]] = interpolate(targets[order[j]]);
+                return;
+            }
+            double fm = eval(mid);
+            // targets [from, lower) have roots left of mid, [upper, to) right of it
+            int lower = from;
+            while (lower < to && targets[order[lower]] < fm)
+                lower++;
+            int upper = lower;
+            while (upper < to && targets[order[upper]] == fm)
+                roots[order[upper++]] = mid;
+            Division left, right;
+            if (increasing)
+            {
+                left = new Division(order, from, lower, a, fa, mid, fm, true);
+                right = new Division(order, upper, to, mid, fm, b, fb, true);
+            }
+            else
+            {
+                left = new Division(order, upper, to, a, fa, mid, fm, false);
+                right = new Division(order, from, lower, mid, fm, b, fb, false);
+            }
+            invokeAll(left, right);
+        }
+
+        private void refine(int j)
+        {
+            Brent brent = new Brent(f, eps);
+            try {
+                roots[j] = brent.solve(a, fa, b, fb, targets[j]);
+            } catch (UnsatisfiedConditionsException ex) {
+                roots[j] = Double.NaN;
+            }
+            evaluations.addAndGet(brent.getEvaluations());
+        }
+
+        /**
+         * Returns the root of the secant through the ends for a target in a bracket not
+         * longer than the accuracy.
+         */
+        private double interpolate(double y)
+        {
+            if (fa == fb)
+                return a;
+            return Math.max(a, Math.min(b, a + (y - fa) * (b - a) / (fb - fa)));
+        }
+
+        private static final long serialVersionUID = 1L;
+        private final int[] order;
+        private final int from, to;
+        private final double a, fa, b, fb;
+        private final boolean increasing;
+    }
+
+    private double eval(double x)
+    {
+        evaluations.incrementAndGet();
+        return f.eval(x);
+    }
+
+    private Integer[] sortedIndices(Comparator<Integer> comparator)
+    {
+        Integer[] indices = new Integer[targets.length];
+        for (int j = 0; j < indices.length; ++j)
+            indices[j] = j;
+        Arrays.sort(indices, comparator);
+        return indices;
+    }
+
+    private final Function f;
+    private double eps;
+    private final ForkJoinPool pool;
+    private final AtomicInteger evaluations = new AtomicInteger();
+    private double[] targets, roots;
+}
@@ -1,11 +1,10 @@
-
 package numerics;
 
 /**
  *
  * @author Grzegorz Los
  */
-public class Bisection implements Solver
+public class Bisection extends BracketingSolver
 {
 
     public Bisection()
@@ -19,77 +18,42 @@ public class Bisection implements Solver
 
     public Bisection(Function f, double eps)
     {
-        this.f = f;
-        this.eps = eps;
-    }
-
-    @Override
-    public void setFunction(Function f)
-    {
-        this.f = f;
-    }
-
-    @Override
-    public double findRoot(Interval i) throws UnsatisfiedConditionsException
-    {
-        return solve(i, 0);
+        super(f, eps);
     }
 
     @Override
-    public double solve(Interval i, double y) throws UnsatisfiedConditionsException
+    double search(double a, double fa, double b, double fb)
     {
-        initAuxValues(i, y);
-        ensureSolveable();
+        leftEnd = a;
+        rightEnd = b;
+        leftVal = fa;
         runMainLoop();
         return leftEnd;
     }
 
-    private void initAuxValues(Interval i, double y)
-    {
-        leftEnd = i.beg;
-        rightEnd = i.end;
-        leftVal = f.eval(i.beg);
-        rightVal = f.eval(i.end);
-        targetVal = y;
-    }
-
-    private void ensureSolveable() throws UnsatisfiedConditionsException
-    {
-        if (sameSideOfTargetVal(leftVal, rightVal))
-            throw new UnsatisfiedConditionsException();
-    }
-    
-    @Override
-    public void setAccuracy(double eps)
-    {
-        this.eps = eps;
-    }
-
     private void runMainLoop()
     {
         while (rightEnd - leftEnd > eps)
         {
             double middle = (leftEnd + rightEnd) / 2;
-            middleVal = f.eval(middle);
-            if (sameSideOfTargetVal(leftVal, middleVal))
+            if (middle <= leftEnd || middle >= rightEnd)
+                break;
+            iterations++;
+            double middleVal = value(middle);
+            if (sameSide(leftVal, middleVal))
             {
                 leftEnd = middle;
                 leftVal = middleVal;
             }
             else
-            {
                 rightEnd = middle;
-                rightVal = middleVal;                
-            }          
         }
     }
 
-    private boolean sameSideOfTargetVal(double x, double y)
+    private boolean sameSide(double x, double y)
     {
-        return Math.signum(x - targetVal) == Math.signum(y - targetVal);
+        return Math.signum(x) == Math.signum(y);
     }
 
-    private Function f;
-    private double leftEnd, rightEnd, leftVal, rightVal, middleVal, targetVal;
-    private double eps = 1e-3;
+    private double leftEnd, rightEnd, leftVal;
 }
@@ -0,0 +1,138 @@
+package numerics;
+
+/**
+ * Base of the solvers which keep the root in a bracket, an interval at whose ends the
+ * function minus the target value has different signs. The bracket only shrinks, so a
+ * solver never leaves the interval it was given. The search stops when the bracket is not
+ * longer than the accuracy, so the returned argument is within the accuracy from a sign
+ * change, or when the target value is hit exactly.
+ * <p>
+ * Solvers count the iterations and the evaluations of the function of the last search,
+ * including the evaluations at the ends of the interval, which matters when every
+ * evaluation is expensive, e.g. is a whole integration of an ODE.
+ * @author Grzegorz Los
+ */
+public abstract class BracketingSolver implements Solver
+{
+    BracketingSolver()
+    {
+    }
+
+    BracketingSolver(Function f, double eps)
+    {
+        this.f = f;
+        this.eps = eps;
+    }
+
+    @Override
+    public void setFunction(Function f)
+    {
+        this.f = f;
+    }
+
+    @Override
+    public void setAccuracy(double eps)
+    {
+        this.eps = eps;
+    }
+
+    public double getAccuracy()
+    {
+        return eps;
+    }
+
+    @Override
+    public double findRoot(Interval i) throws UnsatisfiedConditionsException
+    {
+        return solve(i, 0);
+    }
+
+    @Override
+    public double solve(Interval i, double y) throws UnsatisfiedConditionsException
+    {
+        double fa = f.eval(i.beg);
+        double fb = f.eval(i.end);
+        double root = solve(i.beg, fa, i.end, fb, y);
+        evaluations += 2;
+        return root;
+    }
+
+    /**
+     * Solves f(x) = y in [a, b] when the values of the function at the ends are already
+     * known, e.g. from checking the bracket; they are not counted as evaluations.
+     * @param a beginning of the interval.
+     * @param fa value of the function at a.
+     * @param b end of the interval.
+     * @param fb value of the function at b.
+     * @param y target value.
+     * @return solution of f(x) = y.
+     * @throws UnsatisfiedConditionsException if the values at the ends are on the same
+     * side of the target.
+     */
+    public double solve(double a, double fa, double b, double fb, double y)
+            throws UnsatisfiedConditionsException
+    {
+        targetVal = y;
+        iterations = 0;
+        evaluations = 0;
+        fa -= y;
+        fb -= y;
+        if (fa == 0)
+            return a;
+        if (fb == 0)
+            return b;
+        if (!(fa < 0 && fb > 0) && !(fa > 0 && fb < 0))
+            throw new UnsatisfiedConditionsException("Values at the ends of [" + a + ", "
+                    + b + "] are on the same side of " + y);
+        return search(a, fa, b, fb);
+    }
+
+    /**
+     * Returns the number of iterations made by the last search, each of which evaluated
+     * the function at a new argument.
+     * @return the number of iterations.
+     */
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    /**
+     * Returns the number of evaluations of the function made by the last search.
+     * @return the number of evaluations.
+     */
+    public int getEvaluations()
+    {
+        return evaluations;
+    }
+
+    /**
+     * Finds the root in the bracket [a, b], at whose ends the values of the function
+     * minus the target have strictly different signs.
+     */
+    abstract double search(double a, double fa, double b, double fb);
+
+    /**
+     * Evaluates the function minus the target value, counting the evaluation.
+     */
+    double value(double x)
+    {
+        evaluations++;
+        return f.eval(x) - targetVal;
+    }
+
+    /**
+     * Returns the smallest distance from the ends of the bracket at which new arguments are
+     * placed, so that a bracket around the root is eventually not longer than the
+     * accuracy.
+     */
+    double margin(double a, double b)
+    {
+        return Math.max(0.5 * eps, 2 * Math.max(Math.ulp(a), Math.ulp(b)));
+    }
+
+    Function f;
+    double eps = 1e-3;
+    double targetVal;
+    int iterations, evaluations;
+}
@@ -0,0 +1,94 @@
+package numerics;
+
+/**
+ * Brent's method. It combines inverse quadratic interpolation and the secant method with
+ * bisection: an interpolated step is taken only when it stays inside the bracket and
+ * shrinks it fast enough, otherwise the bracket is halved. Convergence is superlinear
+ * for smooth functions and never much slower than bisection.
+ * @author Grzegorz Los
+ */
+public class Brent extends BracketingSolver
+{
+    public Brent()
+    {
+    }
+
+    public Brent(Function f)
+    {
+        this.f = f;
+    }
+
+    public Brent(Function f, double eps)
+    {
+        super(f, eps);
+    }
+
+    @Override
+    double search(double a, double fa, double b, double fb)
+    {
+        double c = a, fc = fa;
+        double d = b - a, e = d;
+        while (true)
+        {
+            if ((fb > 0 && fc > 0) || (fb < 0 && fc < 0))
+            {
+                c = a;
+                fc = fa;
+                d = b - a;
+                e = d;
+            }
+            if (Math.abs(fc) < Math.abs(fb))
+            {
+                a = b;
+                b = c;
+                c = a;
+                fa = fb;
+                fb = fc;
+                fc = fa;
+            }
+            double tol = margin(b, c);
+            double xm = 0.5 * (c - b);
+            if (Math.abs(xm) <= tol || fb == 0)
+                return b;
+            if (Math.abs(e) >= tol && Math.abs(fa) > Math.abs(fb))
+            {
+                double s = fb / fa, p, q;
+                if (a == c)
+                {
+                    p = 2 * xm * s;
+                    q = 1 - s;
+                }
+                else
+                {
+                    double r = fb / fc;
+                    q = fa / fc;
+                    p = s * (2 * xm * q * (q - r) - (b - a) * (r - 1));
+                    q = (q - 1) * (r - 1) * (s - 1);
+                }
+                if (p > 0)
+                    q = -q;
+                p = Math.abs(p);
+                if (2 * p < Math.min(3 * xm * q - Math.abs(tol * q), Math.abs(e * q)))
+                {
+                    e = d;
+                    d = p / q;
+                }
+                else
+                {
+                    d = xm;
+                    e = d;
+                }
+            }
+            else
+            {
+                d = xm;
+                e = d;
+            }
+            a = b;
+            fa = fb;
+            b += Math.abs(d) > tol ? d : Math.copySign(tol, xm);
+            iterations++;
+            fb = value(b);
+        }
+    }
+}
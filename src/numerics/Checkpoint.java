@@ -0,0 +1,278 @@
+package numerics;
+
+import arenstorf.PeriodEndInfo;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import math.matrices.Vector;
+
+/**
+ * Complete state of a {@link RungeKutta} run between two steps: the state, the tolerance,
+ * the size of the next step, the state of the step size controller, the first stage of the next step if it
+ * is already known, the counters, the period end infos and the trajectory stored so far.
+ * A run resumed from a checkpoint gives bit-for-bit the same results as the original one.
+ * <p>
+ * In a file the checkpoint is kept in big-endian binary form; the trajectory goes to a
+ * companion file with suffix {@code .trajectory}, to which later checkpoints of the same
+ * run only append new steps. The state is written to a temporary file which then replaces
+ * the old one, so a crash during writing leaves the previous checkpoint intact.
+ * @author Grzegorz Los
+ */
+public final class Checkpoint
+{
+    Checkpoint(int dim)
+    {
+        y = new double[dim];
+    }
+
+    public double getX()
+    {
+        return x;
+    }
+
+    public Vector getY()
+    {
+        return new Vector(y);
+    }
+
+    public int getAcceptedSteps()
+    {
+        return accepted;
+    }
+
+    /**
+     * Returns the tolerance of the run, which must be used to resume it.
+     * @return the tolerance.
+     */
+    public double getTolerance()
+    {
+        return tol;
+    }
+
+    /**
+     * Writes the checkpoint, including the whole stored trajectory, to given file.
+     * @param file the file.
+     * @throws IOException when writing fails.
+     */
+    public void write(File file) throws IOException
+    {
+        Writer writer = new Writer(file);
+        writer.write(this);
+    }
+
+    /**
+     * Reads the checkpoint written to given file.
+     * @param file the file.
+     * @return the checkpoint.
+     * @throws IOException when reading fails or the file is not a checkpoint.
+     */
+    public static Checkpoint read(File file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file))))
+        {
+            if (in.readInt() != magic || in.readInt() != version)
+                throw new IOException(file + " is not a checkpoint");
+            int dim = in.readInt();
+            Checkpoint cp = new Checkpoint(dim);
+            cp.x = in.readDouble();
+            cp.tol = in.readDouble();
+            cp.h = in.readDouble();
+            cp.errOld = in.readDouble();
+            cp.lastRejected = in.readBoolean();
+            cp.periodNr = in.readInt();
+            cp.next = in.readInt();
+            cp.accepted = in.readInt();
+            cp.rejected = in.readInt();
+            cp.evaluations = in.readInt();
+            readArray(in, cp.y);
+            if (in.readBoolean())
+                cp.firstStage = readArray(in, new double[dim]);
+            cp.gPrev = readArray(in, new double[in.readInt()]);
+            int peiCount = in.readInt();
+            cp.pei = new ArrayList<>(peiCount);
+            for (int i = 0; i < peiCount; ++i)
+            {
+                double px = in.readDouble();
+                cp.pei.add(new PeriodEndInfo(px, new Vector(readArray(in, new double[dim]))));
+            }
+            if (in.readBoolean())
+            {
+                boolean dense = in.readBoolean();
+                int degree = in.readInt();
+                cp.trajectorySize = in.readInt();
+                cp.trajectory = readTrajectory(trajectoryFile(file), dim, dense, degree,
+                        cp.trajectorySize);
+            }
+            return cp;
+        }
+    }
+
+    /**
+     * Writes checkpoints of a single run to a file, appending to the trajectory file only
+     * the steps which were not written yet.
+     */
+    static class Writer
+    {
+        Writer(File file)
+        {
+            this.file = file;
+        }
+
+        void write(Checkpoint cp) throws IOException
+        {
+            if (cp.trajectory != null)
+                writeTrajectory(cp);
+            File tmp = new File(file.getPath() + ".tmp");
+            FileOutputStream fos = new FileOutputStream(tmp);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos)))
+            {
+                writeState(cp, out);
+                out.flush();
+                fos.getFD().sync();
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private void writeTrajectory(Checkpoint cp) throws IOException
+        {
+            Trajectory t = cp.trajectory;
+            int dim = t.getDimension(), degree = t.getDegree();
+            int rowBytes = 8 * (2 + dim + dim * degree);
+            if (t != written)
+            {
+                written = t;
+                writtenSize = 0;
+            }
+            double[] y = new double[dim], dense = new double[dim * degree];
+            try (RandomAccessFile raf = new RandomAccessFile(trajectoryFile(file), "rw"))
+            {
+                raf.setLength((long) writtenSize * rowBytes);
+            }
+            FileOutputStream fos = new FileOutputStream(trajectoryFile(file), true);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos)))
+            {
+                for (int step = writtenSize; step < cp.trajectorySize; ++step)
+                {
+                    out.writeDouble(t.getX(step));
+                    out.writeDouble(t.getH(step));
+                    t.copyY(step, y);
+                    writeArray(out, y);
+                    if (degree > 0)
+                    {
+                        t.copyDense(step, dense);
+                        writeArray(out, dense);
+                    }
+                }
+                out.flush();
+                fos.getFD().sync();
+            }
+            writtenSize = cp.trajectorySize;
+        }
+
+        private final File file;
+        private Trajectory written;
+        private int writtenSize;
+    }
+
+    private static void writeState(Checkpoint cp, DataOutputStream out) throws IOException
+    {
+        out.writeInt(magic);
+        out.writeInt(version);
+        out.writeInt(cp.y.length);
+        out.writeDouble(cp.x);
+        out.writeDouble(cp.tol);
+        out.writeDouble(cp.h);
+        out.writeDouble(cp.errOld);
+        out.writeBoolean(cp.lastRejected);
+        out.writeInt(cp.periodNr);
+        out.writeInt(cp.next);
+        out.writeInt(cp.accepted);
+        out.writeInt(cp.rejected);
+        out.writeInt(cp.evaluations);
+        writeArray(out, cp.y);
+        out.writeBoolean(cp.firstStage != null);
+        if (cp.firstStage != null)
+            writeArray(out, cp.firstStage);
+        out.writeInt(cp.gPrev.length);
+        writeArray(out, cp.gPrev);
+        out.writeInt(cp.pei.size());
+        double[] py = new double[cp.y.length];
+        for (PeriodEndInfo info: cp.pei)
+        {
+            out.writeDouble(info.x);
+            for (int i = 0; i < py.length; ++i)
+                py[i] = info.y.get(i+1);
+            writeArray(out, py);
+        }
+        out.writeBoolean(cp.trajectory != null);
+        if (cp.trajectory != null)
+        {
+            out.writeBoolean(cp.trajectory.isDense());
+            out.writeInt(cp.trajectory.getDegree());
+            out.writeInt(cp.trajectorySize);
+        }
+    }
+
+    private static Trajectory readTrajectory(File file, int dim, boolean dense, int degree,
+            int size) throws IOException
+    {
+        Trajectory t = new Trajectory(dim, dense);
+        double[] y = new double[dim], coefficients = new double[dim * degree];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file))))
+        {
+            for (int step = 0; step < size; ++step)
+            {
+                double x = in.readDouble();
+                double h = in.readDouble();
+                readArray(in, y);
+                if (degree > 0)
+                    t.append(x, h, y, readArray(in, coefficients));
+                else
+                    t.append(x, h, y);
+            }
+        }
+        return t;
+    }
+
+    private static File trajectoryFile(File file)
+    {
+        return new File(file.getPath() + ".trajectory");
+    }
+
+    private static void writeArray(DataOutputStream out, double[] a) throws IOException
+    {
+        for (double v: a)
+            out.writeDouble(v);
+    }
+
+    private static double[] readArray(DataInputStream in, double[] a) throws IOException
+    {
+        for (int i = 0; i < a.length; ++i)
+            a[i] = in.readDouble();
+        return a;
+    }
+
+    private static final int magic = 0x4d5a5043;
+    private static final int version = 2;
+    final double[] y;
+    double x, tol, h, errOld;
+    boolean lastRejected;
+    int periodNr, next, accepted, rejected, evaluations;
+    double[] firstStage;
+    double[] gPrev;
+    ArrayList<PeriodEndInfo> pei;
+    Trajectory trajectory;
+    int trajectorySize;
+}
@@ -0,0 +1,502 @@
+package numerics;
+
+import java.util.ArrayList;
+
+/**
+ * Solves boundary value problems by collocation with the three-stage Lobatto IIIA method,
+ * as bvp4c does. On every interval of the mesh the solution is the cubic Hermite
+ * interpolant of the values and derivatives at its ends, which satisfies the equation at
+ * both ends and in the middle; that is the Simpson equation
+ * y[i+1] - y[i] = h/6 (f[i] + 4 f(x[i] + h/2, y[i+1/2]) + f[i+1]), with
+ * y[i+1/2] = (y[i] + y[i+1])/2 - h/8 (f[i+1] - f[i]). The values at all mesh points are
+ * found at once, so there is no integration from one end which could blow up with the
+ * growing modes of the equation.
+ * <p>
+ * The collocation equations of an interval involve only the values at its ends and the
+ * boundary conditions are separated, so ordering the left conditions first and the right
+ * ones last makes the Jacobian a band matrix, assembled from the blocks of the intervals
+ * and decomposed by {@link BandedLU} in time linear in the number of mesh points. The
+ * equations are solved by Newton's method damped by the natural monotonicity test, which
+ * reuses the decomposition. The Jacobian of the right hand side is approximated by
+ * forward differences.
+ * <p>
+ * The mesh is then adapted by the residual of the interpolant, y' - f(x, y), relative to
+ * max(|f|, 1) and sampled at the inner nodes of the five-point Lobatto rule: intervals
+ * where it exceeds the tolerance are divided into two parts, or into three if it exceeds
+ * the tolerance a hundredfold, and pairs of neighbouring intervals where it is a hundred
+ * times below the tolerance are merged. The solution is returned as a dense
+ * {@link Trajectory} of the mesh whose continuous extensions are the interpolants.
+ * @author Grzegorz Los
+ */
+public class Collocation
+{
+    /**
+     * Sets the largest number of mesh points; it is 10000 by default.
+     * @param maxPoints number of mesh points.
+     */
+    public void setMaxPoints(int maxPoints)
+    {
+        if (maxPoints < 2)
+            throw new IllegalArgumentException("Mesh must have at least two points, maxPoints = "
+                    + maxPoints);
+        this.maxPoints = maxPoints;
+    }
+
+    /**
+     * Solves the problem starting from given mesh and initial guess.
+     * @param bvp the problem.
+     * @param tol tolerance of the relative residual.
+     * @param mesh increasing points from bvp.a to bvp.b.
+     * @param guess guesses of the states at the mesh points.
+     * @return the solution.
+     */
+    public Trajectory solve(BVP bvp, double tol, double[] mesh, double[][] guess)
+    {
+        if (mesh.length < 2 || mesh[0] != bvp.a || mesh[mesh.length-1] != bvp.b)
+            throw new IllegalArgumentException("Mesh must have at least two points and span ["
+                    + bvp.a + ", " + bvp.b + "]");
+        if (guess.length != mesh.length)
+            throw new IllegalArgumentException("There must be a guess for every mesh point");
+        this.bvp = bvp;
+        dim = bvp.dim;
+        x = mesh.clone();
+        y = new double[mesh.length][];
+        for (int i = 0; i < mesh.length; ++i)
+        {
+            if (i > 0 && !(mesh[i] > mesh[i-1]))
+                throw new IllegalArgumentException("Mesh is not increasing at " + mesh[i]);
+            y[i] = guess[i].clone();
+        }
+        iterations = 0;
+        evaluations = 0;
+        meshes = 0;
+        while (true)
+        {
+            meshes++;
+            allocate();
+            newton(tol);
+            double[] est = estimateResiduals();
+            maxResidual = 0;
+            for (double r: est)
+                maxResidual = Math.max(maxResidual, r);
+            if (maxResidual <= tol)
+                break;
+            adaptMesh(est, tol);
+        }
+        return makeTrajectory();
+    }
+
+    /**
+     * Solves the problem starting from a known trajectory, e.g. the solution of a similar
+     * problem, whose steps become the initial mesh.
+     * @param bvp the problem.
+     * @param tol tolerance of the relative residual.
+     * @param guess trajectory spanning [bvp.a, bvp.b].
+     * @return the solution.
+     */
+    public Trajectory solve(BVP bvp, double tol, Trajectory guess)
+    {
+        ArrayList<Integer> steps = new ArrayList<>();
+        for (int i = 0; i < guess.getSize(); ++i)
+            if (steps.isEmpty() || guess.getX(i) > guess.getX(steps.get(steps.size() - 1)))
+                steps.add(i);
+        double[] mesh = new double[steps.size()];
+        double[][] states = new double[steps.size()][guess.getDimension()];
+        for (int i = 0; i < mesh.length; ++i)
+        {
+            mesh[i] = guess.getX(steps.get(i));
+            guess.copyY(steps.get(i), states[i]);
+        }
+        return solve(bvp, tol, mesh, states);
+    }
+
+    /**
+     * Returns the number of Newton iterations, on all meshes, of the last solution.
+     */
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    /**
+     * Returns the number of evaluations of the right hand side during the last solution,
+     * including the ones spent on approximating the Jacobians.
+     */
+    public int getEvaluations()
+    {
+        return evaluations;
+    }
+
+    /**
+     * Returns the number of meshes on which the collocation equations were solved.
+     */
+    public int getMeshes()
+    {
+        return meshes;
+    }
+
+    /**
+     * Returns the largest relative residual on the final mesh.
+     */
+    public double getMaxResidual()
+    {
+        return maxResidual;
+    }
+
+    private void allocate()
+    {
+        int m = x.length;
+        fy = new double[m][dim];
+        ym = new double[m-1][dim];
+        fm = new double[m-1][dim];
+        lu = new BandedLU(m * dim, bvp.left + dim - 1, 2 * dim - 1 - bvp.left);
+    }
+
+    /**
+     * Solves the collocation equations on the current mesh, starting from the current
+     * states, and leaves the derivatives at the mesh points and in the middles of the
+     * intervals computed for the solution.
+     */
+    private void newton(double tol)
+    {
+        int size = x.length * dim;
+        double newtonTol = 0.01 * tol;
+        double[] r = new double[size], rTrial = new double[size];
+        double[][] trial = new double[x.length][dim];
+        residual(y, r);
+        for (int iter = 0; iter < maxIterations; ++iter)
+        {
+            iterations++;
+            assemble();
+            if (!lu.decompose())
+                throw new RuntimeException("Singular Jacobian of the collocation equations on a mesh of "
+                        + x.length + " points");
+            double[] delta = new double[size];
+            for (int j = 0; j < size; ++j)
+                delta[j] = -r[j];
+            lu.solve(delta);
+            double norm = norm(delta, y);
+            if (norm <= newtonTol)
+            {
+                add(y, 1, delta, y);
+                residual(y, r);
+                return;
+            }
+            double lambda = 1, normBar;
+            double[] bar = new double[size];
+            while (true)
+            {
+                add(y, lambda, delta, trial);
+                residual(trial, rTrial);
+                for (int j = 0; j < size; ++j)
+                    bar[j] = -rTrial[j];
+                lu.solve(bar);
+                normBar = norm(bar, trial);
+                if (normBar <= (1 - lambda / 4) * norm)
+                    break;
+                lambda /= 2;
+                if (lambda < minLambda)
+                    throw new RuntimeException("Newton iteration does not converge on a mesh of "
+                            + x.length + " points");
+            }
+            double[][] ty = y;
+            y = trial;
+            trial = ty;
+            double[] tr = r;
+            r = rTrial;
+            rTrial = tr;
+            if (lambda == 1 && normBar <= newtonTol)
+            {
+                add(y, 1, bar, y);
+                residual(y, r);
+                return;
+            }
+        }
+        throw new RuntimeException("Newton iteration does not converge on a mesh of "
+                + x.length + " points");
+    }
+
+    /**
+     * Computes the residuals of the boundary conditions and the collocation equations for
+     * given states, together with the derivatives they need.
+     */
+    private void residual(double[][] s, double[] r)
+    {
+        int n = x.length - 1, left = bvp.left;
+        for (int i = 0; i <= n; ++i)
+            evalF(x[i], s[i], fy[i]);
+        if (left > 0)
+        {
+            double[] res = new double[left];
+            bvp.leftConditions(s[0], res);
+            System.arraycopy(res, 0, r, 0, left);
+        }
+        for (int i = 0; i < n; ++i)
+        {
+            double h = x[i+1] - x[i];
+            for (int k = 0; k < dim; ++k)
+                ym[i][k] = 0.5 * (s[i][k] + s[i+1][k]) - h / 8 * (fy[i+1][k] - fy[i][k]);
+            evalF(x[i] + 0.5 * h, ym[i], fm[i]);
+            int row = left + i * dim;
+            for (int k = 0; k < dim; ++k)
+                r[row + k] = s[i+1][k] - s[i][k]
+                        - h / 6 * (fy[i][k] + 4 * fm[i][k] + fy[i+1][k]);
+        }
+        if (left < dim)
+        {
+            double[] res = new double[dim - left];
+            bvp.rightConditions(s[n], res);
+            System.arraycopy(res, 0, r, left + n * dim, dim - left);
+        }
+    }
+
+    /**
+     * Fills the band matrix with the Jacobian of the residuals at the current states. The
+     * block of interval i with respect to y[i] is
+     * -I - h/6 J[i] - h/3 Jm - h^2/12 Jm J[i], and with respect to y[i+1] it is
+     * I - h/6 J[i+1] - h/3 Jm + h^2/12 Jm J[i+1], where Jm is the Jacobian at the middle.
+     */
+    private void assemble()
+    {
+        int n = x.length - 1, left = bvp.left;
+        lu.clear();
+        double[][] jCur = new double[dim][dim], jNext = new double[dim][dim];
+        double[][] jMid = new double[dim][dim];
+        jacobian(x[0], y[0], fy[0], jCur);
+        for (int i = 0; i < n; ++i)
+        {
+            double h = x[i+1] - x[i];
+            jacobian(x[i+1], y[i+1], fy[i+1], jNext);
+            jacobian(x[i] + 0.5 * h, ym[i], fm[i], jMid);
+            int row = left + i * dim, col = i * dim;
+            for (int k = 0; k < dim; ++k)
+            {
+                for (int j = 0; j < dim; ++j)
+                {
+                    double prodCur = 0, prodNext = 0;
+                    for (int l = 0; l < dim; ++l)
+                    {
+                        prodCur += jMid[k][l] * jCur[l][j];
+                        prodNext += jMid[k][l] * jNext[l][j];
+                    }
+                    double id = k == j ? 1 : 0;
+                    lu.set(row + k, col + j,
+                            -id - h / 6 * jCur[k][j] - h / 3 * jMid[k][j] - h * h / 12 * prodCur);
+                    lu.set(row + k, col + dim + j,
+                            id - h / 6 * jNext[k][j] - h / 3 * jMid[k][j] + h * h / 12 * prodNext);
+                }
+            }
+            double[][] t = jCur;
+            jCur = jNext;
+            jNext = t;
+        }
+        if (left > 0)
+            conditionsJacobian(true, y[0], 0, 0);
+        if (left < dim)
+            conditionsJacobian(false, y[n], left + n * dim, n * dim);
+    }
+
+    /**
+     * Approximates the Jacobian of the right hand side at (x, s) by forward differences.
+     * @param fs value of the right hand side at (x, s).
+     */
+    private void jacobian(double x, double[] s, double[] fs, double[][] dest)
+    {
+        double[] sTmp = s.clone(), fTmp = new double[dim];
+        for (int j = 0; j < dim; ++j)
+        {
+            double delta = Math.sqrt(Math.ulp(1.0)) * Math.max(1, Math.abs(s[j]));
+            sTmp[j] = s[j] + delta;
+            delta = sTmp[j] - s[j];
+            evalF(x, sTmp, fTmp);
+            for (int i = 0; i < dim; ++i)
+                dest[i][j] = (fTmp[i] - fs[i]) / delta;
+            sTmp[j] = s[j];
+        }
+    }
+
+    /**
+     * Approximates the Jacobian of the conditions at one end by forward differences and
+     * puts it into the band matrix.
+     */
+    private void conditionsJacobian(boolean atLeft, double[] s, int row, int col)
+    {
+        int count = atLeft ? bvp.left : dim - bvp.left;
+        double[] res = new double[count], resTmp = new double[count], sTmp = s.clone();
+        conditions(atLeft, s, res);
+        for (int j = 0; j < dim; ++j)
+        {
+            double delta = Math.sqrt(Math.ulp(1.0)) * Math.max(1, Math.abs(s[j]));
+            sTmp[j] = s[j] + delta;
+            delta = sTmp[j] - s[j];
+            conditions(atLeft, sTmp, resTmp);
+            for (int i = 0; i < count; ++i)
+                lu.set(row + i, col + j, (resTmp[i] - res[i]) / delta);
+            sTmp[j] = s[j];
+        }
+    }
+
+    private void conditions(boolean atLeft, double[] s, double[] res)
+    {
+        if (atLeft)
+            bvp.leftConditions(s, res);
+        else
+            bvp.rightConditions(s, res);
+    }
+
+    /**
+     * Returns the largest relative residual of the interpolant on every interval.
+     */
+    private double[] estimateResiduals()
+    {
+        int n = x.length - 1;
+        double[] est = new double[n];
+        double[] s = new double[dim], ds = new double[dim], fs = new double[dim];
+        double[] coefficients = new double[3 * dim];
+        for (int i = 0; i < n; ++i)
+        {
+            double h = x[i+1] - x[i];
+            hermite(i, coefficients);
+            for (double theta: lobattoNodes)
+            {
+                for (int k = 0; k < dim; ++k)
+                {
+                    double c1 = coefficients[3*k], c2 = coefficients[3*k + 1],
+                            c3 = coefficients[3*k + 2];
+                    s[k] = y[i][k] + h * theta * (c1 + theta * (c2 + theta * c3));
+                    ds[k] = c1 + theta * (2 * c2 + theta * 3 * c3);
+                }
+                evalF(x[i] + theta * h, s, fs);
+                for (int k = 0; k < dim; ++k)
+                    est[i] = Math.max(est[i], Math.abs(ds[k] - fs[k]) / Math.max(Math.abs(fs[k]), 1));
+            }
+        }
+        return est;
+    }
+
+    /**
+     * Computes the coefficients of the cubic interpolant on interval i in the layout of
+     * the continuous extensions of {@link Trajectory}: the state at x[i] + theta h is
+     * y[i] + h (c1 theta + c2 theta^2 + c3 theta^3).
+     */
+    private void hermite(int i, double[] coefficients)
+    {
+        double h = x[i+1] - x[i];
+        for (int k = 0; k < dim; ++k)
+        {
+            double slope = (y[i+1][k] - y[i][k]) / h;
+            coefficients[3*k] = fy[i][k];
+            coefficients[3*k + 1] = 3 * slope - 2 * fy[i][k] - fy[i+1][k];
+            coefficients[3*k + 2] = -2 * slope + fy[i][k] + fy[i+1][k];
+        }
+    }
+
+    /**
+     * Builds the next mesh from the residuals, with the states at new points taken from
+     * the interpolants.
+     */
+    private void adaptMesh(double[] est, double tol)
+    {
+        int n = x.length - 1;
+        ArrayList<Double> xs = new ArrayList<>();
+        ArrayList<double[]> ys = new ArrayList<>();
+        double[] coefficients = new double[3 * dim];
+        xs.add(x[0]);
+        ys.add(y[0]);
+        int i = 0;
+        while (i < n)
+        {
+            if (i + 1 < n && est[i] <= tol / 100 && est[i+1] <= tol / 100)
+            {
+                xs.add(x[i+2]);
+                ys.add(y[i+2]);
+                i += 2;
+                continue;
+            }
+            if (est[i] > tol)
+            {
+                int parts = est[i] > 100 * tol ? 3 : 2;
+                double h = x[i+1] - x[i];
+                hermite(i, coefficients);
+                for (int j = 1; j < parts; ++j)
+                {
+                    double theta = (double) j / parts;
+                    double[] s = new double[dim];
+                    for (int k = 0; k < dim; ++k)
+                        s[k] = y[i][k] + h * theta * (coefficients[3*k]
+                                + theta * (coefficients[3*k + 1] + theta * coefficients[3*k + 2]));
+                    xs.add(x[i] + theta * h);
+                    ys.add(s);
+                }
+            }
+            xs.add(x[i+1]);
+            ys.add(y[i+1]);
+            i++;
+        }
+        if (xs.size() > maxPoints)
+            throw new RuntimeException("Collocation needs more than " + maxPoints
+                    + " mesh points, largest residual = " + maxResidual);
+        x = new double[xs.size()];
+        y = new double[xs.size()][];
+        for (int j = 0; j < x.length; ++j)
+        {
+            x[j] = xs.get(j);
+            y[j] = ys.get(j);
+        }
+    }
+
+    private Trajectory makeTrajectory()
+    {
+        Trajectory res = new Trajectory(dim, true);
+        double[] coefficients = new double[3 * dim];
+        res.append(x[0], 0, y[0]);
+        for (int i = 0; i + 1 < x.length; ++i)
+        {
+            hermite(i, coefficients);
+            res.append(x[i+1], x[i+1] - x[i], y[i+1], coefficients);
+        }
+        return res;
+    }
+
+    /**
+     * Returns the maximum norm of v weighted by 1 + |s|, component by component.
+     */
+    private double norm(double[] v, double[][] s)
+    {
+        double res = 0;
+        for (int i = 0; i < s.length; ++i)
+            for (int k = 0; k < dim; ++k)
+                res = Math.max(res, Math.abs(v[i*dim + k]) / (1 + Math.abs(s[i][k])));
+        return res;
+    }
+
+    /**
+     * Computes dest = s + lambda v; dest may be s.
+     */
+    private void add(double[][] s, double lambda, double[] v, double[][] dest)
+    {
+        for (int i = 0; i < s.length; ++i)
+            for (int k = 0; k < dim; ++k)
+                dest[i][k] = s[i][k] + lambda * v[i*dim + k];
+    }
+
+    private void evalF(double x, double[] s, double[] dydx)
+    {
+        evaluations++;
+        bvp.f(x, s, dydx);
+    }
+
+    private BVP bvp;
+    private int dim;
+    private double[] x;
+    private double[][] y, fy, ym, fm;
+    private BandedLU lu;
+    private int maxPoints = 10000;
+    private int iterations, evaluations, meshes;
+    private double maxResidual;
+    private static final int maxIterations = 40;
+    private static final double minLambda = 1.0 / 1024;
+    private static final double[] lobattoNodes = {
+        0.5 - Math.sqrt(21) / 14, 0.5 + Math.sqrt(21) / 14
+    };
+}
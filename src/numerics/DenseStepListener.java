@@ -0,0 +1,14 @@
+package numerics;
+
+/**
+ * Step listener which also wants the continuous extension of accepted steps.
+ * @author Grzegorz Los
+ */
+public interface DenseStepListener extends StepListener
+{
+    /**
+     * Called after every accepted step, just before {@link #stepAccepted}.
+     * @param interpolant continuous extension of the step; valid only during this call.
+     */
+    public void denseStep(StepInterpolant interpolant);
+}
@@ -0,0 +1,10 @@
+package numerics;
+
+/**
+ * Function which also provides its derivative.
+ * @author Grzegorz Los
+ */
+public interface DifferentiableFunction extends Function
+{
+    public double derivative(double x);
+}
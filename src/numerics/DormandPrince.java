@@ -8,15 +8,17 @@ import math.matrices.Vector;
  *
  * @author Grzegorz Los
  */
-public class DormandPrince
+public class DormandPrince implements EmbeddedMethod
 {
+    @Override
     public RungeKutta getMethod()
     {
         Matrix A = makeA();
         Vector b4 = makeB4();
         Vector b5 = makeB5();
         Vector c = makeC();
-        return new RungeKutta(A, b4, b5, c, true);
+        Matrix dense = makeDenseOutput();
+        return new RungeKutta(A, b4, b5, c, dense, true);
     }
 
     private Matrix makeA()
@@ -57,4 +59,22 @@ public class DormandPrince
         return new Vector(vec);
     }
 
+    /**
+     * Coefficients of the fourth order continuous extension (Hairer, Norsett, Wanner),
+     * in powers of theta starting from theta^1.
+     */
+    private Matrix makeDenseOutput()
+    {
+        double[][] mat = new double[][] {
+            {1, -8048581381.0/2820520608.0, 8663915743.0/2820520608.0, -12715105075.0/11282082432.0},
+            {0, 0, 0, 0},
+            {0, 131558114200.0/32700410799.0, -68118460800.0/10900136933.0, 87487479700.0/32700410799.0},
+            {0, -1754552775.0/470086768.0, 14199869525.0/1410260304.0, -10690763975.0/1880347072.0},
+            {0, 127303824393.0/49829197408.0, -318862633887.0/49829197408.0, 701980252875.0/199316789632.0},
+            {0, -282668133.0/205662961.0, 2019193451.0/616988883.0, -1453857185.0/822651844.0},
+            {0, 40617522.0/29380423.0, -110615467.0/29380423.0, 69997945.0/29380423.0},
+        };
+        return new Matrix(mat);
+    }
+
 }
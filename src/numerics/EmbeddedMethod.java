@@ -0,0 +1,10 @@
+package numerics;
+
+/**
+ * Source of configured Runge-Kutta solvers, one per call.
+ * @author Grzegorz Los
+ */
+public interface EmbeddedMethod
+{
+    public RungeKutta getMethod();
+}
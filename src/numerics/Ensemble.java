@@ -0,0 +1,143 @@
+package numerics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Integrates many independent problems concurrently, e.g. a model for a sweep of parameters.
+ * Every worker thread keeps its own solver, so workspaces are reused between problems
+ * and, as the threads of the pool outlive a call, between calls of solve. Results are
+ * returned in the order of the problems. A failure or a timeout of one
+ * integration does not affect the others.
+ * @author Grzegorz Los
+ */
+public class Ensemble
+{
+    /**
+     * Creates ensemble running on the common pool.
+     * @param method source of solvers.
+     * @param tol tolerance of the local error.
+     */
+    public Ensemble(EmbeddedMethod method, double tol)
+    {
+        this(method, tol, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates ensemble running on given executor, which is not shut down by the ensemble.
+     * @param method source of solvers.
+     * @param tol tolerance of the local error.
+     * @param executor executor running the integrations.
+     */
+    public Ensemble(final EmbeddedMethod method, double tol, ExecutorService executor)
+    {
+        this.tol = tol;
+        this.executor = executor;
+        solvers = new ThreadLocal<RungeKutta>() {
+            @Override protected RungeKutta initialValue() {
+                return method.getMethod();
+            }
+        };
+    }
+
+    /**
+     * Sets the limit of the time of every single integration. It is checked after every
+     * accepted step and before every retry of a rejected one.
+     * @param timeout the limit.
+     * @param unit unit of the limit.
+     */
+    public void setTimeout(long timeout, TimeUnit unit)
+    {
+        timeoutNanos = unit.toNanos(timeout);
+    }
+
+    public EnsembleResult[] solve(final List<ODE> odes)
+    {
+        return solve(new ODEFactory() {
+            @Override public ODE make(int index) {
+                return odes.get(index);
+            }
+        }, odes.size());
+    }
+
+    public EnsembleResult[] solve(final ODEFactory factory, int count)
+    {
+        ArrayList<Callable<EnsembleResult>> jobs = new ArrayList<>();
+        for (int i = 0; i < count; ++i)
+        {
+            final int index = i;
+            jobs.add(new Callable<EnsembleResult>() {
+                @Override public EnsembleResult call() {
+                    try {
+                        return integrate(factory.make(index));
+                    } catch (RuntimeException ex) {
+                        return new EnsembleResult(ex);
+                    }
+                }
+            });
+        }
+        return run(jobs);
+    }
+
+    private EnsembleResult integrate(ODE ode)
+    {
+        RungeKutta rk = solvers.get();
+        final long deadline = System.nanoTime() + timeoutNanos;
+        if (timeoutNanos > 0)
+            rk.setDeadline(deadline);
+        else
+            rk.clearDeadline();
+        final boolean[] timedOut = new boolean[1];
+        rk.solve(ode, tol, new StepListener() {
+            @Override public boolean stepAccepted(double x, double h, StateView y) {
+                if (Thread.currentThread().isInterrupted()
+                        || (timeoutNanos > 0 && System.nanoTime() - deadline > 0))
+                {
+                    timedOut[0] = true;
+                    return false;
+                }
+                return true;
+            }
+        });
+        if (timedOut[0] || rk.isPastDeadline())
+            return new EnsembleResult(rk, new TimeoutException("Integration stopped at x = "
+                    + rk.getLastX()));
+        return new EnsembleResult(rk, null);
+    }
+
+    private EnsembleResult[] run(List<Callable<EnsembleResult>> jobs)
+    {
+        ArrayList<Future<EnsembleResult>> futures = new ArrayList<>();
+        for (Callable<EnsembleResult> job: jobs)
+            futures.add(executor.submit(job));
+        EnsembleResult[] results = new EnsembleResult[futures.size()];
+        for (int i = 0; i < results.length; ++i)
+            results[i] = getResult(futures.get(i));
+        return results;
+    }
+
+    private EnsembleResult getResult(Future<EnsembleResult> future)
+    {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            return new EnsembleResult(ex.getCause());
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return new EnsembleResult(ex);
+        }
+    }
+
+    private final double tol;
+    private final ExecutorService executor;
+    private final ThreadLocal<RungeKutta> solvers;
+    private long timeoutNanos;
+}
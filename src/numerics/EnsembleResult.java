@@ -0,0 +1,50 @@
+package numerics;
+
+import arenstorf.PeriodEndInfo;
+import java.util.ArrayList;
+import math.matrices.Vector;
+
+/**
+ * Outcome of a single integration of an {@link Ensemble}. For failed integrations the
+ * failure is set. After a timeout the remaining fields describe the state reached so far;
+ * after other failures they are NaN, zero or null.
+ * @author Grzegorz Los
+ */
+public class EnsembleResult
+{
+
+    EnsembleResult(RungeKutta rk, Throwable failure)
+    {
+        this.x = rk.getLastX();
+        this.y = rk.getLastY();
+        this.acceptedSteps = rk.getAcceptedSteps();
+        this.rejectedSteps = rk.getRejectedSteps();
+        this.evaluations = rk.getEvaluations();
+        this.periodEndInfos = rk.getPeriodEndInfos();
+        this.failure = failure;
+    }
+
+    EnsembleResult(Throwable failure)
+    {
+        this.x = Double.NaN;
+        this.y = null;
+        this.acceptedSteps = 0;
+        this.rejectedSteps = 0;
+        this.evaluations = 0;
+        this.periodEndInfos = null;
+        this.failure = failure;
+    }
+
+    public boolean isSuccessful()
+    {
+        return failure == null;
+    }
+
+    public final double x;
+    public final Vector y;
+    public final int acceptedSteps;
+    public final int rejectedSteps;
+    public final int evaluations;
+    public final ArrayList<PeriodEndInfo> periodEndInfos;
+    public final Throwable failure;
+}
@@ -0,0 +1,41 @@
+package numerics;
+
+/**
+ * Condition monitored during integration. The event occurs where g(x, y) changes its sign
+ * in the chosen direction. Terminal events stop the integration at the point where they
+ * occur.
+ * @author Grzegorz Los
+ */
+public abstract class Event
+{
+    public enum Direction
+    {
+        Both, Rising, Falling
+    }
+
+    public Event(Direction direction, boolean terminal)
+    {
+        this.direction = direction;
+        this.terminal = terminal;
+    }
+
+    abstract public double g(double x, StateView y);
+
+    boolean occurs(double gPrev, double gNew)
+    {
+        boolean rising = gPrev < 0 && gNew >= 0;
+        boolean falling = gPrev > 0 && gNew <= 0;
+        switch (direction)
+        {
+            case Rising:
+                return rising;
+            case Falling:
+                return falling;
+            default:
+                return rising || falling;
+        }
+    }
+
+    public final Direction direction;
+    public final boolean terminal;
+}
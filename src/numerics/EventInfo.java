@@ -0,0 +1,21 @@
+package numerics;
+
+import math.matrices.Vector;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class EventInfo
+{
+
+    public EventInfo(Event event, double x, Vector y)
+    {
+        this.event = event;
+        this.x = x;
+        this.y = y;
+    }
+    public final Event event;
+    public final double x;
+    public final Vector y;
+}
@@ -0,0 +1,380 @@
+package numerics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import math.matrices.Vector;
+
+/**
+ * Gragg-Bulirsch-Stoer extrapolation method with order and step size control in the
+ * spirit of ODEX by Hairer and Wanner. A step of size H is computed by the explicit
+ * midpoint rule with n_j = 2j substeps for j = 1, ..., k, and the results are
+ * extrapolated to substep 0 by the Aitken-Neville scheme in h^2, which gives a solution of
+ * order 2k. The difference of the last two extrapolated values estimates the error; the
+ * number of lines k is chosen after every step so as to minimise the work per unit step.
+ * <p>
+ * The midpoint sequences of a step do not depend on each other, so they can be computed
+ * concurrently when {@link #setParallel(boolean)} turns it on. They are paired, the
+ * shortest with the longest, so that all tasks need the same number of evaluations. A
+ * line costs only a few evaluations of the right hand side, so this pays off only when
+ * they are expensive; for cheap ones, like the Arenstorf orbit, the dispatch of the tasks
+ * in every step costs more than it saves, so the lines are computed sequentially by
+ * default. In parallel mode the right hand side is called from several threads at once,
+ * so it must be thread safe.
+ * @author Grzegorz Los
+ */
+public class GraggBulirschStoer implements Integrator
+{
+    /**
+     * Creates the solver which, in parallel mode, uses its own pool, with one thread per
+     * available processor, during every run.
+     */
+    public GraggBulirschStoer()
+    {
+        this(null);
+    }
+
+    /**
+     * Creates the solver running the midpoint sequences on given executor, which is not
+     * shut down by the solver.
+     * @param executor executor running the midpoint sequences.
+     */
+    public GraggBulirschStoer(ExecutorService executor)
+    {
+        this.executor = executor;
+    }
+
+    @Override
+    public void solve(ODE ode, double tol)
+    {
+        trajectory = new Trajectory(ode.y0.getSize());
+        run(ode, tol, trajectory);
+    }
+
+    @Override
+    public void solve(ODE ode, double tol, StepListener listener)
+    {
+        trajectory = null;
+        run(ode, tol, listener);
+    }
+
+    /**
+     * Decides whether midpoint sequences are computed concurrently. It is off by default,
+     * as it pays off only for expensive right hand sides.
+     * @param parallel whether midpoint sequences are computed concurrently.
+     */
+    public void setParallel(boolean parallel)
+    {
+        this.parallel = parallel;
+    }
+
+    @Override
+    public void setMaxStep(double maxStep)
+    {
+        if (maxStep <= 0)
+            throw new IllegalArgumentException("Maximal step must be positive, maxStep = " + maxStep);
+        this.maxStep = maxStep;
+    }
+
+    @Override
+    public Trajectory getTrajectory()
+    {
+        if (trajectory == null)
+            throw new IllegalStateException("Trajectory was not stored during the last run");
+        return trajectory;
+    }
+
+    @Override
+    public double getLastX()
+    {
+        return x;
+    }
+
+    @Override
+    public Vector getLastY()
+    {
+        return state.toVector();
+    }
+
+    @Override
+    public int getAcceptedSteps()
+    {
+        return accepted;
+    }
+
+    @Override
+    public int getRejectedSteps()
+    {
+        return rejected;
+    }
+
+    @Override
+    public int getEvaluations()
+    {
+        return evaluations;
+    }
+
+    /**
+     * Returns the number of midpoint sequences which will be used in the next step; the
+     * order of the method is twice as large.
+     * @return the number of midpoint sequences.
+     */
+    public int getLines()
+    {
+        return k;
+    }
+
+    private void run(ODE ode, double tol, StepListener listener)
+    {
+        this.ode = ode;
+        this.tol = tol;
+        ensureWorkspace(ode.y0.getSize());
+        x = ode.x0;
+        for (int i = 0; i < dim; ++i)
+            y[i] = ode.y0.get(i+1);
+        accepted = 0;
+        rejected = 0;
+        evaluations = 0;
+        lastRejected = false;
+        k = Math.max(minLines, Math.min(maxLines - 1, (int) (-0.6 * Math.log10(tol) + 1.5)));
+        h = 1.0/512;
+        ExecutorService ex = !parallel ? null : executor != null ? executor
+                : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            if (!listener.stepAccepted(x, 0, state))
+                return;
+            for (int i = 0; i < maxSteps && x < ode.xn; ++i)
+            {
+                double hDone = step(ex);
+                accepted++;
+                if (!listener.stepAccepted(x, hDone, state))
+                    return;
+            }
+        } finally {
+            if (ex != null && executor == null)
+                ex.shutdownNow();
+        }
+    }
+
+    private void ensureWorkspace(int dim)
+    {
+        if (T != null && this.dim == dim)
+            return;
+        this.dim = dim;
+        y = new double[dim];
+        state = new StateView(y);
+        f0 = new double[dim];
+        T = new double[maxLines][dim];
+        zPrev = new double[maxLines][dim];
+        fLine = new double[maxLines][dim];
+    }
+
+    /**
+     * Performs one accepted step, updating x and y, and chooses the number of lines and
+     * the size of the next step.
+     * @return size of the step.
+     */
+    private double step(ExecutorService ex)
+    {
+        evaluations++;
+        ode.f(x, y, f0);
+        while (true)
+        {
+            h = Math.min(h, Math.min(maxStep, ode.xn - x));
+            if (h <= 16 * Math.ulp(x))
+                throw new RuntimeException("Step size too small at x = " + x + ", h = " + h);
+            computeLines(ex);
+            extrapolate();
+            if (err[k] <= 1)
+            {
+                double xNew = h >= ode.xn - x ? ode.xn : x + h;
+                double hDone = xNew - x;
+                x = xNew;
+                System.arraycopy(T[0], 0, y, 0, dim);
+                chooseNext();
+                lastRejected = false;
+                return hDone;
+            }
+            rejected++;
+            lastRejected = true;
+            if (k > minLines && work(k-1) < 0.9 * work(k))
+                k--;
+            h = Math.min(optimalStep(k), 0.9 * h);
+        }
+    }
+
+    /**
+     * Computes the midpoint sequences of lines 1 to k into T, in tasks pairing line j
+     * with line k + 1 - j.
+     */
+    private void computeLines(ExecutorService ex)
+    {
+        ArrayList<Callable<Integer>> tasks = new ArrayList<>();
+        for (int j = 0; j < (k + 1) / 2; ++j)
+        {
+            final int first = j, second = k - 1 - j;
+            tasks.add(new Callable<Integer>() {
+                @Override public Integer call() {
+                    int evals = midpoint(first);
+                    if (second != first)
+                        evals += midpoint(second);
+                    return evals;
+                }
+            });
+        }
+        try {
+            if (ex == null)
+                for (Callable<Integer> task: tasks)
+                    evaluations += task.call();
+            else
+            {
+                List<Future<Integer>> futures = ex.invokeAll(tasks);
+                for (Future<Integer> future: futures)
+                    evaluations += future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Integration interrupted at x = " + x, e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Midpoint sequence failed at x = " + x, e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Performs n = 2 (line + 1) steps of the explicit midpoint rule over the current step,
+     * leaving the result in T[line]. Only the workspace of the line is touched.
+     * @return number of evaluations of the right hand side.
+     */
+    private int midpoint(int line)
+    {
+        int n = 2 * (line + 1);
+        double hs = h / n;
+        double[] z = T[line], zOld = zPrev[line], f = fLine[line];
+        for (int i = 0; i < dim; ++i)
+        {
+            zOld[i] = y[i];
+            z[i] = y[i] + hs * f0[i];
+        }
+        for (int m = 1; m < n; ++m)
+        {
+            ode.f(x + m * hs, z, f);
+            for (int i = 0; i < dim; ++i)
+            {
+                double zNew = zOld[i] + 2 * hs * f[i];
+                zOld[i] = z[i];
+                z[i] = zNew;
+            }
+        }
+        return n - 1;
+    }
+
+    /**
+     * Extrapolates the lines in place, so that T[0] becomes the value of the highest order
+     * and err[j] the error estimate of the extrapolation from j lines.
+     */
+    private void extrapolate()
+    {
+        for (int j = 1; j < k; ++j)
+        {
+            for (int l = j; l >= 1; --l)
+            {
+                double ratio = (double) (j + 1) / l;
+                double fac = ratio * ratio - 1;
+                double[] tl = T[l], tPrev = T[l-1];
+                for (int i = 0; i < dim; ++i)
+                    tPrev[i] = tl[i] + (tl[i] - tPrev[i]) / fac;
+            }
+            err[j+1] = errorNorm(T[0], T[1]);
+        }
+    }
+
+    /**
+     * Returns the maximum over components of the difference divided by its tolerance,
+     * which is (1 + |y|) * tol.
+     */
+    private double errorNorm(double[] high, double[] low)
+    {
+        double res = 0;
+        for (int i = 0; i < dim; ++i)
+        {
+            double e = Math.abs(high[i] - low[i]) / ((1 + Math.abs(high[i])) * tol);
+            if (Double.isNaN(e))
+                return Double.POSITIVE_INFINITY;
+            res = Math.max(res, e);
+        }
+        return res;
+    }
+
+    private void chooseNext()
+    {
+        int kNew = k;
+        if (k > minLines && work(k-1) < 0.9 * work(k))
+            kNew = k - 1;
+        else if (k < maxLines && !lastRejected && (k == minLines || work(k) < 0.9 * work(k-1)))
+            kNew = k + 1;
+        double hNew = kNew == k + 1 ? optimalStep(k) * cost(k + 1) / cost(k)
+                : optimalStep(kNew);
+        if (lastRejected)
+            hNew = Math.min(hNew, h);
+        k = kNew;
+        h = hNew;
+    }
+
+    /**
+     * Returns the step size for which the extrapolation from j lines would meet the
+     * tolerance, according to the last error estimate.
+     */
+    private double optimalStep(int j)
+    {
+        double fac = safety * Math.pow(errTarget / err[j], 1.0 / (2 * j - 1));
+        return h * Math.max(minFactor, Math.min(maxFactor, fac));
+    }
+
+    /**
+     * Returns the number of evaluations of the right hand side per unit step when j lines
+     * are used.
+     */
+    private double work(int j)
+    {
+        return cost(j) / optimalStep(j);
+    }
+
+    /**
+     * Returns the number of evaluations of the right hand side needed by j lines.
+     */
+    private static int cost(int j)
+    {
+        return 1 + j * j;
+    }
+
+    private final ExecutorService executor;
+    private boolean parallel = false;
+    private ODE ode;
+    private double tol;
+    private int dim;
+    private double x, h;
+    private int k;
+    private boolean lastRejected;
+    private double[] y, f0;
+    private double[][] T, zPrev, fLine;
+    private final double[] err = new double[maxLines + 1];
+    private StateView state;
+    private Trajectory trajectory;
+    private double maxStep = Double.POSITIVE_INFINITY;
+    private int accepted, rejected, evaluations;
+    private static final int minLines = 2;
+    private static final int maxLines = 9;
+    private static final double safety = 0.94;
+    private static final double errTarget = 0.65;
+    private static final double minFactor = 0.02;
+    private static final double maxFactor = 4;
+    private final int maxSteps = 10000000;
+}
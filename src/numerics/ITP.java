@@ -0,0 +1,70 @@
+package numerics;
+
+/**
+ * ITP method (interpolate, truncate, project) of Oliveira and Takahashi. The regula falsi
+ * point is moved towards the middle of the bracket by a truncation and then projected into
+ * a neighbourhood of the middle, whose radius is chosen so that the bracket is never
+ * longer than the one of bisection after the same number of iterations plus one. The
+ * method keeps the worst case of bisection and converges superlinearly for smooth
+ * functions.
+ * @author Grzegorz Los
+ */
+public class ITP extends BracketingSolver
+{
+    public ITP()
+    {
+    }
+
+    public ITP(Function f)
+    {
+        this.f = f;
+    }
+
+    public ITP(Function f, double eps)
+    {
+        super(f, eps);
+    }
+
+    @Override
+    double search(double a, double fa, double b, double fb)
+    {
+        double sign = fb > 0 ? 1 : -1;
+        fa *= sign;
+        fb *= sign;
+        double halfEps = 0.5 * eps;
+        double k1 = 0.2 / (b - a);
+        int nMax = (int) Math.ceil(Math.log((b - a) / eps) / Math.log(2)) + slack;
+        for (int j = 0; b - a > eps; ++j)
+        {
+            double mid = 0.5 * (a + b);
+            if (mid <= a || mid >= b)
+                break;
+            double r = Math.max(0, halfEps * Math.pow(2, nMax - j) - 0.5 * (b - a));
+            double delta = k1 * (b - a) * (b - a);
+            double xf = (fb * a - fa * b) / (fb - fa);
+            double sigma = Math.signum(mid - xf);
+            double xt = delta <= Math.abs(mid - xf) ? xf + sigma * delta : mid;
+            double x = Math.abs(xt - mid) <= r ? xt : mid - sigma * r;
+            iterations++;
+            double fx = sign * value(x);
+            if (fx > 0)
+            {
+                b = x;
+                fb = fx;
+            }
+            else if (fx < 0)
+            {
+                a = x;
+                fa = fx;
+            }
+            else
+                return x;
+        }
+        return -fa < fb ? a : b;
+    }
+
+    /**
+     * Number of iterations over the ones of bisection which may be spent on interpolation.
+     */
+    private static final int slack = 1;
+}
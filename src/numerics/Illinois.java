@@ -0,0 +1,72 @@
+package numerics;
+
+/**
+ * Illinois variant of regula falsi. The new argument is the root of the secant through
+ * the ends of the bracket; when the same end is kept twice in a row, the value remembered
+ * at it is halved, which prevents the plain regula falsi from getting stuck at one end.
+ * Convergence is superlinear, of order about 1.44, for simple roots; when the bracket has
+ * not halved in two iterations, e.g. at a multiple root, it is bisected instead.
+ * @author Grzegorz Los
+ */
+public class Illinois extends BracketingSolver
+{
+    public Illinois()
+    {
+    }
+
+    public Illinois(Function f)
+    {
+        this.f = f;
+    }
+
+    public Illinois(Function f, double eps)
+    {
+        super(f, eps);
+    }
+
+    @Override
+    double search(double a, double fa, double b, double fb)
+    {
+        int side = 0;
+        double[] widths = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, b - a};
+        while (b - a > eps)
+        {
+            double delta = margin(a, b);
+            if (b - a <= 2 * delta)
+                return 0.5 * (a + b);
+            double x;
+            if (b - a > 0.5 * widths[0])
+            {
+                x = 0.5 * (a + b);
+                side = 0;
+            }
+            else
+                x = b - fb * (b - a) / (fb - fa);
+            x = Math.max(a + delta, Math.min(b - delta, x));
+            iterations++;
+            double fx = value(x);
+            if (fx == 0)
+                return x;
+            if ((fx > 0) == (fb > 0))
+            {
+                b = x;
+                fb = fx;
+                if (side == -1)
+                    fa /= 2;
+                side = -1;
+            }
+            else
+            {
+                a = x;
+                fa = fx;
+                if (side == 1)
+                    fb /= 2;
+                side = 1;
+            }
+            widths[0] = widths[1];
+            widths[1] = widths[2];
+            widths[2] = b - a;
+        }
+        return Math.abs(fa) < Math.abs(fb) ? a : b;
+    }
+}
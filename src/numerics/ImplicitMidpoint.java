@@ -0,0 +1,97 @@
+package numerics;
+
+/**
+ * Implicit midpoint rule y1 = y0 + h f(x0 + h/2, (y0 + y1)/2), a fixed step symplectic
+ * method of order 2 for Hamiltonian systems which are not separable, e.g. with
+ * Coriolis or magnetic terms. It also conserves quadratic invariants exactly.
+ * <p>
+ * The midpoint is found by simplified Newton iteration with the matrix I - h/2 J, which
+ * is kept across steps; the tolerance passed to the solve methods is the accuracy of
+ * this iteration. Steps have the size set by {@link #setMaxStep(double)}, which must be
+ * called before solving; only the last one may be shorter, to end at the end of the
+ * interval.
+ * @author Grzegorz Los
+ */
+public class ImplicitMidpoint extends StiffIntegrator
+{
+    @Override
+    void allocate(int dim)
+    {
+        z = new double[dim];
+        f = new double[dim];
+        rhs = new double[dim];
+        dz = new double[dim];
+    }
+
+    @Override
+    void start()
+    {
+        if (Double.isInfinite(maxStep))
+            throw new IllegalStateException("Step size of the implicit midpoint rule is not set");
+        evalF(x, y, f);
+        updateJacobian(x, y, f);
+        luH = Double.NaN;
+    }
+
+    @Override
+    double step()
+    {
+        double h = limitStep(maxStep);
+        // a remainder of rounding errors in x would be too small a step of its own
+        if (ode.xn - x - h <= 16 * Math.ulp(ode.xn))
+            h = ode.xn - x;
+        ensureStepOK(h);
+        if (lu == null || h != luH)
+        {
+            if (!factorize(0.5 * h))
+                throw new RuntimeException("Singular iteration matrix at x = " + x);
+            luH = h;
+        }
+        double xMid = x + 0.5 * h;
+        if (!solveMidpoint(xMid, h))
+        {
+            evalF(x, y, f);
+            updateJacobian(x, y, f);
+            if (!factorize(0.5 * h) || !solveMidpoint(xMid, h))
+                throw new RuntimeException("Implicit midpoint iteration does not converge at x = " + x);
+            luH = h;
+        }
+        double xNew = h >= ode.xn - x ? ode.xn : x + h;
+        for (int i = 0; i < dim; ++i)
+            y[i] = 2 * z[i] - y[i];
+        x = xNew;
+        return h;
+    }
+
+    /**
+     * Solves z = y + h/2 f(xMid, z), starting from the Euler prediction with the last
+     * computed derivative.
+     * @return false if the iteration does not converge.
+     */
+    private boolean solveMidpoint(double xMid, double h)
+    {
+        for (int i = 0; i < dim; ++i)
+            z[i] = y[i] + 0.5 * h * f[i];
+        double normOld = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < maxIterations; ++k)
+        {
+            evalF(xMid, z, f);
+            for (int i = 0; i < dim; ++i)
+                rhs[i] = y[i] + 0.5 * h * f[i] - z[i];
+            lu.solve(rhs, dz);
+            double dzNorm = norm(dz, z);
+            if (dzNorm >= normOld)
+                return false;
+            for (int i = 0; i < dim; ++i)
+                z[i] += dz[i];
+            if (dzNorm <= 1)
+                return true;
+            normOld = dzNorm;
+        }
+        return false;
+    }
+
+    private final int maxIterations = 10;
+    private double luH;
+    private double[] z, f, rhs, dz;
+}
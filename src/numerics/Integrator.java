@@ -0,0 +1,40 @@
+package numerics;
+
+import math.matrices.Vector;
+
+/**
+ * Common contract of the engines solving an {@link ODE}, so that a model can switch
+ * between explicit and implicit methods by changing the line creating its engine.
+ * @author Grzegorz Los
+ */
+public interface Integrator
+{
+    /**
+     * Solves given ODE, keeping every accepted step in the trajectory.
+     * @param ode the problem.
+     * @param tol tolerance of the local error.
+     */
+    public void solve(ODE ode, double tol);
+
+    /**
+     * Solves given ODE, passing accepted steps to the listener without storing them.
+     * @param ode the problem.
+     * @param tol tolerance of the local error.
+     * @param listener receives the initial state and every accepted step.
+     */
+    public void solve(ODE ode, double tol, StepListener listener);
+
+    public void setMaxStep(double maxStep);
+
+    public Trajectory getTrajectory();
+
+    public double getLastX();
+
+    public Vector getLastY();
+
+    public int getAcceptedSteps();
+
+    public int getRejectedSteps();
+
+    public int getEvaluations();
+}
@@ -0,0 +1,77 @@
+package numerics;
+
+import math.matrices.DimensionException;
+import math.matrices.Matrix;
+import math.matrices.Vector;
+
+/**
+ * Linear ODE y' = A y with a constant matrix A. Its solution is
+ * y(x) = exp(A (x - x0)) y0, so {@link Propagator} advances it exactly by a single product
+ * with exp(A h) per step and {@link #solveAt(double)} jumps straight to any argument; the
+ * exponential is computed by {@link Matrix#exp()}. Other integrators solve it as any ODE.
+ * @author Grzegorz Los
+ */
+public class LinearODE extends ArrayODE
+{
+    /**
+     * @param x0 initial argument.
+     * @param xn final argument.
+     * @param y0 initial state.
+     * @param period period of the solution, if any.
+     * @param a square matrix of the system, of the size of the state; it is copied.
+     */
+    public LinearODE(double x0, double xn, Vector y0, double period, Matrix a)
+    {
+        super(x0, xn, y0, period);
+        if (!a.isSquare() || a.getRows() != y0.getSize())
+            throw new DimensionException("Matrix of size " + a.getRows() + "x" + a.getCols()
+                    + " does not match the state of size " + y0.getSize());
+        this.a = new Matrix(a);
+        n = a.getRows();
+        coefficients = new double[n][n];
+        for (int i = 0; i < n; ++i)
+            for (int j = 0; j < n; ++j)
+                coefficients[i][j] = a.get(i+1, j+1);
+    }
+
+    @Override
+    public void f(double x, double[] y, double[] dydx)
+    {
+        for (int i = 0; i < n; ++i)
+        {
+            double sum = 0;
+            for (int j = 0; j < n; ++j)
+                sum += coefficients[i][j] * y[j];
+            dydx[i] = sum;
+        }
+    }
+
+    public Matrix getMatrix()
+    {
+        return new Matrix(a);
+    }
+
+    /**
+     * Returns the propagator exp(A h), which maps the state at any x to the state at x + h.
+     * @param h length of the step, may be negative.
+     * @return the propagator.
+     */
+    public Matrix propagator(double h)
+    {
+        return a.times(h).exp();
+    }
+
+    /**
+     * Computes the exact solution at given argument.
+     * @param x the argument.
+     * @return the state at x.
+     */
+    public Vector solveAt(double x)
+    {
+        return propagator(x - x0).mult(y0);
+    }
+
+    private final Matrix a;
+    private final int n;
+    private final double[][] coefficients;
+}
@@ -0,0 +1,200 @@
+package numerics;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/**
+ * Trajectory kept in a memory-mapped file instead of the heap, so its size is limited only
+ * by the disk. The file starts with a header of 64 bytes: magic number, version, dimension,
+ * degree of the continuous extension and the number of steps per block as ints, and the
+ * number of stored steps as a long at offset 24. Blocks of at most 2^14 steps and 64 MB
+ * follow; every block holds the columns of x, h, the components of the state and the
+ * coefficients of the continuous extension, one after another, so scans of a column read
+ * contiguous memory. All values are little-endian doubles.
+ * <p>
+ * The number of steps in the header is updated with every appended step, so a finished
+ * trajectory may be reopened by {@link #open(File)}. Data is written to disk by the
+ * operating system; {@link #close()} forces it.
+ * @author Grzegorz Los
+ */
+public class MappedTrajectory extends Trajectory implements Closeable
+{
+    private MappedTrajectory(RandomAccessFile file, int dim, int degree, int blockBits)
+            throws IOException
+    {
+        super(dim, degree);
+        this.file = file;
+        this.blockBits = blockBits;
+        blockSize = 1 << blockBits;
+        blockMask = blockSize - 1;
+        channel = file.getChannel();
+        blockBytes = (long) (2 + dim + dim * degree) * blockSize * 8;
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerBytes);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Creates empty trajectory in given file, replacing its content.
+     * @param file the file.
+     * @param dim dimension of the state.
+     * @param degree degree of the stored continuous extensions, 0 if they are not stored.
+     * @return the trajectory.
+     * @throws IOException when the file cannot be created.
+     */
+    public static MappedTrajectory create(File file, int dim, int degree) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(0);
+        int blockBits = maxBlockBits;
+        while (blockBits > 0 && (long) (2 + dim + dim * degree) << (blockBits + 3) > maxBlockBytes)
+            blockBits--;
+        MappedTrajectory t = new MappedTrajectory(raf, dim, degree, blockBits);
+        t.header.putInt(0, magic);
+        t.header.putInt(4, version);
+        t.header.putInt(8, dim);
+        t.header.putInt(12, degree);
+        t.header.putInt(16, t.blockSize);
+        t.header.putLong(24, 0);
+        return t;
+    }
+
+    /**
+     * Opens trajectory written before, e.g. by an earlier run. Steps may still be appended.
+     * @param file the file.
+     * @return the trajectory.
+     * @throws IOException when the file cannot be read or is not a trajectory.
+     */
+    public static MappedTrajectory open(File file) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        ByteBuffer head = ByteBuffer.allocate(headerBytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (raf.getChannel().read(head, 0) != headerBytes || head.getInt(0) != magic
+                || head.getInt(4) != version || Integer.bitCount(head.getInt(16)) != 1)
+        {
+            raf.close();
+            throw new IOException(file + " is not a trajectory");
+        }
+        MappedTrajectory t = new MappedTrajectory(raf, head.getInt(8), head.getInt(12),
+                Integer.numberOfTrailingZeros(head.getInt(16)));
+        long size = head.getLong(24);
+        for (long step = 0; step < size; step += t.blockSize)
+            t.mapBlock();
+        t.setStoredSize((int) size);
+        return t;
+    }
+
+    @Override
+    public void append(double x, double h, double[] y)
+    {
+        super.append(x, h, y);
+        header.putLong(24, getSize());
+    }
+
+    /**
+     * Writes the data to the disk and releases the file. The trajectory may not be used
+     * afterwards.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        header.force();
+        for (MappedByteBuffer b: mapped)
+            b.force();
+        blocks.clear();
+        mapped.clear();
+        channel.close();
+        file.close();
+    }
+
+    @Override
+    void store(int step, double x, double h, double[] y)
+    {
+        int offset = step & blockMask;
+        if (offset == 0 && (step >>> blockBits) == blocks.size())
+        {
+            try {
+                mapBlock();
+            } catch (IOException ex) {
+                throw new RuntimeException("Trajectory file could not be extended", ex);
+            }
+        }
+        DoubleBuffer block = blocks.get(step >>> blockBits);
+        block.put(X_COL * blockSize + offset, x);
+        block.put(H_COL * blockSize + offset, h);
+        for (int i = 0; i < y.length; ++i)
+            block.put((Y_COL + i) * blockSize + offset, y[i]);
+    }
+
+    @Override
+    void storeDense(int step, double[] coefficients)
+    {
+        DoubleBuffer block = blocks.get(step >>> blockBits);
+        int first = (Y_COL + getDimension()) * blockSize + (step & blockMask);
+        for (int j = 0; j < coefficients.length; ++j)
+            block.put(first + j * blockSize, coefficients[j]);
+    }
+
+    @Override
+    double getStored(int step, int col)
+    {
+        return blocks.get(step >>> blockBits).get(col * blockSize + (step & blockMask));
+    }
+
+    @Override
+    double getDense(int step, int j)
+    {
+        int col = Y_COL + getDimension() + j;
+        return blocks.get(step >>> blockBits).get(col * blockSize + (step & blockMask));
+    }
+
+    @Override
+    void dropSteps(int size)
+    {
+        header.putLong(24, size);
+    }
+
+    @Override
+    void copyStored(int col, int from, double[] dest)
+    {
+        int copied = 0;
+        while (copied < dest.length)
+        {
+            int step = from + copied;
+            int offset = step & blockMask;
+            int len = Math.min(blockSize - offset, dest.length - copied);
+            DoubleBuffer block = blocks.get(step >>> blockBits).duplicate();
+            block.position(col * blockSize + offset);
+            block.get(dest, copied, len);
+            copied += len;
+        }
+    }
+
+    private void mapBlock() throws IOException
+    {
+        long position = headerBytes + blocks.size() * blockBytes;
+        MappedByteBuffer b = channel.map(FileChannel.MapMode.READ_WRITE, position, blockBytes);
+        mapped.add(b);
+        blocks.add(b.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer());
+    }
+
+    private static final int magic = 0x4d5a5054;
+    private static final int version = 1;
+    private static final int headerBytes = 64;
+    private static final int maxBlockBits = 14;
+    private static final long maxBlockBytes = 1 << 26;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int blockBits, blockSize, blockMask;
+    private final long blockBytes;
+    private final MappedByteBuffer header;
+    private final ArrayList<MappedByteBuffer> mapped = new ArrayList<>();
+    private final ArrayList<DoubleBuffer> blocks = new ArrayList<>();
+}
@@ -0,0 +1,85 @@
+package numerics;
+
+/**
+ * Newton's method safeguarded by bisection. A Newton step is taken when it stays inside
+ * the bracket and at least halves the previous step, otherwise the bracket is halved, so
+ * the method never diverges. The derivative is taken from the function if it is a
+ * {@link DifferentiableFunction}; for other functions the slope of the secant through the
+ * last two arguments is used instead. Evaluations of the derivative are not counted.
+ * @author Grzegorz Los
+ */
+public class Newton extends BracketingSolver
+{
+    public Newton()
+    {
+    }
+
+    public Newton(Function f)
+    {
+        this.f = f;
+    }
+
+    public Newton(Function f, double eps)
+    {
+        super(f, eps);
+    }
+
+    @Override
+    double search(double a, double fa, double b, double fb)
+    {
+        if (fa > 0)
+        {
+            double tmp = a;
+            a = b;
+            b = tmp;
+            fa = fb;
+        }
+        // now f(a) < 0 < f(b), but a may be the right end
+        double x = 0.5 * (a + b);
+        double xOld = a, fOld = fa;
+        iterations++;
+        double fx = value(x);
+        double dxOld = Math.abs(b - a), dx = dxOld;
+        while (fx != 0)
+        {
+            if (fx < 0)
+                a = x;
+            else
+                b = x;
+            double lo = Math.min(a, b), hi = Math.max(a, b);
+            if (hi - lo <= eps)
+                break;
+            double slope = slope(x, fx, xOld, fOld);
+            double step = fx / slope;
+            double xNew = x - step;
+            if (!(xNew > lo && xNew < hi) || Math.abs(2 * step) > Math.abs(dxOld))
+            {
+                dxOld = dx;
+                xNew = 0.5 * (lo + hi);
+                dx = xNew - x;
+            }
+            else
+            {
+                dxOld = dx;
+                dx = step;
+            }
+            double delta = margin(lo, hi);
+            if (hi - lo <= 2 * delta)
+                return 0.5 * (lo + hi);
+            xNew = Math.max(lo + delta, Math.min(hi - delta, xNew));
+            xOld = x;
+            fOld = fx;
+            x = xNew;
+            iterations++;
+            fx = value(x);
+        }
+        return x;
+    }
+
+    private double slope(double x, double fx, double xOld, double fOld)
+    {
+        if (f instanceof DifferentiableFunction)
+            return ((DifferentiableFunction) f).derivative(x);
+        return (fx - fOld) / (x - xOld);
+    }
+}
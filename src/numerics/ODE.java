@@ -1,4 +1,3 @@
-
 package numerics;
 
 import math.matrices.Vector;
@@ -18,6 +17,22 @@ public abstract class ODE
         this.period = period;
     }
     abstract public Vector f(double x, Vector y);
+
+    /**
+     * Computes the right hand side in place; this is the form called by the solvers. By
+     * default it delegates to {@link #f(double, Vector)}. Models which want to avoid
+     * allocation should override it, or extend {@link ArrayODE}.
+     * @param x the argument.
+     * @param y the state, 0-based.
+     * @param dydx array receiving the derivative.
+     */
+    public void f(double x, double[] y, double[] dydx)
+    {
+        Vector res = f(x, new Vector(y));
+        for (int i = 0; i < dydx.length; ++i)
+            dydx[i] = res.get(i+1);
+    }
+
     public final Vector y0;
     public final double x0;
     public final double xn;
@@ -0,0 +1,10 @@
+package numerics;
+
+/**
+ * Makes members of a family of problems, e.g. the same model with different parameters.
+ * @author Grzegorz Los
+ */
+public interface ODEFactory
+{
+    public ODE make(int index);
+}
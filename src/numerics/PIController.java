@@ -0,0 +1,54 @@
+package numerics;
+
+/**
+ * Gustafsson's PI step size control with safety factor and limits of the change of the
+ * step. Errors are normalised, so that a step is acceptable iff its error is at most 1.
+ * @author Grzegorz Los
+ */
+class PIController
+{
+    /**
+     * Creates controller for an error estimate of given order.
+     * @param errorOrder order of the lower order solution of the embedded pair.
+     */
+    PIController(int errorOrder)
+    {
+        alpha = 1.0 / (errorOrder + 1) - 0.75 * beta;
+    }
+
+    /**
+     * Returns the factor by which h should be divided after an accepted step; the step
+     * grows at most maxFactor times, and does not grow right after a rejection.
+     */
+    double acceptedFactor(double err, double errOld, boolean lastRejected)
+    {
+        double fac = Math.pow(err, alpha) / Math.pow(errOld, beta) / safety;
+        fac = Math.max(1 / maxFactor, Math.min(1 / minFactor, fac));
+        if (lastRejected)
+            fac = Math.max(1, fac);
+        return fac;
+    }
+
+    /**
+     * Returns the factor by which h should be divided after a rejected step.
+     */
+    double rejectedFactor(double err)
+    {
+        return Math.min(1 / minFactor, Math.pow(err, alpha) / safety);
+    }
+
+    /**
+     * Returns the error remembered for the next step after an accepted one.
+     */
+    double nextErrOld(double err)
+    {
+        return Math.max(err, initialErrOld);
+    }
+
+    static final double initialErrOld = 1e-4;
+    private final double beta = 0.04;
+    private final double alpha;
+    private final double safety = 0.9;
+    private final double minFactor = 0.2;
+    private final double maxFactor = 10;
+}
@@ -0,0 +1,286 @@
+package numerics;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import math.matrices.Vector;
+
+/**
+ * Parareal method of Lions, Maday and Turinici, integrating a long interval in parallel
+ * in time. The interval is split into slices. A cheap coarse propagator G, the classical
+ * Runge-Kutta method with a few fixed steps per slice, predicts the states at the ends of
+ * the slices sequentially; then all slices are integrated concurrently by the accurate
+ * fine propagator F, an {@link Ensemble} of adaptive Runge-Kutta solvers, starting from
+ * the predicted states. The correction U_{n+1} = G(U_n) + F(U_n^old) - G(U_n^old) is
+ * repeated until the states at the ends of slices stop changing.
+ * <p>
+ * After k iterations the first k slices are exact, so at most as many iterations as
+ * slices are made; a run gains over the sequential integration when it converges in a
+ * number of iterations much smaller than the number of slices, roughly by a factor of
+ * slices / iterations with enough processors.
+ * @author Grzegorz Los
+ */
+public class Parareal
+{
+    /**
+     * Creates the driver whose fine integrations run on a pool with one thread per
+     * available processor, created for every run.
+     * @param fine source of the fine solvers.
+     * @param tol tolerance of the fine solvers and of the convergence of the iteration.
+     * @param slices number of slices of the interval.
+     */
+    public Parareal(EmbeddedMethod fine, double tol, int slices)
+    {
+        this(fine, tol, slices, null);
+    }
+
+    /**
+     * Creates the driver whose fine integrations run on given executor, which is not shut
+     * down by the driver.
+     * @param fine source of the fine solvers.
+     * @param tol tolerance of the fine solvers and of the convergence of the iteration.
+     * @param slices number of slices of the interval.
+     * @param executor executor running the fine integrations.
+     */
+    public Parareal(EmbeddedMethod fine, double tol, int slices, ExecutorService executor)
+    {
+        if (slices <= 0)
+            throw new IllegalArgumentException("Number of slices must be positive, slices = " + slices);
+        this.fine = fine;
+        this.tol = tol;
+        this.slices = slices;
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the number of steps of the coarse propagator in every slice; it is 10 by
+     * default.
+     * @param steps number of coarse steps per slice.
+     */
+    public void setCoarseSteps(int steps)
+    {
+        if (steps <= 0)
+            throw new IllegalArgumentException("Number of steps must be positive, steps = " + steps);
+        coarseSteps = steps;
+    }
+
+    /**
+     * Sets the limit of the number of iterations; when it is reached before the states
+     * stop changing, the run ends unconverged, see {@link #isConverged()}.
+     * @param maxIterations the limit.
+     */
+    public void setMaxIterations(int maxIterations)
+    {
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Integrates given ODE. The right hand side is called from several threads at once,
+     * so it must be thread safe.
+     * @param ode the problem.
+     */
+    public void solve(ODE ode)
+    {
+        this.ode = ode;
+        prepare();
+        for (int n = 0; n < slices; ++n)
+        {
+            coarse(n, U[n], G[n+1]);
+            System.arraycopy(G[n+1], 0, U[n+1], 0, dim);
+        }
+        ExecutorService ex = executor != null ? executor
+                : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            iterate(new Ensemble(fine, tol, ex));
+        } finally {
+            if (executor == null)
+                ex.shutdownNow();
+        }
+    }
+
+    /**
+     * Repeats the fine integrations and the corrections until the states stop changing.
+     * The ensemble, and so the workspaces of its solvers, is shared by all iterations.
+     */
+    private void iterate(Ensemble ensemble)
+    {
+        for (iterations = 1; iterations <= Math.min(maxIterations, slices); ++iterations)
+        {
+            final int first = iterations - 1;
+            EnsembleResult[] results = ensemble.solve(new ODEFactory() {
+                @Override public ODE make(int index) {
+                    return makeSlice(first + index);
+                }
+            }, slices - first);
+            for (int n = first; n < slices; ++n)
+            {
+                EnsembleResult res = results[n - first];
+                if (!res.isSuccessful())
+                    throw new RuntimeException("Fine integration of slice " + n + " failed", res.failure);
+                fineEvaluations += res.evaluations;
+                for (int i = 0; i < dim; ++i)
+                    F[n+1][i] = res.y.get(i+1);
+            }
+            if (correct(first) <= 1)
+            {
+                converged = true;
+                return;
+            }
+        }
+        iterations--;
+        // after as many iterations as slices all of them come from the fine propagator
+        converged = iterations == slices;
+    }
+
+    /**
+     * Returns the number of iterations made by the last run, each of which integrated the
+     * remaining slices with the fine propagator.
+     * @return the number of iterations.
+     */
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    /**
+     * Returns true if the states at the ends of the slices stopped changing within the
+     * tolerance in the last run, or every slice was integrated by the fine propagator.
+     * Otherwise the run was stopped by the limit of iterations and the states are only
+     * approximations of the fine solution.
+     * @return true if the last run converged.
+     */
+    public boolean isConverged()
+    {
+        return converged;
+    }
+
+    public int getSlices()
+    {
+        return slices;
+    }
+
+    public double getX(int slice)
+    {
+        return xs[slice];
+    }
+
+    /**
+     * Returns the state at the beginning of given slice; slice {@link #getSlices()} is the
+     * end of the interval.
+     */
+    public Vector getY(int slice)
+    {
+        return new Vector(U[slice]);
+    }
+
+    public Vector getLastY()
+    {
+        return getY(slices);
+    }
+
+    public int getFineEvaluations()
+    {
+        return fineEvaluations;
+    }
+
+    public int getCoarseEvaluations()
+    {
+        return coarseEvaluations;
+    }
+
+    private void prepare()
+    {
+        dim = ode.y0.getSize();
+        xs = new double[slices + 1];
+        for (int n = 0; n <= slices; ++n)
+            xs[n] = ode.x0 + (ode.xn - ode.x0) * n / slices;
+        xs[slices] = ode.xn;
+        U = new double[slices + 1][dim];
+        G = new double[slices + 1][dim];
+        F = new double[slices + 1][dim];
+        for (int i = 0; i < dim; ++i)
+            U[0][i] = ode.y0.get(i+1);
+        k1 = new double[dim];
+        k2 = new double[dim];
+        k3 = new double[dim];
+        k4 = new double[dim];
+        yTmp = new double[dim];
+        iterations = 0;
+        converged = false;
+        fineEvaluations = 0;
+        coarseEvaluations = 0;
+    }
+
+    private ODE makeSlice(int n)
+    {
+        return new ArrayODE(xs[n], xs[n+1], new Vector(U[n]), 0) {
+            @Override public void f(double x, double[] y, double[] dydx) {
+                ode.f(x, y, dydx);
+            }
+        };
+    }
+
+    /**
+     * Applies the correction to the slices from given one on, sequentially, and returns
+     * the largest change of the states at their ends divided by its tolerance.
+     */
+    private double correct(int first)
+    {
+        double change = 0;
+        double[] gNew = new double[dim];
+        for (int n = first; n < slices; ++n)
+        {
+            coarse(n, U[n], gNew);
+            for (int i = 0; i < dim; ++i)
+            {
+                double u = gNew[i] + F[n+1][i] - G[n+1][i];
+                double e = Math.abs(u - U[n+1][i]) / ((1 + Math.abs(u)) * tol);
+                change = Double.isNaN(e) ? Double.POSITIVE_INFINITY : Math.max(change, e);
+                U[n+1][i] = u;
+            }
+            System.arraycopy(gNew, 0, G[n+1], 0, dim);
+        }
+        return change;
+    }
+
+    /**
+     * Propagates the state from the beginning to the end of given slice by the classical
+     * Runge-Kutta method with fixed steps.
+     */
+    private void coarse(int n, double[] from, double[] to)
+    {
+        double h = (xs[n+1] - xs[n]) / coarseSteps;
+        System.arraycopy(from, 0, to, 0, dim);
+        for (int step = 0; step < coarseSteps; ++step)
+        {
+            double x = xs[n] + step * h;
+            ode.f(x, to, k1);
+            for (int i = 0; i < dim; ++i)
+                yTmp[i] = to[i] + 0.5 * h * k1[i];
+            ode.f(x + 0.5 * h, yTmp, k2);
+            for (int i = 0; i < dim; ++i)
+                yTmp[i] = to[i] + 0.5 * h * k2[i];
+            ode.f(x + 0.5 * h, yTmp, k3);
+            for (int i = 0; i < dim; ++i)
+                yTmp[i] = to[i] + h * k3[i];
+            ode.f(x + h, yTmp, k4);
+            for (int i = 0; i < dim; ++i)
+                to[i] += h / 6 * (k1[i] + 2 * k2[i] + 2 * k3[i] + k4[i]);
+        }
+        coarseEvaluations += 4 * coarseSteps;
+    }
+
+    private final EmbeddedMethod fine;
+    private final double tol;
+    private final int slices;
+    private final ExecutorService executor;
+    private int coarseSteps = 10;
+    private int maxIterations = Integer.MAX_VALUE;
+    private ODE ode;
+    private int dim;
+    private double[] xs;
+    private double[][] U, G, F;
+    private double[] k1, k2, k3, k4, yTmp;
+    private int iterations;
+    private boolean converged;
+    private int fineEvaluations, coarseEvaluations;
+}
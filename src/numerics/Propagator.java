@@ -0,0 +1,169 @@
+package numerics;
+
+import math.matrices.Matrix;
+import math.matrices.Vector;
+
+/**
+ * Fixed step integrator for {@link LinearODE}s, which advances the state by the exact
+ * propagator exp(A h). The propagator is computed once per step size, so a step costs one
+ * product of a matrix and a vector and no evaluations of the right hand side, and the
+ * states are exact up to the rounding of these products.
+ * <p>
+ * Steps have the size set by {@link #setMaxStep(double)}, which is the distance between
+ * output points; only the last one may be shorter, to end at the end of the interval. By
+ * default the whole interval is a single step. The tolerance passed to the solve methods
+ * is ignored.
+ * @author Grzegorz Los
+ */
+public class Propagator implements Integrator
+{
+    @Override
+    public void solve(ODE ode, double tol)
+    {
+        trajectory = new Trajectory(ode.y0.getSize());
+        run(ode, trajectory);
+    }
+
+    @Override
+    public void solve(ODE ode, double tol, StepListener listener)
+    {
+        trajectory = null;
+        run(ode, listener);
+    }
+
+    /**
+     * Sets the step size.
+     * @param maxStep the step size.
+     */
+    @Override
+    public void setMaxStep(double maxStep)
+    {
+        if (maxStep <= 0)
+            throw new IllegalArgumentException("Maximal step must be positive, maxStep = " + maxStep);
+        this.maxStep = maxStep;
+    }
+
+    @Override
+    public Trajectory getTrajectory()
+    {
+        if (trajectory == null)
+            throw new IllegalStateException("Trajectory was not stored during the last run");
+        return trajectory;
+    }
+
+    @Override
+    public double getLastX()
+    {
+        return x;
+    }
+
+    @Override
+    public Vector getLastY()
+    {
+        return state.toVector();
+    }
+
+    @Override
+    public int getAcceptedSteps()
+    {
+        return steps;
+    }
+
+    @Override
+    public int getRejectedSteps()
+    {
+        return 0;
+    }
+
+    /**
+     * Returns 0, as the right hand side is never evaluated.
+     * @return 0.
+     */
+    @Override
+    public int getEvaluations()
+    {
+        return 0;
+    }
+
+    private void run(ODE ode, StepListener listener)
+    {
+        if (!(ode instanceof LinearODE))
+            throw new IllegalArgumentException("Propagator needs a LinearODE");
+        LinearODE linear = (LinearODE) ode;
+        prepare(linear);
+        if (!listener.stepAccepted(x, 0, state))
+            return;
+        long k = 0;
+        while (x < ode.xn)
+        {
+            double xNew = ode.x0 + (k + 1) * maxStep;
+            if (!(xNew < ode.xn))
+                xNew = ode.xn;
+            if (xNew == x)
+                throw new RuntimeException("Step size too small at x = " + x);
+            // interior steps share the propagator of the nominal step
+            double h = xNew == ode.xn ? ode.xn - x : maxStep;
+            if (h != propagatorStep)
+                setPropagator(linear.propagator(h), h);
+            step();
+            x = xNew;
+            k++;
+            steps++;
+            if (!listener.stepAccepted(x, h, state))
+                return;
+        }
+    }
+
+    private void prepare(LinearODE ode)
+    {
+        n = ode.y0.getSize();
+        if (y == null || y.length != n)
+        {
+            y = new double[n];
+            yNew = new double[n];
+            state = new StateView(y);
+        }
+        if (ode != this.ode)
+        {
+            this.ode = ode;
+            propagatorStep = Double.NaN;
+        }
+        x = ode.x0;
+        for (int i = 0; i < n; ++i)
+            y[i] = ode.y0.get(i+1);
+        steps = 0;
+    }
+
+    private void setPropagator(Matrix m, double h)
+    {
+        propagator = new double[n][n];
+        for (int i = 0; i < n; ++i)
+            for (int j = 0; j < n; ++j)
+                propagator[i][j] = m.get(i+1, j+1);
+        propagatorStep = h;
+    }
+
+    private void step()
+    {
+        for (int i = 0; i < n; ++i)
+        {
+            double sum = 0;
+            double[] row = propagator[i];
+            for (int j = 0; j < n; ++j)
+                sum += row[j] * y[j];
+            yNew[i] = sum;
+        }
+        System.arraycopy(yNew, 0, y, 0, n);
+    }
+
+    private LinearODE ode;
+    private int n;
+    private double x;
+    private double[] y, yNew;
+    private double[][] propagator;
+    private double propagatorStep = Double.NaN;
+    private StateView state;
+    private Trajectory trajectory;
+    private double maxStep = Double.POSITIVE_INFINITY;
+    private int steps;
+}
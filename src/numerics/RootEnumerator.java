@@ -0,0 +1,317 @@
+package numerics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds all roots of a function in an interval, without brackets given in advance.
+ * <p>
+ * The function is sampled on a uniform grid. Two roots inside a single cell leave no sign
+ * change at the samples, but an extremum between them changes the sign of the slope; so
+ * cells around a sample at which the slopes of the neighbouring cells indicate an extremum
+ * directed towards zero are halved, up to a given number of times. At the ends of the
+ * interval only one slope is known, so the cell at an end is halved when the function
+ * approaches zero towards that end. If the function is a
+ * {@link DifferentiableFunction}, the signs of the derivative at the ends of a cell are used
+ * instead and the extremum is located exactly by a root of the derivative, which splits
+ * the cell when the function changes its sign there. Every sign change is then refined by
+ * {@link Brent}'s method.
+ * <p>
+ * Optionally roots at which the function touches zero without changing its sign are
+ * reported as well: these are the extrema found as above at which the absolute value of
+ * the function does not exceed a given tolerance. This needs the derivative.
+ * <p>
+ * Samples, extrema and refinements are computed concurrently, so the function is called
+ * from several threads at once and must be thread safe.
+ * @author Grzegorz Los
+ */
+public class RootEnumerator
+{
+    /**
+     * Creates the enumerator using its own pool, with one thread per available processor,
+     * during every call.
+     * @param f the function.
+     * @param eps accuracy of the roots.
+     */
+    public RootEnumerator(Function f, double eps)
+    {
+        this(f, eps, null);
+    }
+
+    /**
+     * Creates the enumerator running on given executor, which is not shut down by the
+     * enumerator.
+     * @param f the function.
+     * @param eps accuracy of the roots.
+     * @param executor executor running the evaluations and refinements.
+     */
+    public RootEnumerator(Function f, double eps, ExecutorService executor)
+    {
+        this.f = f;
+        this.eps = eps;
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the number of cells of the initial grid; it is 64 by default.
+     * @param cells number of cells.
+     */
+    public void setCells(int cells)
+    {
+        if (cells <= 0)
+            throw new IllegalArgumentException("Number of cells must be positive, cells = " + cells);
+        this.cells = cells;
+    }
+
+    /**
+     * Sets how many times a cell of the initial grid may be halved when it is suspected to
+     * hide roots; it is 10 by default.
+     * @param refinements number of halvings, non-negative.
+     */
+    public void setRefinements(int refinements)
+    {
+        if (refinements < 0)
+            throw new IllegalArgumentException("Number of refinements must not be negative, "
+                    + "refinements = " + refinements);
+        this.refinements = refinements;
+    }
+
+    /**
+     * Turns on the detection of roots at which the function touches zero.
+     * @param tol largest absolute value of the function at an extremum accepted as a root,
+     * or a negative number to turn the detection off.
+     */
+    public void setTangentTolerance(double tol)
+    {
+        if (tol >= 0 && !(f instanceof DifferentiableFunction))
+            throw new IllegalArgumentException("Detection of tangential roots needs the derivative");
+        tangentTol = tol;
+    }
+
+    /**
+     * Finds the roots in given interval.
+     * @param i the interval.
+     * @return the roots in ascending order.
+     */
+    public double[] findRoots(Interval i)
+    {
+        evaluations.set(0);
+        ExecutorService ex = executor != null ? executor
+                : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return enumerate(i, ex);
+        } finally {
+            if (executor == null)
+                ex.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the number of evaluations of the function made by the last call, not
+     * counting the evaluations of the derivative.
+     * @return the number of evaluations.
+     */
+    public int getEvaluations()
+    {
+        return evaluations.get();
+    }
+
+    private double[] enumerate(Interval i, ExecutorService ex)
+    {
+        double[] xs = new double[cells + 1];
+        for (int j = 0; j <= cells; ++j)
+            xs[j] = i.beg + (i.end - i.beg) * j / cells;
+        xs[cells] = i.end;
+        ArrayList<Sample> samples = sample(xs, ex);
+        if (f instanceof DifferentiableFunction)
+            samples = splitAtExtrema(samples, ex);
+        else
+            samples = refine(samples, xs, ex);
+
+        final ArrayList<Double> roots = new ArrayList<>();
+        ArrayList<Callable<Double>> tasks = new ArrayList<>();
+        for (int j = 0; j < samples.size(); ++j)
+        {
+            final Sample s = samples.get(j);
+            if (s.fx == 0 || s.tangent)
+                roots.add(s.x);
+            if (j + 1 < samples.size() && s.fx * samples.get(j+1).fx < 0)
+            {
+                final Sample t = samples.get(j+1);
+                tasks.add(new Callable<Double>() {
+                    @Override public Double call() throws UnsatisfiedConditionsException {
+                        Brent brent = new Brent(f, eps);
+                        double root = brent.solve(s.x, s.fx, t.x, t.fx, 0);
+                        evaluations.addAndGet(brent.getEvaluations());
+                        return root;
+                    }
+                });
+            }
+        }
+        roots.addAll(run(tasks, ex));
+        double[] res = new double[roots.size()];
+        for (int j = 0; j < res.length; ++j)
+            res[j] = roots.get(j);
+        Arrays.sort(res);
+        return res;
+    }
+
+    /**
+     * Halves the cells around samples at which the slopes of the neighbouring cells show
+     * an extremum directed towards zero, until no such sample is left or the cells reached
+     * the smallest allowed width. The ends of the interval have a single neighbouring cell,
+     * which is halved when the function approaches zero towards the end.
+     */
+    private ArrayList<Sample> refine(ArrayList<Sample> samples, double[] grid,
+            ExecutorService ex)
+    {
+        double minWidth = (grid[1] - grid[0]) / (1 << Math.min(refinements, 30));
+        while (true)
+        {
+            ArrayList<Double> added = new ArrayList<>();
+            boolean[] split = new boolean[samples.size()];
+            int last = samples.size() - 1;
+            for (int j = 0; j <= last; ++j)
+            {
+                // an end sample has a single slope, the missing one is taken as agreeing
+                Sample p = j > 0 ? samples.get(j-1) : null, s = samples.get(j),
+                        n = j < last ? samples.get(j+1) : null;
+                double left = p != null ? s.fx - p.fx : -s.fx;
+                double right = n != null ? n.fx - s.fx : s.fx;
+                boolean towardsZero = s.fx > 0 ? left < 0 && right > 0
+                        : s.fx < 0 && left > 0 && right < 0;
+                if (!towardsZero || (p != null && p.fx * s.fx <= 0)
+                        || (n != null && s.fx * n.fx <= 0))
+                    continue;
+                if (p != null)
+                    split[j-1] |= s.x - p.x > minWidth;
+                if (n != null)
+                    split[j] |= n.x - s.x > minWidth;
+            }
+            for (int j = 0; j + 1 < samples.size(); ++j)
+                if (split[j])
+                    added.add(0.5 * (samples.get(j).x + samples.get(j+1).x));
+            if (added.isEmpty())
+                return samples;
+            double[] xs = new double[added.size()];
+            for (int j = 0; j < xs.length; ++j)
+                xs[j] = added.get(j);
+            samples = merge(samples, sample(xs, ex));
+        }
+    }
+
+    /**
+     * Locates the extrema inside cells without a sign change, at whose ends the derivative
+     * shows an extremum directed towards zero, and adds them to the samples; extrema at
+     * which the function is close enough to zero are marked as tangential roots.
+     */
+    private ArrayList<Sample> splitAtExtrema(ArrayList<Sample> samples, ExecutorService ex)
+    {
+        final DifferentiableFunction df = (DifferentiableFunction) f;
+        final Function derivative = new Function() {
+            @Override public double eval(double x) {
+                return df.derivative(x);
+            }
+        };
+        ArrayList<Callable<Sample>> tasks = new ArrayList<>();
+        for (int j = 0; j + 1 < samples.size(); ++j)
+        {
+            final Sample s = samples.get(j), t = samples.get(j+1);
+            if (!(s.fx * t.fx > 0))
+                continue;
+            boolean towardsZero = s.fx > 0 ? s.dfx < 0 && t.dfx > 0 : s.dfx > 0 && t.dfx < 0;
+            if (!towardsZero)
+                continue;
+            tasks.add(new Callable<Sample>() {
+                @Override public Sample call() throws UnsatisfiedConditionsException {
+                    Brent brent = new Brent(derivative, eps);
+                    double c = brent.solve(s.x, s.dfx, t.x, t.dfx, 0);
+                    Sample m = new Sample(c, eval(c), 0);
+                    m.tangent = tangentTol >= 0 && Math.abs(m.fx) <= tangentTol
+                            && m.fx * s.fx > 0;
+                    return m;
+                }
+            });
+        }
+        return merge(samples, run(tasks, ex));
+    }
+
+    private ArrayList<Sample> sample(double[] xs, ExecutorService ex)
+    {
+        ArrayList<Callable<Sample>> tasks = new ArrayList<>();
+        for (final double x: xs)
+        {
+            tasks.add(new Callable<Sample>() {
+                @Override public Sample call() {
+                    double dfx = f instanceof DifferentiableFunction
+                            ? ((DifferentiableFunction) f).derivative(x) : 0;
+                    return new Sample(x, eval(x), dfx);
+                }
+            });
+        }
+        return new ArrayList<>(run(tasks, ex));
+    }
+
+    private static ArrayList<Sample> merge(List<Sample> a, List<Sample> b)
+    {
+        ArrayList<Sample> res = new ArrayList<>(a.size() + b.size());
+        int j = 0, k = 0;
+        while (j < a.size() || k < b.size())
+        {
+            if (k == b.size() || (j < a.size() && a.get(j).x <= b.get(k).x))
+                res.add(a.get(j++));
+            else
+                res.add(b.get(k++));
+        }
+        return res;
+    }
+
+    private <T> List<T> run(List<Callable<T>> tasks, ExecutorService ex)
+    {
+        ArrayList<T> res = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future: ex.invokeAll(tasks))
+                res.add(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Search for roots interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Search for roots failed", e.getCause());
+        }
+        return res;
+    }
+
+    private double eval(double x)
+    {
+        evaluations.incrementAndGet();
+        return f.eval(x);
+    }
+
+    private static class Sample
+    {
+        Sample(double x, double fx, double dfx)
+        {
+            this.x = x;
+            this.fx = fx;
+            this.dfx = dfx;
+        }
+
+        final double x, fx, dfx;
+        boolean tangent;
+    }
+
+    private final Function f;
+    private final double eps;
+    private final ExecutorService executor;
+    private int cells = 64;
+    private int refinements = 10;
+    private double tangentTol = -1;
+    private final AtomicInteger evaluations = new AtomicInteger();
+}
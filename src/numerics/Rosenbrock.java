@@ -0,0 +1,165 @@
+package numerics;
+
+/**
+ * Linearly implicit Rosenbrock method of order 2 with an embedded error estimate of order
+ * 3, the formula of Shampine and Reichelt used by MATLAB's ode23s. Every step solves three
+ * linear systems with the matrix W = I - h d J and evaluates the right hand side twice;
+ * the last evaluation is reused as the first one of the next step.
+ * <p>
+ * The formula keeps its order for any matrix J (it is a W-method), so the Jacobian is
+ * reused across steps and a change of the step size only rebuilds and decomposes W. The
+ * decomposition is reused while the step size stays the same, so when the controller
+ * proposes to enlarge the step by a factor smaller than {@code 1.2}, the step is kept.
+ * An old Jacobian still costs stability on stiff problems, so, as in CVODE, it is
+ * refreshed when a step computed with it is rejected, when the step size drifted by more
+ * than 30% from the one it was computed at, and after 50 steps.
+ * @author Grzegorz Los
+ */
+public class Rosenbrock extends StiffIntegrator
+{
+    @Override
+    void allocate(int dim)
+    {
+        f0 = new double[dim];
+        f1 = new double[dim];
+        f2 = new double[dim];
+        T = new double[dim];
+        k1 = new double[dim];
+        k2 = new double[dim];
+        k3 = new double[dim];
+        rhs = new double[dim];
+        yNew = new double[dim];
+        err = new double[dim];
+    }
+
+    @Override
+    void start()
+    {
+        errOld = PIController.initialErrOld;
+        lastRejected = false;
+        evalF(x, y, f0);
+        h = initialStep(f0, 3);
+        updateJacobian();
+    }
+
+    @Override
+    double step()
+    {
+        while (true)
+        {
+            double limited = limitStep(h);
+            if (limited != h)
+            {
+                h = limited;
+                lu = null;
+            }
+            ensureStepOK(h);
+            if (lu == null && !factorize(h * d))
+            {
+                rejectStep(Double.POSITIVE_INFINITY);
+                continue;
+            }
+            double xNew = h >= ode.xn - x ? ode.xn : x + h;
+            double e = tryStep(xNew);
+            if (e <= 1)
+            {
+                double hDone = xNew - x;
+                acceptStep(xNew, e);
+                return hDone;
+            }
+            rejectStep(e);
+        }
+    }
+
+    /**
+     * Computes the candidate solution at xNew into yNew and returns its normalised error.
+     */
+    private double tryStep(double xNew)
+    {
+        for (int i = 0; i < dim; ++i)
+            rhs[i] = f0[i] + h * d * T[i];
+        lu.solve(rhs, k1);
+        for (int i = 0; i < dim; ++i)
+            yNew[i] = y[i] + 0.5 * h * k1[i];
+        evalF(x + 0.5 * h, yNew, f1);
+        for (int i = 0; i < dim; ++i)
+            rhs[i] = f1[i] - k1[i];
+        lu.solve(rhs, k2);
+        for (int i = 0; i < dim; ++i)
+        {
+            k2[i] += k1[i];
+            yNew[i] = y[i] + h * k2[i];
+        }
+        evalF(xNew, yNew, f2);
+        for (int i = 0; i < dim; ++i)
+            rhs[i] = f2[i] - e32 * (k2[i] - f1[i]) - 2 * (k1[i] - f0[i]) + h * d * T[i];
+        lu.solve(rhs, k3);
+        for (int i = 0; i < dim; ++i)
+            err[i] = h / 6 * (k1[i] - 2 * k2[i] + k3[i]);
+        return norm(err, yNew);
+    }
+
+    private void acceptStep(double xNew, double e)
+    {
+        x = xNew;
+        System.arraycopy(yNew, 0, y, 0, dim);
+        double[] aux = f0;
+        f0 = f2;
+        f2 = aux;
+        double hNew = h / controller.acceptedFactor(e, errOld, lastRejected);
+        errOld = controller.nextErrOld(e);
+        lastRejected = false;
+        jacobianFresh = false;
+        jacobianAge++;
+        if (hNew < h || hNew > 1.2 * h)
+        {
+            h = hNew;
+            lu = null;
+        }
+        if (Math.abs(h / hJacobian - 1) > maxJacobianDrift || jacobianAge >= maxJacobianAge)
+            updateJacobian();
+    }
+
+    private void rejectStep(double e)
+    {
+        rejected++;
+        h /= controller.rejectedFactor(e);
+        if (!jacobianFresh)
+            updateJacobian();
+        lastRejected = true;
+        lu = null;
+    }
+
+    /**
+     * Approximates the Jacobian and the derivative of the right hand side with respect to
+     * x at the current point.
+     */
+    private void updateJacobian()
+    {
+        updateJacobian(x, y, f0);
+        double delta = Math.sqrt(Math.ulp(1.0)) * Math.max(1, Math.abs(x));
+        double xd = x + delta;
+        delta = xd - x;
+        evalF(xd, y, f1);
+        for (int i = 0; i < dim; ++i)
+            T[i] = (f1[i] - f0[i]) / delta;
+        jacobianFresh = true;
+        jacobianAge = 0;
+        hJacobian = h;
+    }
+
+    private final double d = 1 / (2 + Math.sqrt(2));
+    private final double e32 = 6 + Math.sqrt(2);
+    private final PIController controller = new PIController(2);
+    private double h;
+    private double errOld;
+    private boolean lastRejected;
+    private boolean jacobianFresh;
+    private int jacobianAge;
+    private double hJacobian;
+    private static final double maxJacobianDrift = 0.3;
+    private static final int maxJacobianAge = 50;
+    private double[] f0, f1, f2, T;
+    private double[] k1, k2, k3;
+    private double[] rhs, yNew, err;
+}
@@ -2,35 +2,263 @@
 package numerics;
 
 import arenstorf.PeriodEndInfo;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import math.matrices.Matrix;
 import math.matrices.Vector;
 
 /**
- *
+ * Explicit embedded Runge-Kutta method given by its Butcher tableau. Stages, the temporary
+ * state and both candidate solutions are kept in primitive workspaces allocated once per
+ * dimension, so performing a step does not allocate.
+ * <p>
+ * Every step has a continuous extension given by polynomial weights b_i(theta). Tableaus
+ * may supply their own weights; otherwise cubic Hermite interpolation is used for tableaus
+ * whose last stage is evaluated at the new point, and linear interpolation for the rest.
+ * <p>
+ * The first stage is not recomputed when a rejected step is retried. For FSAL tableaus
+ * (first same as last) the last stage of an accepted step is reused as the first stage of
+ * the next one, which saves one evaluation of the right hand side per step.
+ * <p>
+ * {@link Event}s are checked after every accepted step. Their exact location is found by
+ * a {@link Solver} working on the continuous extension of the step, so it costs no
+ * evaluations of the right hand side.
+ * <p>
+ * A run may be continued from a {@link Checkpoint}, either written periodically to a file
+ * or taken by the solver before the step which reaches the end of the interval, which
+ * allows extending the interval without integrating again. The continued run gives
+ * bit-for-bit the same results as an uninterrupted one. Events which occurred before the
+ * checkpoint are not reported again.
  * @author Grzegorz Los
  */
-public class RungeKutta
+public class RungeKutta implements Integrator
 {
     public RungeKutta(Matrix A, Vector b4, Vector b5, Vector c, boolean controlStep)
     {
-        checkArgs(A, b4, b5, c);
+        this(A, b4, b5, c, null, controlStep);
+    }
+
+    /**
+     * Creates the method with given continuous extension.
+     * @param A Runge-Kutta matrix.
+     * @param b4 weights of the lower order solution.
+     * @param b5 weights of the higher order solution, which is propagated.
+     * @param c nodes.
+     * @param denseOutput matrix whose element (i, j) is the coefficient of theta^j in the
+     * weight b_i(theta) of the continuous extension, or null for the default extension.
+     * @param controlStep whether step size should be controlled.
+     */
+    public RungeKutta(Matrix A, Vector b4, Vector b5, Vector c, Matrix denseOutput,
+            boolean controlStep)
+    {
+        this(A, b4, b5, c, denseOutput, controlStep, 4);
+    }
+
+    /**
+     * Creates the method with given continuous extension and order of the error estimate.
+     * @param errorOrder order of the lower order solution, which decides how the step size
+     * reacts to the error.
+     * @see #RungeKutta(Matrix, Vector, Vector, Vector, Matrix, boolean)
+     */
+    public RungeKutta(Matrix A, Vector b4, Vector b5, Vector c, Matrix denseOutput,
+            boolean controlStep, int errorOrder)
+    {
+        this(checkArgs(A, b4, b5, c, denseOutput), null, toArray(b4), toArray(b5), toArray(c),
+                denseOutput != null ? toArray(denseOutput) : null, controlStep, errorOrder);
+    }
+
+    /**
+     * Creates the method from arrays, which are not copied. The number of stages is the
+     * length of b5; rows of A, c and P beyond it describe additional stages which are
+     * evaluated only when the continuous extension of a step is used.
+     * @param b3 weights of a second, low order solution, or null. If given, the error is
+     * estimated as in DOP853 of Hairer and Wanner, by |y5 - y4| corrected with |y5 - y3|.
+     * @param P coefficients of the continuous extension, or null for the default one.
+     */
+    RungeKutta(double[][] A, double[] b3, double[] b4, double[] b5, double[] c, double[][] P,
+            boolean controlStep, int errorOrder)
+    {
+        s = b5.length;
         this.A = A;
+        this.b3 = b3;
         this.b4 = b4;
         this.b5 = b5;
         this.c = c;
         this.controlStep = controlStep;
-        s = A.getRows();
-        k = new Vector[s+1];
+        this.errorOrder = errorOrder;
+        fsal = isFSAL();
+        this.P = P != null ? P : makeDefaultDenseOutput();
+        controller = new PIController(errorOrder);
     }
     
+    /**
+     * Solves given ODE, keeping every accepted step in the trajectory.
+     * @param ode the problem.
+     * @param tol tolerance of the local error.
+     */
     public void solve(ODE ode, double tol)
     {
+        ensureWorkspace(ode.y0.getSize());
+        if (trajectoryFile == null)
+            trajectory = new Trajectory(dim, storeDenseOutput);
+        else
+        {
+            try {
+                trajectory = MappedTrajectory.create(trajectoryFile, dim,
+                        storeDenseOutput ? P[0].length : 0);
+            } catch (IOException ex) {
+                throw new RuntimeException("Cannot create trajectory file " + trajectoryFile, ex);
+            }
+        }
+        run(ode, tol, trajectory);
+    }
+
+    /**
+     * Solves given ODE, passing accepted steps to the listener without storing them. Memory
+     * used by the solver does not depend on the length of the integration then. Methods
+     * reading the trajectory may not be used after such a run.
+     * @param ode the problem.
+     * @param tol tolerance of the local error.
+     * @param listener receives the initial state and every accepted step.
+     */
+    public void solve(ODE ode, double tol, StepListener listener)
+    {
+        trajectory = null;
+        run(ode, tol, listener);
+    }
+
+    /**
+     * Continues the run saved in given checkpoint over the interval of given ODE, which
+     * must be the problem of the original run with possibly later end, appending steps to
+     * the trajectory of the checkpoint. A checkpoint taken from a solver refers to its
+     * trajectory, which is truncated to the state of the checkpoint.
+     * @param ode the problem.
+     * @param tol tolerance of the local error; it must be the one of the original run.
+     * @param checkpoint the checkpoint, holding a trajectory.
+     * @throws IllegalArgumentException if the tolerance differs from the one of the
+     * original run.
+     */
+    public void resume(ODE ode, double tol, Checkpoint checkpoint)
+    {
+        if (checkpoint.trajectory == null)
+            throw new IllegalArgumentException("Checkpoint holds no trajectory");
+        ensureToleranceOK(tol, checkpoint);
+        trajectory = checkpoint.trajectory;
+        trajectory.truncate(checkpoint.trajectorySize);
+        resume(ode, tol, checkpoint, trajectory);
+    }
+
+    /**
+     * Continues the run saved in given checkpoint, passing accepted steps to the listener.
+     * @param ode the problem.
+     * @param tol tolerance of the local error; it must be the one of the original run.
+     * @param checkpoint the checkpoint.
+     * @param listener receives every accepted step after the checkpoint.
+     * @throws IllegalArgumentException if the tolerance differs from the one of the
+     * original run.
+     * @see #resume(ODE, double, Checkpoint)
+     */
+    public void resume(ODE ode, double tol, Checkpoint checkpoint, StepListener listener)
+    {
+        ensureToleranceOK(tol, checkpoint);
+        if (listener != trajectory)
+            trajectory = null;
         this.ode = ode;
         this.tol = tol;
-        prepare();
+        this.listener = listener;
+        restore(checkpoint);
         solve();
     }
+
+    private static void ensureToleranceOK(double tol, Checkpoint checkpoint)
+    {
+        if (tol != checkpoint.tol)
+            throw new IllegalArgumentException("Tolerance " + tol + " differs from the one of "
+                    + "the checkpointed run, " + checkpoint.tol);
+    }
+
+    /**
+     * Makes subsequent runs write a checkpoint to given file every {@code interval}
+     * accepted steps.
+     * @param file the file, or null to turn checkpoints off.
+     * @param interval number of steps between checkpoints.
+     */
+    public void setCheckpointFile(File file, int interval)
+    {
+        if (interval <= 0)
+            throw new IllegalArgumentException("Interval must be positive, interval = " + interval);
+        checkpointFile = file;
+        checkpointInterval = interval;
+    }
+
+    /**
+     * Makes subsequent calls of {@link #solve(ODE, double)} keep the trajectory in given
+     * memory-mapped file rather than on the heap; every run replaces the content of the
+     * file. The trajectory of the previous run should be closed before the next one.
+     * @param file the file, or null to keep the trajectory on the heap.
+     * @see MappedTrajectory
+     */
+    public void setTrajectoryFile(File file)
+    {
+        trajectoryFile = file;
+    }
+
+    /**
+     * Returns the checkpoint taken during the last run before the first step which reached
+     * the end of the interval, from which the run may be continued over a longer interval.
+     * @return the checkpoint, or null if the run did not get close to the end.
+     */
+    public Checkpoint getEndCheckpoint()
+    {
+        return endCheckpoint;
+    }
+
+    /**
+     * Decides whether continuous extensions of steps are stored in the trajectory, which
+     * makes {@link #interpolateY(double)} accurate between the steps. It is on by default.
+     * @param store whether continuous extensions should be stored.
+     */
+    public void setStoreDenseOutput(boolean store)
+    {
+        storeDenseOutput = store;
+    }
+
+    /**
+     * Sets the moment, as given by {@link System#nanoTime()}, after which runs stop. It is
+     * checked before every retry of a rejected step; {@link Ensemble} checks it after
+     * accepted steps itself. A run stopped by it ends at the last accepted step.
+     * @param deadline the moment.
+     */
+    void setDeadline(long deadline)
+    {
+        this.deadline = deadline;
+        hasDeadline = true;
+    }
+
+    void clearDeadline()
+    {
+        hasDeadline = false;
+    }
+
+    /**
+     * Returns true if the last run was stopped by the deadline.
+     */
+    boolean isPastDeadline()
+    {
+        return pastDeadline;
+    }
+
+    /**
+     * Sets the upper limit for the step size.
+     * @param maxStep maximal step size.
+     */
+    public void setMaxStep(double maxStep)
+    {
+        if (maxStep <= 0)
+            throw new IllegalArgumentException("Maximal step must be positive, maxStep = " + maxStep);
+        this.maxStep = maxStep;
+    }
     
     public int getSteps()
     {
@@ -39,17 +267,63 @@ public class RungeKutta
     
     public double getHAt(int step)
     {
-        return hs.get(step);
+        return getTrajectory().getH(step);
     }
     
     public double getXAt(int step)
     {
-        return xs.get(step);
+        return getTrajectory().getX(step);
     }
     
     public Vector getYAt(int step)
     {
-        return ys.get(step);
+        return getTrajectory().getYVector(step);
+    }
+
+    public Trajectory getTrajectory()
+    {
+        if (trajectory == null)
+            throw new IllegalStateException("Trajectory was not stored during the last run");
+        return trajectory;
+    }
+
+    /**
+     * Computes the solution at any argument covered by the stored trajectory.
+     * @param x the argument.
+     * @return the solution at x.
+     */
+    public Vector interpolateY(double x)
+    {
+        return getTrajectory().interpolate(x);
+    }
+
+    public int getAcceptedSteps()
+    {
+        return accepted;
+    }
+
+    public int getRejectedSteps()
+    {
+        return rejected;
+    }
+
+    /**
+     * Returns the number of evaluations of the right hand side during the last run.
+     * @return the number of evaluations of the right hand side.
+     */
+    public int getEvaluations()
+    {
+        return evaluations;
+    }
+
+    public double getLastX()
+    {
+        return x;
+    }
+
+    public Vector getLastY()
+    {
+        return state.toVector();
     }
 
     public ArrayList<PeriodEndInfo> getPeriodEndInfos()
@@ -57,197 +331,643 @@ public class RungeKutta
         return pei;
     }
 
+    /**
+     * Adds an event which will be monitored in subsequent runs.
+     * @param event the event.
+     */
+    public void addEvent(Event event)
+    {
+        events.add(event);
+    }
+
+    public void clearEvents()
+    {
+        events.clear();
+    }
+
+    /**
+     * Returns events which occurred during the last run, in order of their arguments.
+     * @return infos about events which occurred.
+     */
+    public ArrayList<EventInfo> getEventInfos()
+    {
+        return eventInfos;
+    }
+
+    /**
+     * Sets the solver used to locate events; bisection is used by default.
+     * @param solver the solver.
+     */
+    public void setEventSolver(Solver solver)
+    {
+        eventSolver = solver;
+    }
+
+    /**
+     * Sets the accuracy with which arguments of events are located.
+     * @param eps the accuracy.
+     */
+    public void setEventAccuracy(double eps)
+    {
+        eventAccuracy = eps;
+    }
+
+    double[][] getA()
+    {
+        return A;
+    }
+
+    double[] getB3()
+    {
+        return b3;
+    }
+
+    double[] getB4()
+    {
+        return b4;
+    }
+
+    double[] getB5()
+    {
+        return b5;
+    }
+
+    double[] getC()
+    {
+        return c;
+    }
+
+    boolean isStepControlled()
+    {
+        return controlStep;
+    }
+
+    boolean usesFSAL()
+    {
+        return fsal;
+    }
+
+    int getErrorOrder()
+    {
+        return errorOrder;
+    }
+
+    double getMaxStep()
+    {
+        return maxStep;
+    }
+
+    private void run(ODE ode, double tol, StepListener listener)
+    {
+        this.ode = ode;
+        this.tol = tol;
+        this.listener = listener;
+        if (prepare())
+            solve();
+    }
+
     private void solve()
     {
+        checkpointWriter = checkpointFile != null ? new Checkpoint.Writer(checkpointFile) : null;
+        endCheckpoint = null;
         for (int i = 0; i < maxSteps; ++i)
         {
-            updateCoefs();
-            x = x + h;
-            y = calcNewY5();
-            maybePeriodEndCorrection();
-            xs.add(x);
-            ys.add(y);
-            hs.add(h);
+            takeCheckpoints();
+            if (!makeStep())
+                return;
+            if (!controlStep)
+                calcNewY5();
+            xPrev = x;
+            x = h >= ode.xn - x ? ode.xn : x + h;
+            copy(y, yPrev);
+            copy(y5, y);
+            interpolant.setStep(xPrev, h, x);
+            boolean stop = handleEvents();
+            if (listener instanceof DenseStepListener)
+                ((DenseStepListener) listener).denseStep(interpolant);
+            addPeriodEndInfos();
             next++;
-            if (x >= ode.xn)
+            if (!listener.stepAccepted(x, x - xPrev, state))
+                return;
+            if (stop || x >= ode.xn)
                 return;
+            if (controlStep)
+                h = hNext;
+            reuseLastStage();
         }
     }
     
-    private void prepare()
+    private boolean prepare()
     {
         //h = (ode.xn - ode.x0) / 1000;
         h = 1.0/512;
-        ys = new ArrayList<>();
-        xs = new ArrayList<>();
-        hs = new ArrayList<>();
-        y = ode.y0;
+        ensureWorkspace(ode.y0.getSize());
+        for (int i = 0; i < dim; ++i)
+            y[i] = ode.y0.get(i+1);
         x = ode.x0;
-        updateKs();
-        ys.add(y);
-        xs.add(x);
-        hs.add(h);
         next = 1;
+        accepted = 0;
+        rejected = 0;
+        evaluations = 0;
+        errOld = PIController.initialErrOld;
+        lastRejected = false;
+        firstStageKnown = false;
+        pastDeadline = false;
+        lastCheckpoint = 0;
         periodNr = 1;
         pei = new ArrayList<>();
         addPeriodEndInfo();
+        prepareEvents();
+        return listener.stepAccepted(x, h, state);
     }
     
-    private void checkArgs(Matrix A, Vector b4, Vector b5, Vector c)
+    /**
+     * Takes the end checkpoint before the first step which may be limited by the end of
+     * the interval, and writes a checkpoint to the file when it is due.
+     */
+    private void takeCheckpoints()
+    {
+        if (endCheckpoint == null && Math.min(h, maxStep) >= ode.xn - x)
+            endCheckpoint = makeCheckpoint();
+        if (checkpointWriter != null && accepted > 0 && accepted % checkpointInterval == 0
+                && accepted != lastCheckpoint)
+        {
+            try {
+                checkpointWriter.write(makeCheckpoint());
+            } catch (IOException ex) {
+                throw new RuntimeException("Checkpoint could not be written at x = " + x, ex);
+            }
+            lastCheckpoint = accepted;
+        }
+    }
+
+    private Checkpoint makeCheckpoint()
+    {
+        Checkpoint cp = new Checkpoint(dim);
+        cp.x = x;
+        cp.tol = tol;
+        cp.h = h;
+        cp.errOld = errOld;
+        cp.lastRejected = lastRejected;
+        cp.periodNr = periodNr;
+        cp.next = next;
+        cp.accepted = accepted;
+        cp.rejected = rejected;
+        cp.evaluations = evaluations;
+        copy(y, cp.y);
+        cp.firstStage = firstStageKnown ? k[0].clone() : null;
+        cp.gPrev = gPrev.clone();
+        cp.pei = new ArrayList<>(pei);
+        cp.trajectory = trajectory;
+        cp.trajectorySize = trajectory != null ? trajectory.getSize() : 0;
+        return cp;
+    }
+
+    private void restore(Checkpoint cp)
+    {
+        ensureWorkspace(cp.y.length);
+        x = cp.x;
+        h = cp.h;
+        errOld = cp.errOld;
+        lastRejected = cp.lastRejected;
+        periodNr = cp.periodNr;
+        next = cp.next;
+        accepted = cp.accepted;
+        rejected = cp.rejected;
+        evaluations = cp.evaluations;
+        copy(cp.y, y);
+        firstStageKnown = cp.firstStage != null;
+        if (firstStageKnown)
+            copy(cp.firstStage, k[0]);
+        pei = new ArrayList<>(cp.pei);
+        prepareEvents();
+        if (cp.gPrev.length == gPrev.length)
+            copy(cp.gPrev, gPrev);
+        lastCheckpoint = accepted;
+    }
+
+    private void prepareEvents()
+    {
+        eventInfos = new ArrayList<>();
+        gPrev = new double[events.size()];
+        eventX = new double[events.size()];
+        for (int i = 0; i < events.size(); ++i)
+            gPrev[i] = events.get(i).g(x, state);
+    }
+
+    private void ensureWorkspace(int dim)
+    {
+        if (k != null && this.dim == dim)
+            return;
+        this.dim = dim;
+        k = new double[A.length][dim];
+        y = new double[dim];
+        yTmp = new double[dim];
+        y3 = b3 != null ? new double[dim] : null;
+        y4 = new double[dim];
+        y5 = new double[dim];
+        yPrev = new double[dim];
+        state = new StateView(y);
+        yEvent = new double[dim];
+        eventState = new StateView(yEvent);
+        interpolant = new StepInterpolant(P, k, yPrev, new double[P.length],
+                A.length > s ? new Runnable() {
+                    @Override public void run() {
+                        updateDenseStages();
+                    }
+                } : null);
+    }
+
+    private static double[][] checkArgs(Matrix A, Vector b4, Vector b5, Vector c,
+            Matrix denseOutput)
     {
         if (    !A.isSquare()
                 || A.getRows() != c.getRows()
                 || A.getCols() != b4.getRows()
                 || A.getCols() != b5.getRows()
+                || (denseOutput != null && denseOutput.getRows() != A.getRows())
            ) throw new RuntimeException("Invalid arguments");
+        return toArray(A);
+    }
+
+    /**
+     * Returns true if the last stage is evaluated at the new point, i.e. last row of A
+     * equals b5 and the last node is 1.
+     */
+    private boolean isFSAL()
+    {
+        if (c[s-1] != 1 || b5[s-1] != 0)
+            return false;
+        for (int j = 0; j < s-1; ++j)
+            if (A[s-1][j] != b5[j])
+                return false;
+        return true;
+    }
+
+    private double[][] makeDefaultDenseOutput()
+    {
+        if (!isFSAL())
+        {
+            double[][] linear = new double[s][1];
+            for (int i = 0; i < s; ++i)
+                linear[i][0] = b5[i];
+            return linear;
+        }
+        // cubic Hermite: theta*f0 + (3theta^2 - 2theta^3)*(y1 - y0)/h + (theta^3 - 2theta^2)*f0
+        //                + (theta^3 - theta^2)*f1, where f0 = k_1 and f1 = k_s
+        double[][] hermite = new double[s][3];
+        for (int i = 0; i < s; ++i)
+        {
+            hermite[i][1] = 3*b5[i];
+            hermite[i][2] = -2*b5[i];
+        }
+        hermite[0][0] += 1;
+        hermite[0][1] -= 2;
+        hermite[0][2] += 1;
+        hermite[s-1][1] -= 1;
+        hermite[s-1][2] += 1;
+        return hermite;
+    }
+
+    private static double[][] toArray(Matrix m)
+    {
+        double[][] res = new double[m.getRows()][m.getCols()];
+        for (int i = 0; i < m.getRows(); ++i)
+            for (int j = 0; j < m.getCols(); ++j)
+                res[i][j] = m.get(i+1, j+1);
+        return res;
+    }
+
+    private static double[] toArray(Vector v)
+    {
+        double[] res = new double[v.getSize()];
+        for (int i = 0; i < v.getSize(); ++i)
+            res[i] = v.get(i+1);
+        return res;
+    }
+
+    private static void copy(double[] from, double[] to)
+    {
+        System.arraycopy(from, 0, to, 0, from.length);
     }
     
     private void updateKs()
     {
-        for (int i = 1; i <= s; ++i)
+        for (int i = firstStageKnown ? 1 : 0; i < s; ++i)
             updateK(i);
+        firstStageKnown = c[0] == 0;
+    }
+
+    /**
+     * Prepares the first stage of the next step after the current one was accepted.
+     */
+    private void reuseLastStage()
+    {
+        if (fsal)
+        {
+            double[] aux = k[0];
+            k[0] = k[s-1];
+            k[s-1] = aux;
+        }
+        firstStageKnown = fsal;
     }
 
     private void updateK(int i)
     {
-        double x_tmp = x + c.get(i)*h;
-        Vector y_tmp = new Vector(y);
-        for (int j = 1; j < i; ++j)
-            y_tmp = y_tmp.add(k[j].times(h*A.get(i, j)));
-        k[i] = ode.f(x_tmp, y_tmp);
+        double x_tmp = x + c[i]*h;
+        copy(y, yTmp);
+        for (int j = 0; j < i; ++j)
+        {
+            double coef = h*A[i][j];
+            if (coef == 0)
+                continue;
+            double[] kj = k[j];
+            for (int l = 0; l < dim; ++l)
+                yTmp[l] += coef * kj[l];
+        }
+        evalF(x_tmp, yTmp, k[i]);
     }
     
-
-    private Vector calcNewY4()
+    /**
+     * Computes the stages used only by the continuous extension of the last accepted step.
+     */
+    private void updateDenseStages()
     {
-        Vector newY = new Vector(y);
-        for (int j = 1; j <= s; ++j)
-            newY = newY.add(k[j].times(h*b4.get(j)));
-        return newY;
+        for (int i = s; i < A.length; ++i)
+        {
+            copy(yPrev, yTmp);
+            for (int j = 0; j < i; ++j)
+            {
+                double coef = h*A[i][j];
+                if (coef == 0)
+                    continue;
+                double[] kj = k[j];
+                for (int l = 0; l < dim; ++l)
+                    yTmp[l] += coef * kj[l];
+            }
+            evalF(xPrev + c[i]*h, yTmp, k[i]);
+        }
     }
     
-    private Vector calcNewY5()
+    private void evalF(double x, double[] y, double[] dydx)
     {
-        Vector newY = new Vector(y);
-        for (int j = 1; j <= s; ++j)
-            newY = newY.add(k[j].times(h*b5.get(j)));
-        return newY;
+        evaluations++;
+        ode.f(x, y, dydx);
     }
 
-    private void updateCoefs()
+    private void calcNewY4()
     {
-        if (controlStep)
-            updateHAndKs();
-        else
-            updateKs();
+        combine(b4, y4);
+    }
+
+    private void calcNewY3()
+    {
+        combine(b3, y3);
+    }
+
+    private void calcNewY5()
+    {
+        combine(b5, y5);
+    }
+
+    private void combine(double[] b, double[] newY)
+    {
+        copy(y, newY);
+        for (int j = 0; j < s; ++j)
+        {
+            double coef = h*b[j];
+            if (coef == 0)
+                continue;
+            double[] kj = k[j];
+            for (int l = 0; l < dim; ++l)
+                newY[l] += coef * kj[l];
+        }
     }
 
-    /*private void updateH_old()
+    /**
+     * Computes stages for the current step. With step control the step is retried with
+     * smaller h until the error estimate is within tolerance, and the size of the next step
+     * is chosen by the PI controller.
+     * @return false if the deadline passed before an acceptable step was found.
+     */
+    private boolean makeStep()
     {
-        for (int i = 0; i < maxHAdjustmentsPerStep; ++i)
+        limitStep();
+        updateKs();
+        if (!controlStep)
+        {
+            accepted++;
+            return true;
+        }
+        while (true)
         {
-            Vector y4 = calcNewY4();
-            Vector y5 = calcNewY5();
-            double norm = y4.add(y5.times(-1)).norm();
-            if (norm < tol && norm > tol/4) //step is reasonable
-                return;                     //no need to update h
-            double alfa = 0.8 * Math.pow(tol/norm, 0.2);
-            h *= alfa;
-            if (h < hmin)
+            calcNewY4();
+            calcNewY5();
+            if (b3 != null)
+                calcNewY3();
+            double err = errorNorm();
+            if (err <= 1)
             {
-                h = hmin;
-                updateKs();
-                return;
+                accepted++;
+                hNext = h / controller.acceptedFactor(err, errOld, lastRejected);
+                errOld = controller.nextErrOld(err);
+                lastRejected = false;
+                return true;
+            }
+            rejected++;
+            h /= controller.rejectedFactor(err);
+            lastRejected = true;
+            ensureStepNotTooSmall();
+            if (hasDeadline && System.nanoTime() - deadline > 0)
+            {
+                pastDeadline = true;
+                return false;
             }
             updateKs();
         }
-    }*/
+    }
     
-    private void updateHAndKs()
+    /**
+     * Returns the maximum over components of the estimated error divided by its tolerance,
+     * which is (1 + |y|) * tol. The step is accepted iff the result does not exceed 1.
+     */
+    private double errorNorm()
+    {
+        double err = maxError(y4);
+        if (b3 == null || err == 0 || Double.isInfinite(err))
+            return err;
+        double err3 = maxError(y3);
+        if (Double.isInfinite(err3))
+            return err3;
+        return err * err / Math.sqrt(err * err + 0.01 * err3 * err3);
+    }
+
+    private double maxError(double[] yLow)
     {
-        for (int i = 0; i < maxHAdjustmentsPerStep; ++i)
+        double err = 0;
+        for (int i = 0; i < dim; ++i)
         {
-            Vector y4 = calcNewY4();
-            Vector y5 = calcNewY5();
-            double alfa = min(getAlfas(y4, y5));
-            h *= 0.8 * alfa;
-            //if (h > 1.0/16) h = 1.0/16;
-            updateKs();
+            double e = Math.abs(yLow[i] - y5[i]) / ((1 + Math.abs(y5[i])) * tol);
+            if (Double.isNaN(e))
+                return Double.POSITIVE_INFINITY;
+            err = Math.max(err, e);
         }
+        return err;
     }
-    
-    private boolean accept(Vector y4, Vector y5)
+
+    private void ensureStepNotTooSmall()
     {
-        for (int i = 1; i <= y4.getSize(); ++i)
+        if (h <= 16 * Math.ulp(x))
+            throw new RuntimeException("Step size too small at x = " + x + ", h = " + h);
+    }
+
+    private void limitStep()
+    {
+        if (h > maxStep)
+            h = maxStep;
+        if (h > ode.xn - x)
+            h = ode.xn - x;
+    }
+
+    /**
+     * Locates events which occurred during the last step and records them. If a terminal
+     * event occurred, the step is truncated at the earliest one.
+     * @return true if a terminal event occurred.
+     */
+    private boolean handleEvents()
+    {
+        double xStop = Double.POSITIVE_INFINITY;
+        int found = 0;
+        for (int i = 0; i < events.size(); ++i)
         {
-            double a = y4.get(i), b = y5.get(i);
-            if (Math.abs(a-b) > (1 + Math.abs(b)) * tol)
-                return false;
+            Event e = events.get(i);
+            double gNew = e.g(x, state);
+            eventX[i] = Double.NaN;
+            if (e.occurs(gPrev[i], gNew))
+            {
+                eventX[i] = locate(e);
+                found++;
+                if (e.terminal)
+                    xStop = Math.min(xStop, eventX[i]);
+            }
+            gPrev[i] = gNew;
         }
+        if (found == 0)
+            return false;
+        recordEvents(xStop);
+        if (xStop == Double.POSITIVE_INFINITY)
+            return false;
+        interpolant.interpolate(xStop, y);
+        x = xStop;
+        interpolant.truncate(x);
         return true;
     }
     
-    private Vector getAlfas(Vector y4, Vector y5)
+    private double locate(final Event e)
     {
-        Vector res = new Vector(y4.getSize());
-        for (int i = 1; i <= y4.getSize(); ++i)
-            res.set(i, getAlfa(y4.get(i), y5.get(i)));
-        return res;
-    }
-    
-    private double getAlfa(double y4, double y5)
-    {
-        double norm = Math.abs(y4 - y5);
-        //return Math.pow((1 + Math.abs(y5))*tol/norm, 0.2);
-        return Math.pow(tol/norm, 0.2);
+        eventSolver.setFunction(new Function() {
+            @Override public double eval(double arg) {
+                interpolant.interpolate(arg, yEvent);
+                return e.g(arg, eventState);
+            }
+        });
+        eventSolver.setAccuracy(Math.max(eventAccuracy, 4 * Math.ulp(x)));
+        try {
+            return eventSolver.findRoot(new Interval(xPrev, x));
+        } catch (UnsatisfiedConditionsException ex) {
+            throw new RuntimeException("Event could not be located between " + xPrev
+                    + " and " + x, ex);
+        }
     }
     
-    private double min(Vector v)
+    /**
+     * Records located events which occurred not later than xStop, in order of arguments.
+     */
+    private void recordEvents(double xStop)
     {
-        double m = v.get(1);
-        for (int i = 2; i <= v.getSize(); ++i)
-            m = Math.min(v.get(i), m);
-        return m;
+        double last = Double.NEGATIVE_INFINITY;
+        while (true)
+        {
+            int first = -1;
+            for (int i = 0; i < events.size(); ++i)
+                if (eventX[i] > last && eventX[i] <= xStop
+                        && (first < 0 || eventX[i] < eventX[first]))
+                    first = i;
+            if (first < 0)
+                return;
+            last = eventX[first];
+            for (int i = 0; i < events.size(); ++i)
+                if (eventX[i] == last)
+                {
+                    interpolant.interpolate(last, yEvent);
+                    eventInfos.add(new EventInfo(events.get(i), last, new Vector(yEvent)));
+                }
+        }
     }
     
-    private void maybePeriodEndCorrection()
+    private void addPeriodEndInfos()
     {
-        if (x > periodNr * ode.period)
+        if (ode.period <= 0)
+            return;
+        while (periodNr * ode.period <= x)
         {
-            h = periodNr * ode.period + h - x;
-            x = periodNr * ode.period;
-            updateKs();
-            y = calcNewY5();
-            addPeriodEndInfo();
+            double periodEnd = periodNr * ode.period;
+            interpolant.interpolate(periodEnd, yTmp);
+            pei.add(new PeriodEndInfo(periodEnd, new Vector(yTmp)));
             periodNr++;
-            h = 1.0 / 32768;
-            updateKs();
         }
     }
     
     private void addPeriodEndInfo()
     {
-        pei.add(new PeriodEndInfo(x, y));
+        pei.add(new PeriodEndInfo(x, new Vector(y)));
     }
     
-    private final Matrix A;
-    private final Vector b4;
-    private final Vector b5;
-    private final Vector c;
+    private final double[][] A;
+    private final double[] b3;
+    private final double[] b4;
+    private final double[] b5;
+    private final double[] c;
+    private final double[][] P;
     private ODE ode;
     private double tol;
-    private ArrayList<Vector> ys;
-    private ArrayList<Double> xs;
-    private ArrayList<Double> hs;
+    private Trajectory trajectory;
+    private File trajectoryFile;
+    private StepListener listener;
     private ArrayList<PeriodEndInfo> pei;
-    private Vector y;
-    private double x;
+    private final ArrayList<Event> events = new ArrayList<>();
+    private ArrayList<EventInfo> eventInfos;
+    private double[] gPrev, eventX;
+    private Solver eventSolver = new Bisection();
+    private double eventAccuracy = 1e-12;
+    private double x, xPrev;
     private int next;
     private final int s;
-    private final Vector[] k;
-    private double h;
+    private int dim;
+    private double[][] k;
+    private double[] y, yTmp, y3, y4, y5, yPrev;
+    private double[] yEvent;
+    private StateView state, eventState;
+    private StepInterpolant interpolant;
+    private boolean storeDenseOutput = true;
+    private double h, hNext;
+    private double errOld;
+    private boolean lastRejected;
+    private long deadline;
+    private boolean hasDeadline;
+    private boolean pastDeadline;
+    private int accepted, rejected, evaluations;
     private final boolean controlStep;
+    private final boolean fsal;
+    private boolean firstStageKnown;
+    private double maxStep = Double.POSITIVE_INFINITY;
     private final int maxSteps = 10000000;
-    private final int maxHAdjustmentsPerStep = 10;
+    private final int errorOrder;
+    private final PIController controller;
     private int periodNr;
+    private File checkpointFile;
+    private int checkpointInterval;
+    private Checkpoint.Writer checkpointWriter;
+    private Checkpoint endCheckpoint;
+    private int lastCheckpoint;
 }
@@ -0,0 +1,82 @@
+package numerics;
+
+import math.matrices.Vector;
+
+/**
+ * Hamiltonian system with separable Hamiltonian H(q, p) = T(p) + V(q). The state is
+ * y = (q, p), and its equations split into q' = dT/dp, which depends only on p, and
+ * p' = -dV/dq, which depends only on q. Symplectic integrators use the two parts
+ * separately; other solvers see an ordinary {@link ArrayODE}.
+ * @author Grzegorz Los
+ */
+public abstract class SeparableODE extends ArrayODE
+{
+    public SeparableODE(double x0, double xn, Vector q0, Vector p0, double period)
+    {
+        super(x0, xn, join(q0, p0), period);
+        n = q0.getSize();
+    }
+
+    /**
+     * Computes q' = dT/dp.
+     * @param x the argument.
+     * @param p momenta.
+     * @param dqdx array receiving derivatives of the coordinates.
+     */
+    abstract public void velocity(double x, double[] p, double[] dqdx);
+
+    /**
+     * Computes p' = -dV/dq.
+     * @param x the argument.
+     * @param q coordinates.
+     * @param dpdx array receiving derivatives of the momenta.
+     */
+    abstract public void force(double x, double[] q, double[] dpdx);
+
+    /**
+     * Returns the number of degrees of freedom, half of the dimension of the state.
+     * @return the number of degrees of freedom.
+     */
+    public int getDegreesOfFreedom()
+    {
+        return n;
+    }
+
+    @Override
+    public void f(double x, double[] y, double[] dydx)
+    {
+        double[][] buffer = buffers.get();
+        double[] half = buffer[0], dHalf = buffer[1];
+        System.arraycopy(y, n, half, 0, n);
+        velocity(x, half, dHalf);
+        System.arraycopy(dHalf, 0, dydx, 0, n);
+        System.arraycopy(y, 0, half, 0, n);
+        force(x, half, dHalf);
+        System.arraycopy(dHalf, 0, dydx, n, n);
+    }
+
+    private static Vector join(Vector q0, Vector p0)
+    {
+        if (q0.getSize() != p0.getSize())
+            throw new IllegalArgumentException("Coordinates and momenta differ in dimension");
+        int n = q0.getSize();
+        double[] y0 = new double[2 * n];
+        for (int i = 0; i < n; ++i)
+        {
+            y0[i] = q0.get(i+1);
+            y0[n + i] = p0.get(i+1);
+        }
+        return new Vector(y0);
+    }
+
+    private final int n;
+    /**
+     * Halves of the state passed to velocity and force, one pair per thread, so that
+     * parallel solvers may share the ODE.
+     */
+    private final ThreadLocal<double[][]> buffers = new ThreadLocal<double[][]>() {
+        @Override protected double[][] initialValue() {
+            return new double[2][n];
+        }
+    };
+}
@@ -0,0 +1,41 @@
+package numerics;
+
+import math.matrices.Vector;
+
+/**
+ * Read-only view of a state kept in a solver's workspace. Components are numbered from 1,
+ * like in {@link Vector}. The view follows the workspace, so values which have to outlive
+ * the call the view was passed to must be copied.
+ * @author Grzegorz Los
+ */
+public final class StateView
+{
+    StateView(double[] values)
+    {
+        this.values = values;
+    }
+
+    public int getSize()
+    {
+        return values.length;
+    }
+
+    public double get(int comp)
+    {
+        if (comp <= 0 || comp > values.length)
+            throw new IndexOutOfBoundsException("Invalid component: " + comp);
+        return values[comp-1];
+    }
+
+    public void copyTo(double[] dest)
+    {
+        System.arraycopy(values, 0, dest, 0, values.length);
+    }
+
+    public Vector toVector()
+    {
+        return new Vector(values);
+    }
+
+    final double[] values;
+}
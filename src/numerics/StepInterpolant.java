@@ -0,0 +1,122 @@
+package numerics;
+
+/**
+ * Continuous extension of the last accepted step of a Runge-Kutta method. Values inside
+ * the step are computed from the stages which are already known, so no evaluations of the
+ * right hand side are needed, except for tableaus whose continuous extension uses
+ * additional stages; those are computed once per step, on first use. The interpolant
+ * follows the solver's workspace, so it is valid only until the next step is taken.
+ * @author Grzegorz Los
+ */
+public final class StepInterpolant
+{
+    StepInterpolant(double[][] P, double[][] k, double[] yBegin, double[] weights,
+            Runnable denseStages)
+    {
+        this.P = P;
+        this.k = k;
+        this.yBegin = yBegin;
+        this.weights = weights;
+        this.denseStages = denseStages;
+    }
+
+    public double getXBegin()
+    {
+        return xBegin;
+    }
+
+    public double getXEnd()
+    {
+        return xEnd;
+    }
+
+    public double getH()
+    {
+        return xEnd - xBegin;
+    }
+
+    /**
+     * Returns the degree of the interpolating polynomial.
+     * @return the degree of the interpolating polynomial.
+     */
+    public int getDegree()
+    {
+        return P[0].length;
+    }
+
+    /**
+     * Computes the state at given argument.
+     * @param x argument from the interval [getXBegin(), getXEnd()]; arguments up to the end
+     * of the original step may be used after the step was truncated.
+     * @param dest array receiving the state.
+     */
+    public void interpolate(double x, double[] dest)
+    {
+        ensureStages();
+        double theta = (x - xBegin) / h;
+        for (int i = 0; i < P.length; ++i)
+        {
+            double w = 0;
+            for (int j = P[i].length - 1; j >= 0; --j)
+                w = (w + P[i][j]) * theta;
+            weights[i] = h * w;
+        }
+        System.arraycopy(yBegin, 0, dest, 0, yBegin.length);
+        for (int i = 0; i < P.length; ++i)
+        {
+            double w = weights[i];
+            if (w == 0)
+                continue;
+            double[] ki = k[i];
+            for (int l = 0; l < dest.length; ++l)
+                dest[l] += w * ki[l];
+        }
+    }
+
+    /**
+     * Returns coefficient c_deg of the interpolant of given (0-based) component, which is
+     * y(xBegin + theta*H) = y(xBegin) + H * sum of c_deg * theta^deg, where H = getH().
+     */
+    double getCoefficient(int comp, int deg)
+    {
+        ensureStages();
+        double res = 0;
+        for (int i = 0; i < P.length; ++i)
+            res += P[i][deg-1] * k[i][comp];
+        return res * Math.pow(getH() / h, deg - 1);
+    }
+
+    void setStep(double xBegin, double h, double xEnd)
+    {
+        this.xBegin = xBegin;
+        this.h = h;
+        this.xEnd = xEnd;
+        stagesKnown = false;
+    }
+
+    /**
+     * Shortens the step so that it ends at given argument.
+     */
+    void truncate(double xEnd)
+    {
+        this.xEnd = xEnd;
+    }
+
+    private void ensureStages()
+    {
+        if (stagesKnown || denseStages == null)
+            return;
+        denseStages.run();
+        stagesKnown = true;
+    }
+
+    private final double[][] P;
+    private final double[][] k;
+    private final double[] yBegin;
+    private final double[] weights;
+    private final Runnable denseStages;
+    private boolean stagesKnown;
+    private double xBegin;
+    private double xEnd;
+    private double h;
+}
@@ -0,0 +1,17 @@
+package numerics;
+
+/**
+ * Receives steps of an integration as they are accepted, instead of having them stored.
+ * @author Grzegorz Los
+ */
+public interface StepListener
+{
+    /**
+     * Called once for the initial state and then once after every accepted step.
+     * @param x argument reached by the step.
+     * @param h size of the step.
+     * @param y state at {@code x}; valid only during this call.
+     * @return true if the integration should go on, false to stop it.
+     */
+    public boolean stepAccepted(double x, double h, StateView y);
+}
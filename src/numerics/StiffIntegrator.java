@@ -0,0 +1,270 @@
+package numerics;
+
+import math.matrices.LUDecomposition;
+import math.matrices.Matrix;
+import math.matrices.UninvertibleMatrixException;
+import math.matrices.Vector;
+
+/**
+ * Base of the implicit engines for stiff problems. It keeps the state, the trajectory and
+ * the counters, and manages the Jacobian of the right hand side together with the LU
+ * decomposition of the iteration matrix I - gamma J. Both are expensive, so subclasses
+ * reuse them across steps and ask for fresh ones only when convergence degrades.
+ * <p>
+ * The Jacobian is approximated by forward differences, at the cost of dim evaluations
+ * of the right hand side.
+ * @author Grzegorz Los
+ */
+public abstract class StiffIntegrator implements Integrator
+{
+    @Override
+    public void solve(ODE ode, double tol)
+    {
+        trajectory = new Trajectory(ode.y0.getSize());
+        run(ode, tol, trajectory);
+    }
+
+    @Override
+    public void solve(ODE ode, double tol, StepListener listener)
+    {
+        trajectory = null;
+        run(ode, tol, listener);
+    }
+
+    @Override
+    public void setMaxStep(double maxStep)
+    {
+        if (maxStep <= 0)
+            throw new IllegalArgumentException("Maximal step must be positive, maxStep = " + maxStep);
+        this.maxStep = maxStep;
+    }
+
+    @Override
+    public Trajectory getTrajectory()
+    {
+        if (trajectory == null)
+            throw new IllegalStateException("Trajectory was not stored during the last run");
+        return trajectory;
+    }
+
+    @Override
+    public double getLastX()
+    {
+        return x;
+    }
+
+    @Override
+    public Vector getLastY()
+    {
+        return state.toVector();
+    }
+
+    @Override
+    public int getAcceptedSteps()
+    {
+        return accepted;
+    }
+
+    @Override
+    public int getRejectedSteps()
+    {
+        return rejected;
+    }
+
+    /**
+     * Returns the number of evaluations of the right hand side during the last run,
+     * including the ones spent on approximating the Jacobian.
+     * @return the number of evaluations of the right hand side.
+     */
+    @Override
+    public int getEvaluations()
+    {
+        return evaluations;
+    }
+
+    public int getJacobianEvaluations()
+    {
+        return jacobians;
+    }
+
+    public int getFactorizations()
+    {
+        return factorizations;
+    }
+
+    /**
+     * Prepares the engine for a run; x, y, ode and tol are already set.
+     */
+    abstract void start();
+
+    /**
+     * Performs one accepted step, updating x and y.
+     * @return size of the step.
+     */
+    abstract double step();
+
+    private void run(ODE ode, double tol, StepListener listener)
+    {
+        this.ode = ode;
+        this.tol = tol;
+        ensureWorkspace(ode.y0.getSize());
+        x = ode.x0;
+        for (int i = 0; i < dim; ++i)
+            y[i] = ode.y0.get(i+1);
+        accepted = 0;
+        rejected = 0;
+        evaluations = 0;
+        jacobians = 0;
+        factorizations = 0;
+        lu = null;
+        start();
+        if (!listener.stepAccepted(x, 0, state))
+            return;
+        for (int i = 0; i < maxSteps && x < ode.xn; ++i)
+        {
+            double h = step();
+            accepted++;
+            if (!listener.stepAccepted(x, h, state))
+                return;
+        }
+    }
+
+    private void ensureWorkspace(int dim)
+    {
+        if (J != null && this.dim == dim)
+            return;
+        this.dim = dim;
+        y = new double[dim];
+        state = new StateView(y);
+        J = new double[dim][dim];
+        fTmp = new double[dim];
+        yTmp = new double[dim];
+        allocate(dim);
+    }
+
+    /**
+     * Allocates workspaces of the subclass for given dimension.
+     */
+    abstract void allocate(int dim);
+
+    void evalF(double x, double[] y, double[] dydx)
+    {
+        evaluations++;
+        ode.f(x, y, dydx);
+    }
+
+    /**
+     * Approximates the Jacobian at (x, y) by forward differences and drops the LU
+     * decomposition, which was made with the old one.
+     * @param fy value of the right hand side at (x, y).
+     */
+    void updateJacobian(double x, double[] y, double[] fy)
+    {
+        jacobians++;
+        System.arraycopy(y, 0, yTmp, 0, dim);
+        for (int j = 0; j < dim; ++j)
+        {
+            double delta = Math.sqrt(Math.ulp(1.0)) * Math.max(1, Math.abs(y[j]));
+            yTmp[j] = y[j] + delta;
+            delta = yTmp[j] - y[j];
+            evalF(x, yTmp, fTmp);
+            for (int i = 0; i < dim; ++i)
+                J[i][j] = (fTmp[i] - fy[i]) / delta;
+            yTmp[j] = y[j];
+        }
+        lu = null;
+    }
+
+    /**
+     * Decomposes I - gamma J.
+     * @return false if the matrix is singular; the decomposition is unavailable then.
+     */
+    boolean factorize(double gamma)
+    {
+        factorizations++;
+        Matrix m = new Matrix(dim, dim);
+        for (int i = 0; i < dim; ++i)
+            for (int j = 0; j < dim; ++j)
+                m.set(i+1, j+1, (i == j ? 1 : 0) - gamma * J[i][j]);
+        try {
+            lu = m.lu();
+            return true;
+        } catch (UninvertibleMatrixException ex) {
+            lu = null;
+            return false;
+        }
+    }
+
+    /**
+     * Returns the weighted maximum norm of v, in which errors within tolerance are at most 1.
+     * @param v the vector, e.g. an error estimate.
+     * @param ref the state giving the scale of every component.
+     */
+    double norm(double[] v, double[] ref)
+    {
+        double res = 0;
+        for (int i = 0; i < dim; ++i)
+        {
+            double e = Math.abs(v[i]) / ((1 + Math.abs(ref[i])) * tol);
+            if (Double.isNaN(e))
+                return Double.POSITIVE_INFINITY;
+            res = Math.max(res, e);
+        }
+        return res;
+    }
+
+    /**
+     * Chooses the size of the first step from the derivative at the initial point and an
+     * estimate of the second derivative obtained by an Euler step, as proposed by Hairer
+     * et al.
+     * @param f0 value of the right hand side at the initial point.
+     * @param order order of the local error of the method.
+     */
+    double initialStep(double[] f0, int order)
+    {
+        double d0 = norm(y, y), d1 = norm(f0, y);
+        double h0 = d0 < 1e-5 || d1 < 1e-5 ? 1e-6 : 0.01 * d0 / d1;
+        h0 = limitStep(h0);
+        for (int i = 0; i < dim; ++i)
+            yTmp[i] = y[i] + h0 * f0[i];
+        evalF(x + h0, yTmp, fTmp);
+        for (int i = 0; i < dim; ++i)
+            fTmp[i] -= f0[i];
+        double d2 = norm(fTmp, y) / h0;
+        double h1 = Math.max(d1, d2) <= 1e-15 ? Math.max(1e-6, h0 * 1e-3)
+                : Math.pow(0.01 / Math.max(d1, d2), 1.0 / order);
+        return limitStep(Math.min(100 * h0, h1));
+    }
+
+    /**
+     * Limits given step size by the maximal step and the end of the interval.
+     */
+    double limitStep(double h)
+    {
+        return Math.min(h, Math.min(maxStep, ode.xn - x));
+    }
+
+    void ensureStepOK(double h)
+    {
+        if (h <= 16 * Math.ulp(x))
+            throw new RuntimeException("Step size too small at x = " + x);
+    }
+
+    ODE ode;
+    double tol;
+    int dim;
+    double x;
+    double[] y;
+    double[][] J;
+    LUDecomposition lu;
+    int rejected;
+    double maxStep = Double.POSITIVE_INFINITY;
+    private double[] fTmp, yTmp;
+    private StateView state;
+    private Trajectory trajectory;
+    private int accepted;
+    private int evaluations;
+    private int jacobians;
+    private int factorizations;
+    private final int maxSteps = 10000000;
+}
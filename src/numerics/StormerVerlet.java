@@ -0,0 +1,13 @@
+package numerics;
+
+/**
+ * Stormer-Verlet (leapfrog) method, the basic symplectic method of order 2.
+ * @author Grzegorz Los
+ */
+public class StormerVerlet extends SymplecticComposition
+{
+    public StormerVerlet()
+    {
+        super(new double[]{ 1 });
+    }
+}
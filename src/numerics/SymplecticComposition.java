@@ -0,0 +1,186 @@
+package numerics;
+
+import math.matrices.Vector;
+
+/**
+ * Fixed step symplectic integrator for {@link SeparableODE}s: a composition of
+ * Stormer-Verlet (leapfrog) steps of sizes w_1 h, ..., w_m h. Symplectic methods do not
+ * accumulate energy error, which stays bounded over very long times, so they can use
+ * much larger steps than adaptive methods on long runs.
+ * <p>
+ * Steps have the size set by {@link #setMaxStep(double)}, which must be called before
+ * solving; only the last one may be shorter, to end at the end of the interval. The
+ * tolerance passed to the solve methods is ignored. The force computed at the end of a
+ * substep is reused at the beginning of the next one, so a step costs m evaluations of
+ * the force.
+ * @author Grzegorz Los
+ */
+public abstract class SymplecticComposition implements Integrator
+{
+    /**
+     * Creates the composition of leapfrog steps with given weights.
+     * @param weights relative sizes of the substeps; they must sum up to 1.
+     */
+    protected SymplecticComposition(double[] weights)
+    {
+        this.weights = weights.clone();
+    }
+
+    @Override
+    public void solve(ODE ode, double tol)
+    {
+        trajectory = new Trajectory(ode.y0.getSize());
+        run(ode, trajectory);
+    }
+
+    @Override
+    public void solve(ODE ode, double tol, StepListener listener)
+    {
+        trajectory = null;
+        run(ode, listener);
+    }
+
+    /**
+     * Sets the step size.
+     * @param maxStep the step size.
+     */
+    @Override
+    public void setMaxStep(double maxStep)
+    {
+        if (maxStep <= 0)
+            throw new IllegalArgumentException("Maximal step must be positive, maxStep = " + maxStep);
+        this.maxStep = maxStep;
+    }
+
+    @Override
+    public Trajectory getTrajectory()
+    {
+        if (trajectory == null)
+            throw new IllegalStateException("Trajectory was not stored during the last run");
+        return trajectory;
+    }
+
+    @Override
+    public double getLastX()
+    {
+        return x;
+    }
+
+    @Override
+    public Vector getLastY()
+    {
+        return state.toVector();
+    }
+
+    @Override
+    public int getAcceptedSteps()
+    {
+        return steps;
+    }
+
+    @Override
+    public int getRejectedSteps()
+    {
+        return 0;
+    }
+
+    /**
+     * Returns the number of evaluations of the force during the last run.
+     * @return the number of evaluations of the force.
+     */
+    @Override
+    public int getEvaluations()
+    {
+        return evaluations;
+    }
+
+    private void run(ODE ode, StepListener listener)
+    {
+        if (!(ode instanceof SeparableODE))
+            throw new IllegalArgumentException("Symplectic composition needs a SeparableODE");
+        if (Double.isInfinite(maxStep))
+            throw new IllegalStateException("Step size of the symplectic composition is not set");
+        this.ode = (SeparableODE) ode;
+        prepare();
+        if (!listener.stepAccepted(x, 0, state))
+            return;
+        while (x < ode.xn)
+        {
+            double h = Math.min(maxStep, ode.xn - x);
+            double xNew = h >= ode.xn - x ? ode.xn : x + h;
+            if (xNew == x)
+                throw new RuntimeException("Step size too small at x = " + x);
+            step(h);
+            x = xNew;
+            steps++;
+            System.arraycopy(q, 0, y, 0, n);
+            System.arraycopy(p, 0, y, n, n);
+            if (!listener.stepAccepted(x, h, state))
+                return;
+        }
+    }
+
+    private void prepare()
+    {
+        n = ode.getDegreesOfFreedom();
+        if (y == null || y.length != 2 * n)
+        {
+            y = new double[2 * n];
+            state = new StateView(y);
+            q = new double[n];
+            p = new double[n];
+            dq = new double[n];
+            dp = new double[n];
+        }
+        x = ode.x0;
+        for (int i = 0; i < 2 * n; ++i)
+            y[i] = ode.y0.get(i+1);
+        System.arraycopy(y, 0, q, 0, n);
+        System.arraycopy(y, n, p, 0, n);
+        steps = 0;
+        evaluations = 0;
+        forceKnown = false;
+    }
+
+    /**
+     * Performs the composition of kick-drift-kick leapfrog steps.
+     */
+    private void step(double h)
+    {
+        double t = x;
+        for (double w : weights)
+        {
+            double hw = w * h;
+            if (!forceKnown)
+                evalForce(t);
+            for (int i = 0; i < n; ++i)
+                p[i] += 0.5 * hw * dp[i];
+            ode.velocity(t + 0.5 * hw, p, dq);
+            for (int i = 0; i < n; ++i)
+                q[i] += hw * dq[i];
+            t += hw;
+            evalForce(t);
+            for (int i = 0; i < n; ++i)
+                p[i] += 0.5 * hw * dp[i];
+        }
+    }
+
+    private void evalForce(double t)
+    {
+        evaluations++;
+        ode.force(t, q, dp);
+        forceKnown = true;
+    }
+
+    private final double[] weights;
+    private SeparableODE ode;
+    private int n;
+    private double x;
+    private double[] y, q, p, dq, dp;
+    private boolean forceKnown;
+    private StateView state;
+    private Trajectory trajectory;
+    private double maxStep = Double.POSITIVE_INFINITY;
+    private int steps;
+    private int evaluations;
+}
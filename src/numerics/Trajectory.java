@@ -0,0 +1,433 @@
+package numerics;
+
+import java.util.ArrayList;
+import math.matrices.Vector;
+
+/**
+ * Growable storage of the steps of an integration. Values are kept column-wise in primitive
+ * arrays: one column for the arguments, one for the step sizes and one for every component
+ * of the state. Columns grow by whole chunks, so appending never copies stored data.
+ * Steps are numbered from 0, components of the state from 1, like in {@link Vector}.
+ * <p>
+ * A dense trajectory also keeps the coefficients of the continuous extension of every
+ * step, which allows computing the state at any argument covered by the trajectory.
+ * <p>
+ * Steps are kept in the heap; {@link MappedTrajectory} keeps them in a file instead.
+ * @author Grzegorz Los
+ */
+public class Trajectory implements DenseStepListener
+{
+    /**
+     * Read-only view of a single column of the trajectory.
+     */
+    public class Column
+    {
+        private Column(int col)
+        {
+            this.col = col;
+        }
+
+        public double get(int step)
+        {
+            return Trajectory.this.get(step, col);
+        }
+
+        public int getSize()
+        {
+            return size;
+        }
+
+        /**
+         * Copies values of the column, starting from step {@code from}, to {@code dest}.
+         * @param from first step to copy.
+         * @param dest destination array; it determines how many values are copied.
+         */
+        public void copyTo(int from, double[] dest)
+        {
+            Trajectory.this.copyColumn(col, from, dest);
+        }
+
+        private final int col;
+    }
+
+    public Trajectory(int dim)
+    {
+        this(dim, false);
+    }
+
+    /**
+     * Creates empty trajectory.
+     * @param dim dimension of the state.
+     * @param dense whether continuous extensions of the steps should be stored.
+     */
+    public Trajectory(int dim, boolean dense)
+    {
+        if (dim <= 0)
+            throw new IllegalArgumentException("Dimension must be positive, dim = " + dim);
+        this.dim = dim;
+        this.dense = dense;
+        chunks = new ArrayList<>();
+        denseChunks = new ArrayList<>();
+    }
+
+    /**
+     * Creates empty trajectory whose continuous extensions have given degree, which is 0
+     * if they are not stored.
+     */
+    Trajectory(int dim, int degree)
+    {
+        this(dim, degree > 0);
+        this.degree = degree;
+        pending = new double[dim * degree];
+    }
+
+    public void append(double x, double h, double[] y)
+    {
+        store(size, x, h, y);
+        if (pendingDense)
+        {
+            storeDense(size, pending);
+            pendingDense = false;
+        }
+        size++;
+    }
+
+    @Override
+    public boolean stepAccepted(double x, double h, StateView y)
+    {
+        append(x, h, y.values);
+        return true;
+    }
+
+    @Override
+    public void denseStep(StepInterpolant interpolant)
+    {
+        if (!dense)
+            return;
+        if (degree == 0)
+        {
+            degree = interpolant.getDegree();
+            pending = new double[dim * degree];
+        }
+        else if (degree != interpolant.getDegree())
+            throw new IllegalArgumentException("Degree of the continuous extension changed from "
+                    + degree + " to " + interpolant.getDegree());
+        for (int i = 0; i < dim; ++i)
+            for (int deg = 1; deg <= degree; ++deg)
+                pending[i*degree + deg - 1] = interpolant.getCoefficient(i, deg);
+        pendingDense = true;
+    }
+
+    /**
+     * Appends a step together with the coefficients of its continuous extension, as they
+     * are kept by a dense trajectory.
+     */
+    void append(double x, double h, double[] y, double[] denseCoefficients)
+    {
+        if (degree == 0)
+        {
+            degree = denseCoefficients.length / dim;
+            pending = new double[dim * degree];
+        }
+        System.arraycopy(denseCoefficients, 0, pending, 0, pending.length);
+        pendingDense = true;
+        append(x, h, y);
+    }
+
+    /**
+     * Copies the coefficients of the continuous extension of given step of a dense
+     * trajectory; they are zero for step 0.
+     */
+    void copyDense(int step, double[] dest)
+    {
+        ensureStepOK(step);
+        for (int j = 0; j < dim * degree; ++j)
+            dest[j] = getDense(step, j);
+    }
+
+    /**
+     * Drops the steps after the first {@code size} ones.
+     */
+    void truncate(int size)
+    {
+        if (size < 0 || size > this.size)
+            throw new IndexOutOfBoundsException("Invalid size: " + size + ", size = " + this.size);
+        dropSteps(size);
+        this.size = size;
+        pendingDense = false;
+    }
+
+    /**
+     * Sets the number of steps of a trajectory whose storage was filled from outside.
+     */
+    void setStoredSize(int size)
+    {
+        this.size = size;
+    }
+
+    int getDegree()
+    {
+        return degree;
+    }
+
+    public void clear()
+    {
+        dropSteps(0);
+        size = 0;
+        pendingDense = false;
+    }
+
+    public boolean isDense()
+    {
+        return degree > 0;
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    public int getDimension()
+    {
+        return dim;
+    }
+
+    public double getX(int step)
+    {
+        return get(step, X_COL);
+    }
+
+    public double getH(int step)
+    {
+        return get(step, H_COL);
+    }
+
+    /**
+     * Returns given component of the state after given step.
+     * @param step number of the step, 0-based.
+     * @param comp component of the state, 1-based.
+     * @return value of the component.
+     */
+    public double getY(int step, int comp)
+    {
+        ensureComponentOK(comp);
+        return get(step, Y_COL + comp - 1);
+    }
+
+    public void copyY(int step, double[] dest)
+    {
+        ensureStepOK(step);
+        for (int i = 0; i < dim; ++i)
+            dest[i] = get(step, Y_COL + i);
+    }
+
+    public Vector getYVector(int step)
+    {
+        double[] y = new double[dim];
+        copyY(step, y);
+        return new Vector(y);
+    }
+
+    /**
+     * Computes the state at given argument. Dense trajectories use continuous extensions
+     * of the steps, otherwise stored states are interpolated linearly.
+     * @param x argument between the first and the last stored one.
+     * @param dest array receiving the state.
+     */
+    public void interpolate(double x, double[] dest)
+    {
+        int step = findStep(x);
+        for (int i = 0; i < dim; ++i)
+            dest[i] = interpolate(step, x, i);
+    }
+
+    /**
+     * Computes given component of the state at given argument.
+     * @param x argument between the first and the last stored one.
+     * @param comp component of the state, 1-based.
+     * @return interpolated value.
+     */
+    public double interpolate(double x, int comp)
+    {
+        ensureComponentOK(comp);
+        return interpolate(findStep(x), x, comp - 1);
+    }
+
+    public Vector interpolate(double x)
+    {
+        double[] y = new double[dim];
+        interpolate(x, y);
+        return new Vector(y);
+    }
+
+    public Column getXColumn()
+    {
+        return new Column(X_COL);
+    }
+
+    public Column getHColumn()
+    {
+        return new Column(H_COL);
+    }
+
+    public Column getYColumn(int comp)
+    {
+        ensureComponentOK(comp);
+        return new Column(Y_COL + comp - 1);
+    }
+
+    private double get(int step, int col)
+    {
+        ensureStepOK(step);
+        return getStored(step, col);
+    }
+
+    /**
+     * Finds the step ending the interval which contains x; 0 only when x is the first argument.
+     */
+    private int findStep(double x)
+    {
+        if (size == 0 || x < getX(0) || x > getX(size - 1))
+            throw new IllegalArgumentException("Argument " + x + " is not covered by the trajectory");
+        int lo = 0, hi = size - 1;
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (getX(mid) < x)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private double interpolate(int step, double x, int i)
+    {
+        if (step == 0)
+            return get(0, Y_COL + i);
+        double xBegin = get(step - 1, X_COL);
+        double yBegin = get(step - 1, Y_COL + i);
+        if (degree == 0)
+        {
+            double t = (x - xBegin) / (get(step, X_COL) - xBegin);
+            return yBegin + t * (get(step, Y_COL + i) - yBegin);
+        }
+        double h = get(step, H_COL);
+        double theta = (x - xBegin) / h;
+        double res = 0;
+        for (int deg = degree; deg >= 1; --deg)
+            res = (res + getDense(step, i*degree + deg - 1)) * theta;
+        return yBegin + h * res;
+    }
+
+    /**
+     * Stores values of given step; steps are stored in order, each one once after
+     * {@link #dropSteps(int)}.
+     */
+    void store(int step, double x, double h, double[] y)
+    {
+        int offset = step & chunkMask;
+        if (offset == 0)
+            chunks.add(new double[dim + 2][chunkSize]);
+        double[][] chunk = chunks.get(step >>> chunkBits);
+        chunk[X_COL][offset] = x;
+        chunk[H_COL][offset] = h;
+        for (int i = 0; i < dim; ++i)
+            chunk[Y_COL + i][offset] = y[i];
+    }
+
+    /**
+     * Stores the coefficients of the continuous extension of given step, after its values.
+     */
+    void storeDense(int step, double[] coefficients)
+    {
+        while (denseChunks.size() < chunks.size())
+            denseChunks.add(new double[dim * degree][chunkSize]);
+        double[][] chunk = denseChunks.get(step >>> chunkBits);
+        int offset = step & chunkMask;
+        for (int j = 0; j < coefficients.length; ++j)
+            chunk[j][offset] = coefficients[j];
+    }
+
+    /**
+     * Returns the stored value of given column; X_COL, H_COL and Y_COL + i are the columns.
+     */
+    double getStored(int step, int col)
+    {
+        return chunks.get(step >>> chunkBits)[col][step & chunkMask];
+    }
+
+    /**
+     * Returns coefficient j = comp*degree + deg - 1 of the continuous extension of given
+     * step, or 0 if it was not stored.
+     */
+    double getDense(int step, int j)
+    {
+        int c = step >>> chunkBits;
+        return c < denseChunks.size() ? denseChunks.get(c)[j][step & chunkMask] : 0;
+    }
+
+    /**
+     * Frees the storage of the steps after the first {@code size} ones.
+     */
+    void dropSteps(int size)
+    {
+        int neededChunks = (size + chunkMask) >>> chunkBits;
+        while (chunks.size() > neededChunks)
+            chunks.remove(chunks.size() - 1);
+        while (denseChunks.size() > neededChunks)
+            denseChunks.remove(denseChunks.size() - 1);
+    }
+
+    /**
+     * Copies stored values of given column; the range is already checked.
+     */
+    void copyStored(int col, int from, double[] dest)
+    {
+        int copied = 0;
+        while (copied < dest.length)
+        {
+            int step = from + copied;
+            int offset = step & chunkMask;
+            int len = Math.min(chunkSize - offset, dest.length - copied);
+            System.arraycopy(chunks.get(step >>> chunkBits)[col], offset, dest, copied, len);
+            copied += len;
+        }
+    }
+
+    private void copyColumn(int col, int from, double[] dest)
+    {
+        ensureStepOK(from);
+        if (from + dest.length > size)
+            throw new IndexOutOfBoundsException("Only " + (size - from) + " values available "
+                    + "from step " + from + ", requested " + dest.length);
+        copyStored(col, from, dest);
+    }
+
+    private void ensureStepOK(int step)
+    {
+        if (step < 0 || step >= size)
+            throw new IndexOutOfBoundsException("Invalid step: " + step + ", size = " + size);
+    }
+
+    private void ensureComponentOK(int comp)
+    {
+        if (comp <= 0 || comp > dim)
+            throw new IndexOutOfBoundsException("Invalid component: " + comp);
+    }
+
+    static final int X_COL = 0;
+    static final int H_COL = 1;
+    static final int Y_COL = 2;
+    private static final int chunkBits = 12;
+    private static final int chunkSize = 1 << chunkBits;
+    private static final int chunkMask = chunkSize - 1;
+    private final int dim;
+    private final boolean dense;
+    private final ArrayList<double[][]> chunks;
+    private final ArrayList<double[][]> denseChunks;
+    private int size;
+    private int degree;
+    private double[] pending;
+    private boolean pendingDense;
+}
@@ -0,0 +1,143 @@
+package numerics;
+
+/**
+ * Explicit Runge-Kutta pair of orders 9 and 8 by Verner, his most efficient 9(8) pair
+ * with 16 stages. The step is propagated by the ninth order solution, which uses stages
+ * 1 and 8 to 15, and the error is estimated by the eighth order one, which uses stages 1,
+ * 8 to 13 and 16. The last stage is not reused, so a step costs 16 evaluations, which
+ * pays off against {@link DOP853} at tolerances near the rounding error.
+ * <p>
+ * The coefficients satisfy all the conditions of order 9 and 8, respectively, to the
+ * rounding error. The continuous extension of order 6 needs f at the end of the step as
+ * an additional stage, which is evaluated only for steps whose interior is needed.
+ * @author Grzegorz Los
+ */
+public class Verner98 implements EmbeddedMethod
+{
+    @Override
+    public RungeKutta getMethod()
+    {
+        double[] b9 = makeB9();
+        return new RungeKutta(makeA(b9), null, makeB8(), b9, makeC(), makeDenseOutput(),
+                true, 8);
+    }
+
+    /**
+     * Returns the Runge-Kutta matrix; row 17 is the additional stage of the continuous
+     * extension, f at the end of the step.
+     */
+    private double[][] makeA(double[] b9)
+    {
+        double[][] rows = new double[][] {
+            {},
+            {0.03462},
+            {-0.03893354388572873, 0.13595789452450918},
+            {0.03638413148954267, 0, 0.10915239446862803},
+            {2.0257639143939694, 0, -7.638023836496291, 6.173259922102322},
+            {0.05112275589406061, 0, 0, 0.17708237945550218, 0.0008027762409222536},
+            {0.13160063579752163, 0, 0, -0.2957276252669636, 0.08781378035642955,
+                0.6213052975225274},
+            {0.07166666666666667, 0, 0, 0, 0, 0.33055335789153195, 0.2427799754418014},
+            {0.071806640625, 0, 0, 0, 0, 0.3294380283228177, 0.1165190029271823,
+                -0.034013671875},
+            {0.04836757646340646, 0, 0, 0, 0, 0.03928989925676164, 0.10547409458903446,
+                -0.021438652846483126, -0.10412291746271944},
+            {-0.026645614872014785, 0, 0, 0, 0, 0.03333333333333333, -0.1631072244872467,
+                0.03396081684127761, 0.1572319413814626, 0.21522674780318796},
+            {0.03689009248708622, 0, 0, 0, 0, -0.1465181576725543, 0.2242577768172024,
+                0.02294405717066073, -0.0035850052905728597, 0.08669223316444385,
+                0.43838406519683376},
+            {-0.4866012215113341, 0, 0, 0, 0, -6.304602650282853, -0.2812456182894729,
+                -2.679019236219849, 0.5188156639241577, 1.3653531876033418, 5.8850910885039465,
+                2.8028087862720628},
+            {0.4185367457753472, 0, 0, 0, 0, 6.724547581906459, -0.42544428016461133,
+                3.3432791530012653, 0.6170816631175374, -0.9299661239399329,
+                -6.099948804751011, -3.002206187889399, 0.2553202529443446},
+            {-0.7793740861228963, 0, 0, 0, 0, -13.937342538107877, 1.2520488533793157,
+                -14.691500408016724, -0.4947050585331259, 2.2429749091462616,
+                13.367893803828736, 14.396650486650564, -0.7975813331776803,
+                0.4409353709534309},
+            {2.0580513374668867, 0, 0, 0, 0, 22.357937727968032, 0.9094981099755646,
+                35.89110098240264, -3.442515027624454, -4.865481358036369, -18.909803813543427,
+                -34.26354448030452, 1.2647565216956427},
+            b9,
+        };
+        double[][] mat = new double[n][n];
+        for (int i = 0; i < rows.length; ++i)
+            System.arraycopy(rows[i], 0, mat[i], 0, Math.min(i, rows[i].length));
+        return mat;
+    }
+
+    private double[] makeB9()
+    {
+        return new double[] {
+            0.014611976858423156, 0, 0, 0, 0, 0, 0, -0.39152118623313403, 0.23109325002895068,
+            0.12747667699928525, 0.22464341762041576, 0.5684352689748514, 0.058258715572158226,
+            0.1364317403482216, 0.030570139830827972, 0
+        };
+    }
+
+    private double[] makeB8()
+    {
+        return new double[] {
+            0.019969965148867733, 0, 0, 0, 0, 0, 0, 2.191499304949329, 0.08857071848208443,
+            0.11405602348659656, 0.2533163805345107, -2.0565643862409404, 0.340809679901312,
+            0, 0, 0.048342313738239585
+        };
+    }
+
+    private double[] makeC()
+    {
+        return new double[] {
+            0, 0.03462, 0.09702435063878045, 0.14553652595817068, 0.561, 0.22900791159048503,
+            0.544992088409515, 0.645, 0.48375, 0.06757, 0.25, 0.6590650618730999, 0.8206,
+            0.9012, 1, 1, 1
+        };
+    }
+
+    /**
+     * Returns the coefficients of the continuous extension of order 6 in powers of theta,
+     * starting from theta^1. It uses stages 1 and 8 to 17 only, whose stage order is at
+     * least 5, and matches y1 and the derivatives k_1 at 0 and k_17 at 1, so the dense
+     * output is continuously differentiable.
+     */
+    private double[][] makeDenseOutput()
+    {
+        double[][] rows = new double[][] {
+            {1.0, -9.294013693594513, 33.32998914805507, -55.29413969125436,
+                42.862038573872084, -12.589262360219866},
+            {},
+            {},
+            {},
+            {},
+            {},
+            {},
+            {0, 1.4642395582978978, -13.980015231822367, 33.13727301203009,
+                -32.54058567918348, 11.527567154444723},
+            {0, -5.192451178102389, 29.37134353097607, -54.65848187938151,
+                43.359297378418084, -12.648614601881299},
+            {0, 9.154963476814322, -44.85756977697715, 83.95621456554763,
+                -69.19471364542537, 21.06858205703986},
+            {0, 2.150227376818937, 2.92526102271511, -19.950445443175195,
+                23.872058816651805, -8.772458355390242},
+            {0, 2.859429650360578, -15.647712473074579, 37.31722425109838,
+                -35.71841807056622, 11.757911911156699},
+            {0, 0.5959620588835073, -2.1448874249292014, 0.0315439329821352,
+                4.337278466722235, -2.7616383180865207},
+            {0, -2.79369049082661, 18.443348880095478, -43.53253588512783,
+                43.72837753536503, -15.70906829915784},
+            {0, 0.43882450700370995, -2.434357835749534, 6.335191731076335,
+                -6.93918714393394, 2.630098881434257},
+            {0, 0.4082543671722517, -2.4526999196442705, 6.32907770310177,
+                -6.933073115959737, 2.648440965329985},
+            {0, 0.2082543671723085, -2.552699919644626, 6.32907770310256,
+                -6.8330731159604925, 2.848440965330247},
+        };
+        double[][] P = new double[n][6];
+        for (int i = 0; i < n; ++i)
+            System.arraycopy(rows[i], 0, P[i], 0, rows[i].length);
+        return P;
+    }
+
+    private static final int n = 17;
+}
@@ -0,0 +1,16 @@
+package numerics;
+
+/**
+ * Symplectic method of order 4: Yoshida's triple jump composition of Stormer-Verlet
+ * steps, with weights w1, w0, w1 where w1 = 1 / (2 - 2^(1/3)) and w0 = 1 - 2 w1.
+ * @author Grzegorz Los
+ */
+public class Yoshida4 extends SymplecticComposition
+{
+    public Yoshida4()
+    {
+        super(new double[]{ w1, 1 - 2 * w1, w1 });
+    }
+
+    private static final double w1 = 1 / (2 - Math.cbrt(2));
+}
@@ -0,0 +1,19 @@
+package numerics;
+
+/**
+ * Symplectic method of order 6: Yoshida's symmetric composition of seven Stormer-Verlet
+ * steps (solution A), with weights w3, w2, w1, w0, w1, w2, w3.
+ * @author Grzegorz Los
+ */
+public class Yoshida6 extends SymplecticComposition
+{
+    public Yoshida6()
+    {
+        super(new double[]{ w3, w2, w1, w0, w1, w2, w3 });
+    }
+
+    private static final double w1 = -1.17767998417887;
+    private static final double w2 = 0.235573213359357;
+    private static final double w3 = 0.784513610477560;
+    private static final double w0 = 1 - 2 * (w1 + w2 + w3);
+}
@@ -0,0 +1,222 @@
+package uwertura;
+
+import arenstorf.SimData;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import numerics.Brent;
+import numerics.Function;
+import numerics.StateView;
+import numerics.StepListener;
+import numerics.UnsatisfiedConditionsException;
+
+/**
+ * Solves the boundary problem for a whole range of c by continuation. The range is split
+ * into chunks of consecutive values, which are solved concurrently; inside a chunk every
+ * next c starts from the initial derivative extrapolated from the solutions for the
+ * previous ones, linearly in the logarithm of its absolute value, in a bracket whose width
+ * is a few times the error of the previous extrapolation. The bracket is widened until
+ * T(1) changes its sign at its ends and then refined by {@link Brent}'s method, which on
+ * this smooth problem needs only a few simulations per c. The first c of a chunk starts
+ * from the crude bracket [-2/c^3, 0].
+ * @author Grzegorz Los
+ */
+public class Continuation
+{
+    /**
+     * Creates the sweep using its own pool, with one thread per available processor.
+     * @param sd parameters of every simulation.
+     * @param accuracy accuracy of the derivatives relative to their absolute values.
+     */
+    public Continuation(SimData sd, double accuracy)
+    {
+        this(sd, accuracy, null);
+    }
+
+    /**
+     * Creates the sweep running the chunks on given executor, which is not shut down by
+     * the sweep.
+     * @param sd parameters of every simulation.
+     * @param accuracy accuracy of the derivatives relative to their absolute values.
+     * @param executor executor running the chunks.
+     */
+    public Continuation(SimData sd, double accuracy, ExecutorService executor)
+    {
+        this.sd = sd;
+        this.accuracy = accuracy;
+        this.executor = executor;
+        chunks = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Sets the number of chunks solved concurrently; by default it is the number of
+     * available processors.
+     * @param chunks number of chunks.
+     */
+    public void setChunks(int chunks)
+    {
+        if (chunks <= 0)
+            throw new IllegalArgumentException("Number of chunks must be positive, chunks = " + chunks);
+        this.chunks = chunks;
+    }
+
+    /**
+     * Solves the problem for given number of values of c spread evenly over [from, to].
+     * Derivatives which could not be found are NaN.
+     * @param from the first c.
+     * @param to the last c.
+     * @param points number of values of c.
+     */
+    public void sweep(double from, double to, int points)
+    {
+        if (points <= 0)
+            throw new IllegalArgumentException("Number of points must be positive, points = " + points);
+        c = new double[points];
+        derivative = new double[points];
+        runs = new int[points];
+        for (int i = 0; i < points; ++i)
+            c[i] = points == 1 ? from : from + (to - from) * i / (points - 1);
+        int n = Math.min(chunks, points);
+        ArrayList<Callable<Void>> tasks = new ArrayList<>();
+        for (int k = 0; k < n; ++k)
+        {
+            final int first = k * points / n, last = (k + 1) * points / n;
+            tasks.add(new Callable<Void>() {
+                @Override public Void call() {
+                    solveChunk(first, last);
+                    return null;
+                }
+            });
+        }
+        ExecutorService ex = executor != null ? executor : Executors.newFixedThreadPool(n);
+        try {
+            for (Future<Void> future: ex.invokeAll(tasks))
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Sweep interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Sweep failed", e.getCause());
+        } finally {
+            if (executor == null)
+                ex.shutdownNow();
+        }
+    }
+
+    public int getPoints()
+    {
+        return c.length;
+    }
+
+    public double getC(int i)
+    {
+        return c[i];
+    }
+
+    /**
+     * Returns the initial derivative for which T(1) = 0 for the i-th value of c.
+     */
+    public double getDerivative(int i)
+    {
+        return derivative[i];
+    }
+
+    /**
+     * Returns the number of simulations made for the i-th value of c.
+     */
+    public int getRuns(int i)
+    {
+        return runs[i];
+    }
+
+    public int getTotalRuns()
+    {
+        int res = 0;
+        for (int r: runs)
+            res += r;
+        return res;
+    }
+
+    private void solveChunk(int first, int last)
+    {
+        double lastError = Double.NaN;
+        for (int i = first; i < last; ++i)
+        {
+            int known = 0;
+            while (known < 2 && i - known > first && !Double.isNaN(derivative[i-known-1]))
+                known++;
+            double predicted, width;
+            if (known == 0)
+            {
+                predicted = -1.0 / c[i] / c[i] / c[i];
+                width = -predicted;
+            }
+            else if (known == 1)
+            {
+                predicted = derivative[i-1];
+                width = 0.25 * Math.abs(predicted);
+            }
+            else
+            {
+                double l1 = Math.log(-derivative[i-1]), l2 = Math.log(-derivative[i-2]);
+                predicted = -Math.exp(l1 + (l1 - l2) * (c[i] - c[i-1]) / (c[i-1] - c[i-2]));
+                width = Double.isNaN(lastError) ? 0.05 * Math.abs(predicted)
+                        : Math.max(4 * lastError, 10 * accuracy * Math.abs(predicted));
+            }
+            derivative[i] = solvePoint(i, predicted - width, Math.min(predicted + width, 0),
+                    Math.abs(predicted));
+            lastError = known == 2 ? Math.abs(derivative[i] - predicted) : Double.NaN;
+        }
+    }
+
+    /**
+     * Widens the bracket until T(1) changes its sign at its ends and finds the root.
+     * @return the root, or NaN if no bracket was found.
+     */
+    private double solvePoint(final int i, double lower, double upper, double scale)
+    {
+        Function shot = new Function() {
+            @Override public double eval(double dt) {
+                runs[i]++;
+                return shoot(c[i], dt);
+            }
+        };
+        double tLower = shot.eval(lower), tUpper = shot.eval(upper);
+        double width = upper - lower;
+        for (int k = 0; k < maxWidenings && (tLower > 0 || tUpper < 0); ++k)
+        {
+            if (tLower > 0)
+                tLower = shot.eval(lower -= width);
+            if (tUpper < 0 && upper < 0)
+                tUpper = shot.eval(upper = Math.min(upper + width, 0));
+            width *= 2;
+        }
+        try {
+            return new Brent(shot, accuracy * scale).solve(lower, tLower, upper, tUpper, 0);
+        } catch (UnsatisfiedConditionsException ex) {
+            return Double.NaN;
+        }
+    }
+
+    private double shoot(double c, double dt)
+    {
+        Uwertura u = new Uwertura(c, 1, dt);
+        u.calculate(sd, new StepListener() {
+            @Override public boolean stepAccepted(double x, double h, StateView y) {
+                return true;
+            }
+        });
+        return u.getLastT();
+    }
+
+    private final SimData sd;
+    private final double accuracy;
+    private final ExecutorService executor;
+    private int chunks;
+    private double[] c, derivative;
+    private int[] runs;
+    private static final int maxWidenings = 30;
+}
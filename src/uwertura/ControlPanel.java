@@ -38,17 +38,22 @@ public class ControlPanel extends javax.swing.JPanel
 
         jLabel1 = new javax.swing.JLabel();
         c = new javax.swing.JSpinner();
-        tries = new javax.swing.JSpinner();
+        digits = new javax.swing.JSpinner();
         jLabel2 = new javax.swing.JLabel();
         draw = new javax.swing.JToggleButton();
+        jLabel3 = new javax.swing.JLabel();
+        cTo = new javax.swing.JSpinner();
+        jLabel4 = new javax.swing.JLabel();
+        points = new javax.swing.JSpinner();
+        sweep = new javax.swing.JToggleButton();
 
         jLabel1.setText("c");
 
         c.setModel(new javax.swing.SpinnerNumberModel(10.0d, 0.01d, 1000.0d, 1.0d));
 
-        tries.setModel(new javax.swing.SpinnerNumberModel(1, 1, 20, 1));
+        digits.setModel(new javax.swing.SpinnerNumberModel(6, 1, 14, 1));
 
-        jLabel2.setText("tries");
+        jLabel2.setText("digits");
 
         draw.setText("Draw");
         draw.addActionListener(new java.awt.event.ActionListener()
@@ -59,6 +64,23 @@ public class ControlPanel extends javax.swing.JPanel
             }
         });
 
+        jLabel3.setText("sweep c to");
+
+        cTo.setModel(new javax.swing.SpinnerNumberModel(20.0d, 0.01d, 1000.0d, 1.0d));
+
+        jLabel4.setText("points");
+
+        points.setModel(new javax.swing.SpinnerNumberModel(50, 2, 10000, 1));
+
+        sweep.setText("Sweep");
+        sweep.addActionListener(new java.awt.event.ActionListener()
+        {
+            public void actionPerformed(java.awt.event.ActionEvent evt)
+            {
+                sweepActionPerformed(evt);
+            }
+        });
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(this);
         this.setLayout(layout);
         layout.setHorizontalGroup(
@@ -71,10 +93,22 @@ public class ControlPanel extends javax.swing.JPanel
                 .addGap(69, 69, 69)
                 .addComponent(jLabel2)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                .addComponent(tries, javax.swing.GroupLayout.PREFERRED_SIZE, 88, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addComponent(digits, javax.swing.GroupLayout.PREFERRED_SIZE, 88, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, 176, Short.MAX_VALUE)
                 .addComponent(draw)
                 .addGap(46, 46, 46))
+            .addGroup(layout.createSequentialGroup()
+                .addContainerGap()
+                .addComponent(jLabel3)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(cTo, javax.swing.GroupLayout.PREFERRED_SIZE, 76, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addGap(18, 18, 18)
+                .addComponent(jLabel4)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(points, javax.swing.GroupLayout.PREFERRED_SIZE, 88, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, 176, Short.MAX_VALUE)
+                .addComponent(sweep)
+                .addGap(46, 46, 46))
         );
         layout.setVerticalGroup(
             layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
@@ -83,9 +117,16 @@ public class ControlPanel extends javax.swing.JPanel
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(jLabel1)
                     .addComponent(c, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
-                    .addComponent(tries, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(digits, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
                     .addComponent(jLabel2)
                     .addComponent(draw))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(jLabel3)
+                    .addComponent(cTo, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(jLabel4)
+                    .addComponent(points, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(sweep))
                 .addContainerGap(21, Short.MAX_VALUE))
         );
     }// </editor-fold>//GEN-END:initComponents
@@ -95,18 +136,31 @@ public class ControlPanel extends javax.swing.JPanel
         pcs.firePropertyChange("Draw clicked", 0, 1);
     }//GEN-LAST:event_drawActionPerformed
 
+    private void sweepActionPerformed(java.awt.event.ActionEvent evt)//GEN-FIRST:event_sweepActionPerformed
+    {//GEN-HEADEREND:event_sweepActionPerformed
+        pcs.firePropertyChange("Sweep clicked", 0, 1);
+    }//GEN-LAST:event_sweepActionPerformed
+
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JSpinner c;
+    private javax.swing.JSpinner cTo;
     private javax.swing.JToggleButton draw;
     private javax.swing.JLabel jLabel1;
     private javax.swing.JLabel jLabel2;
-    private javax.swing.JSpinner tries;
+    private javax.swing.JLabel jLabel3;
+    private javax.swing.JLabel jLabel4;
+    private javax.swing.JSpinner points;
+    private javax.swing.JSpinner digits;
+    private javax.swing.JToggleButton sweep;
     // End of variables declaration//GEN-END:variables
 
-    int getTries()
+    /**
+     * Returns the number of significant digits of the initial derivative to be found.
+     */
+    int getDigits()
     {
-        return (Integer) tries.getValue();
+        return (Integer) digits.getValue();
     }
 
     double getC()
@@ -114,9 +168,20 @@ public class ControlPanel extends javax.swing.JPanel
         return (Double) c.getValue();
     }
 
+    double getCTo()
+    {
+        return (Double) cTo.getValue();
+    }
+
+    int getPoints()
+    {
+        return (Integer) points.getValue();
+    }
+
     void drawEnabled(boolean b)
     {
         draw.setEnabled(b);
+        sweep.setEnabled(b);
     }
     
         @Override
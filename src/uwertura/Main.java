@@ -12,9 +12,16 @@ import javax.swing.JFrame;
 import static javax.swing.JFrame.EXIT_ON_CLOSE;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
 import javax.swing.JTabbedPane;
+import javax.swing.JTable;
 import javax.swing.JTextArea;
 import javax.swing.SwingUtilities;
+import javax.swing.table.DefaultTableModel;
+import numerics.Collocation;
+import numerics.Trajectory;
+import numerics.UnsatisfiedConditionsException;
+import plot.PlotObject;
 import plot.PlotPanel;
 
 /**
@@ -50,6 +57,7 @@ public class Main extends JFrame
         paneResults.add("plot", makePlotPanel());
         paneResults.add("step", makeStepPanel());
         paneResults.add("results", makePeriodEndPanel());
+        paneResults.add("sweep", makeSweepPanel());
         add(paneResults, BorderLayout.CENTER);
         add(makeSouth(), BorderLayout.SOUTH);
     }
@@ -72,12 +80,25 @@ public class Main extends JFrame
         return new JScrollPane(resultInfo);
     }
 
+    private JComponent makeSweepPanel()
+    {
+        sweepTable = new DefaultTableModel(new Object[]{"c", "T'(0)", "simulations"}, 0);
+        plotSweep = new PlotPanel();
+        JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT,
+                new JScrollPane(new JTable(sweepTable)), plotSweep);
+        split.setDividerLocation(300);
+        return split;
+    }
+
     private Component makeSouth()
     {
         controlPanel = new ControlPanel();
         controlPanel.addPropertyChangeListener(new PropertyChangeListener() {
             @Override public void propertyChange(PropertyChangeEvent evt) {
-                drawClicked();
+                if (evt.getPropertyName().equals("Sweep clicked"))
+                    sweepClicked();
+                else
+                    drawClicked();
             }
         });
         return controlPanel;
@@ -86,32 +107,94 @@ public class Main extends JFrame
     private void calculate()
     {
         double c = controlPanel.getC();
-        int tries = controlPanel.getTries();
         double guess = -1.0/c/c/c;
         double upperBound = 0;
         double lowerBound = 2*guess;
+        double accuracy = Math.abs(guess) * Math.pow(10, -controlPanel.getDigits());
         plotSol.clear();
         resultInfo.setText("");
-        for (int i = 0; i < tries; ++i)
-        {
-            Uwertura u = new Uwertura(c, 1, guess);
-            u.calculate(new SimData(10-9, 1));
-            plotSol.addPlotObject(u.getPlotObject(getColor(i)));
-            plotH.clear();
-            plotH.addPlotObject(u.getPOForStep());
-            appendResultInfo(guess, u.getLastT());
-            if (u.getLastT() > 0) // poczatkowo byla ustawiona zbyt duza (mala co do modulu) pochodna
-                upperBound = guess;      
-            else lowerBound = guess;
-            
-                guess = (lowerBound + upperBound) / 2;
+        Shooting shooting = new Shooting(c, new SimData(tolerance, 1),
+                Runtime.getRuntime().availableProcessors());
+        Shooting.Listener listener = new Shooting.Listener() {
+            @Override public void tried(int round, double guess, Uwertura u) {
+                plotSol.addPlotObject(u.getPlotObject(getColor(round)));
+                plotH.clear();
+                plotH.addPlotObject(u.getPOForStep());
+                appendResultInfo(guess, u.getLastT());
+            }
+        };
+        try {
+            double result = shooting.shoot(lowerBound, upperBound, accuracy, listener);
+            resultInfo.append("derivative = " + result + " after " + shooting.getRounds()
+                    + " rounds, " + shooting.getRuns() + " simulations, "
+                    + shooting.getEvaluations() + " evaluations\n");
+        } catch (UnsatisfiedConditionsException ex) {
+            resultInfo.append("shooting failed: " + ex.getMessage() + "\n");
+        }
+        resultInfo.append("exact derivative = " + Uwertura.exactDerivative(c, 1) + "\n");
+        try {
+            collocate(c);
+        } catch (RuntimeException ex) {
+            resultInfo.append("collocation failed: " + ex.getMessage() + "\n");
         }
         plotSol.setMinY(-1);
         plotSol.setMaxX(1);
         plotSol.repaint();
-        controlPanel.drawEnabled(true);
     }
     
+    /**
+     * Solves the problem by collocation, which does not blow up for large c as shooting
+     * does, starting from the straight line on a uniform mesh, and draws the solution.
+     */
+    private void collocate(double c)
+    {
+        int points = 11;
+        double[] mesh = new double[points];
+        double[][] guess = new double[points][];
+        for (int i = 0; i < points; ++i)
+        {
+            mesh[i] = (double) i / (points - 1);
+            guess[i] = new double[]{ 1 - mesh[i], -1 };
+        }
+        Collocation collocation = new Collocation();
+        Trajectory solution = collocation.solve(Uwertura.makeBoundaryProblem(c, 1),
+                collocationTolerance, mesh, guess);
+        PlotObject po = new PlotObject("collocation", Color.BLACK, PlotObject.Type.Lines);
+        for (int i = 0; i < solution.getSize(); ++i)
+            po.addPoint(solution.getX(i), solution.getY(i, 1));
+        plotSol.addPlotObject(po);
+        resultInfo.append("collocation: derivative = " + solution.getY(0, 2) + " on "
+                + solution.getSize() + " mesh points, " + collocation.getEvaluations()
+                + " evaluations\n");
+    }
+
+    /**
+     * Solves the problem for the range of c from the control panel by continuation and
+     * shows the derivatives in the table and, as log10(-T'(0)), on the plot.
+     */
+    private void sweep()
+    {
+        final Continuation continuation = new Continuation(new SimData(tolerance, 1),
+                Math.pow(10, -controlPanel.getDigits()));
+        continuation.sweep(controlPanel.getC(), controlPanel.getCTo(), controlPanel.getPoints());
+        PlotObject po = new PlotObject("log10(-T'(0))", Color.BLUE, PlotObject.Type.Lines);
+        for (int i = 0; i < continuation.getPoints(); ++i)
+            if (continuation.getDerivative(i) < 0)
+                po.addPoint(continuation.getC(i), Math.log10(-continuation.getDerivative(i)));
+        plotSweep.clear();
+        plotSweep.addPlotObject(po);
+        plotSweep.repaint();
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override public void run() {
+                sweepTable.setRowCount(0);
+                for (int i = 0; i < continuation.getPoints(); ++i)
+                    sweepTable.addRow(new Object[]{continuation.getC(i),
+                        continuation.getDerivative(i), continuation.getRuns(i)});
+                paneResults.setSelectedIndex(paneResults.getTabCount() - 1);
+            }
+        });
+    }
+
     private static Color getColor(int i)
     {
         if (i < colors.length)
@@ -124,7 +207,29 @@ public class Main extends JFrame
         controlPanel.drawEnabled(false);
         new Thread( new Runnable() {
             @Override public void run() {
-                calculate();
+                try {
+                    calculate();
+                } catch (RuntimeException ex) {
+                    resultInfo.append("calculation failed: " + ex + "\n");
+                } finally {
+                    controlPanel.drawEnabled(true);
+                }
+            }
+        }).start();
+    }
+    
+    private void sweepClicked()
+    {
+        controlPanel.drawEnabled(false);
+        new Thread( new Runnable() {
+            @Override public void run() {
+                try {
+                    sweep();
+                } catch (RuntimeException ex) {
+                    resultInfo.append("sweep failed: " + ex + "\n");
+                } finally {
+                    controlPanel.drawEnabled(true);
+                }
             }
         }).start();
     }
@@ -141,7 +246,11 @@ public class Main extends JFrame
     private PlotPanel plotSol;
     private PlotPanel plotH;
     private JTextArea resultInfo;
+    private PlotPanel plotSweep;
+    private DefaultTableModel sweepTable;
     private final double initialGuess = -0.001;
+    private final double tolerance = 1e-9;
+    private final double collocationTolerance = 1e-6;
     private static final Color[] colors = new Color[]{
         Color.BLUE, Color.CYAN, Color.DARK_GRAY, Color.GRAY, Color.GREEN, Color.LIGHT_GRAY,
         Color.MAGENTA, Color.ORANGE, Color.PINK, Color.RED, Color.YELLOW};
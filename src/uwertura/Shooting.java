@@ -0,0 +1,265 @@
+package uwertura;
+
+import arenstorf.SimData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import numerics.UnsatisfiedConditionsException;
+
+/**
+ * Shooting for the initial derivative for which T(1) = 0, by parallel multisection. Every
+ * round tries k guesses dividing the bracket into k+1 equal parts, each on its own
+ * {@link Uwertura} instance and concurrently, and keeps the part in which T(1) changes its
+ * sign; so the bracket shrinks k+1 times per round instead of twice, and the rounds stop
+ * when it is not longer than the target accuracy or cannot be divided any more. With
+ * k = 1 it is the bisection. A bracket in which T(1) does not change its sign is widened
+ * before the rounds.
+ * <p>
+ * Early rounds only need the sign of T(1) at guesses far from the root, so the tolerance
+ * of the integrations is scheduled by the width of the bracket: it is proportional to the
+ * width, between the coarse tolerance and the tolerance of the simulation data, which is
+ * reached when the bracket narrows to the target accuracy. The ends of the final bracket
+ * are then evaluated again with the tolerance of the simulation data; if T(1) does not
+ * change its sign between them, the bracket is widened and the rounds are resumed with
+ * that tolerance.
+ * @author Grzegorz Los
+ */
+public class Shooting
+{
+    /**
+     * Receives the tries of every round, in the order of guesses, on the thread which
+     * called {@link #shoot(double, double, double, Listener)}.
+     */
+    public interface Listener
+    {
+        public void tried(int round, double guess, Uwertura u);
+    }
+
+    /**
+     * Creates the driver using its own pool, with one thread per guess, during every
+     * shooting.
+     * @param c parameter of the equation.
+     * @param sd parameters of every simulation; its tolerance is the one of the last rounds.
+     * @param guesses number of guesses per round.
+     */
+    public Shooting(double c, SimData sd, int guesses)
+    {
+        this(c, sd, guesses, null);
+    }
+
+    /**
+     * Creates the driver running the simulations on given executor, which is not shut down
+     * by the driver.
+     * @param c parameter of the equation.
+     * @param sd parameters of every simulation; its tolerance is the one of the last rounds.
+     * @param guesses number of guesses per round.
+     * @param executor executor running the simulations.
+     */
+    public Shooting(double c, SimData sd, int guesses, ExecutorService executor)
+    {
+        if (guesses <= 0)
+            throw new IllegalArgumentException("Number of guesses must be positive, guesses = " + guesses);
+        this.c = c;
+        this.sd = sd;
+        this.guesses = guesses;
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the largest tolerance used in the first rounds; it is 1e-3 by default. The
+     * tolerance of the simulation data turns the schedule off.
+     * @param tol the coarse tolerance.
+     */
+    public void setCoarseTolerance(double tol)
+    {
+        coarseTol = tol;
+    }
+
+    /**
+     * Finds the initial derivative in given bracket. T(1) should be negative for the lower
+     * bound and positive for the upper one; if it is not, the bracket is widened first,
+     * doubling the step every time, but never above 0.
+     * @param lower lower bound of the derivative.
+     * @param upper upper bound of the derivative.
+     * @param accuracy length of the bracket at which the rounds stop.
+     * @param listener receives all tries, may be null.
+     * @return the middle of the final bracket.
+     * @throws UnsatisfiedConditionsException when T(1) does not change its sign in the
+     * widened bracket.
+     */
+    public double shoot(double lower, double upper, double accuracy, Listener listener)
+            throws UnsatisfiedConditionsException
+    {
+        rounds = 0;
+        runs = 0;
+        evaluations = 0;
+        ExecutorService ex = executor != null ? executor : Executors.newFixedThreadPool(guesses);
+        try {
+            boolean fine = coarseTol <= sd.tolerance;
+            double[] bracket = widen(lower, upper,
+                    new SimData(tolerance(upper - lower, accuracy), sd.time, sd.method),
+                    listener, ex);
+            while (true)
+            {
+                lower = bracket[0];
+                upper = bracket[1];
+                while (upper - lower > accuracy)
+                {
+                    double width = (upper - lower) / (guesses + 1);
+                    if (lower + width <= lower || lower + guesses * width >= upper)
+                        break;
+                    double[] tried = new double[guesses];
+                    for (int j = 0; j < guesses; ++j)
+                        tried[j] = lower + (j + 1) * width;
+                    double tol = fine ? sd.tolerance : tolerance(upper - lower, accuracy);
+                    List<Uwertura> results = run(tried, new SimData(tol, sd.time, sd.method), ex);
+                    int firstPositive = guesses;
+                    for (int j = 0; j < guesses; ++j)
+                    {
+                        if (listener != null)
+                            listener.tried(rounds, tried[j], results.get(j));
+                        if (firstPositive == guesses && results.get(j).getLastT() > 0)
+                            firstPositive = j;
+                    }
+                    if (firstPositive > 0)
+                        lower = tried[firstPositive - 1];
+                    if (firstPositive < guesses)
+                        upper = tried[firstPositive];
+                    rounds++;
+                }
+                if (fine)
+                    break;
+                // the signs at the ends may come from coarse rounds and be wrong
+                bracket = widen(lower, upper, sd, listener, ex);
+                if (bracket[0] == lower && bracket[1] == upper)
+                    break;
+                fine = true;
+            }
+        } finally {
+            if (executor == null)
+                ex.shutdownNow();
+        }
+        return (lower + upper) / 2;
+    }
+
+    /**
+     * Returns the number of rounds of the last shooting.
+     * @return the number of rounds.
+     */
+    public int getRounds()
+    {
+        return rounds;
+    }
+
+    /**
+     * Returns the number of simulations of the last shooting.
+     * @return the number of simulations.
+     */
+    public int getRuns()
+    {
+        return runs;
+    }
+
+    /**
+     * Returns the number of evaluations of the right hand side in all simulations of the
+     * last shooting.
+     * @return the number of evaluations.
+     */
+    public int getEvaluations()
+    {
+        return evaluations;
+    }
+
+    /**
+     * Evaluates T(1) at the ends of the bracket and widens it, like
+     * {@link Continuation}, until T(1) changes its sign.
+     * @return the bracket.
+     */
+    private double[] widen(double lower, double upper, SimData data, Listener listener,
+            ExecutorService ex) throws UnsatisfiedConditionsException
+    {
+        List<Uwertura> ends = run(new double[]{ lower, upper }, data, ex);
+        if (listener != null)
+        {
+            listener.tried(rounds, lower, ends.get(0));
+            listener.tried(rounds, upper, ends.get(1));
+        }
+        double tLower = ends.get(0).getLastT(), tUpper = ends.get(1).getLastT();
+        double width = upper - lower;
+        for (int k = 0; k < maxWidenings && (tLower > 0 || tUpper < 0); ++k)
+        {
+            boolean moveLower = tLower > 0, moveUpper = tUpper < 0 && upper < 0;
+            if (!moveLower && !moveUpper)
+                break;
+            if (moveLower)
+                lower -= width;
+            if (moveUpper)
+                upper = Math.min(upper + width, 0);
+            double[] tried = moveLower && moveUpper ? new double[]{ lower, upper }
+                    : new double[]{ moveLower ? lower : upper };
+            List<Uwertura> results = run(tried, data, ex);
+            for (int j = 0; j < tried.length; ++j)
+                if (listener != null)
+                    listener.tried(rounds, tried[j], results.get(j));
+            if (moveLower)
+                tLower = results.get(0).getLastT();
+            if (moveUpper)
+                tUpper = results.get(tried.length - 1).getLastT();
+            width *= 2;
+        }
+        if (tLower > 0 || tUpper < 0)
+            throw new UnsatisfiedConditionsException("T(1) does not change its sign between "
+                    + lower + " and " + upper);
+        return new double[]{ lower, upper };
+    }
+
+    /**
+     * Returns the tolerance scheduled for a bracket of given width.
+     */
+    private double tolerance(double width, double accuracy)
+    {
+        return Math.max(sd.tolerance, Math.min(coarseTol, sd.tolerance * width / accuracy));
+    }
+
+    private List<Uwertura> run(double[] tried, final SimData data, ExecutorService ex)
+    {
+        ArrayList<Callable<Uwertura>> tasks = new ArrayList<>();
+        for (final double guess: tried)
+        {
+            tasks.add(new Callable<Uwertura>() {
+                @Override public Uwertura call() {
+                    Uwertura u = new Uwertura(c, 1, guess);
+                    u.calculate(data);
+                    return u;
+                }
+            });
+        }
+        ArrayList<Uwertura> res = new ArrayList<>(tried.length);
+        try {
+            for (Future<Uwertura> future: ex.invokeAll(tasks))
+            {
+                res.add(future.get());
+                evaluations += future.get().getEvaluations();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Shooting interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Simulation failed", e.getCause());
+        }
+        runs += tried.length;
+        return res;
+    }
+
+    private final double c;
+    private final SimData sd;
+    private final int guesses;
+    private final ExecutorService executor;
+    private double coarseTol = 1e-3;
+    private int rounds, runs, evaluations;
+    private static final int maxWidenings = 30;
+}
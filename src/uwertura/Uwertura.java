@@ -1,10 +1,19 @@
-
 package uwertura;
 
 import arenstorf.SimData;
 import java.awt.Color;
+import math.matrices.Matrix;
 import math.matrices.Vector;
+import numerics.ArrayODE;
+import numerics.BVP;
+import numerics.DormandPrince;
+import numerics.Event;
+import numerics.LinearODE;
 import numerics.ODE;
+import numerics.RungeKutta;
+import numerics.StateView;
+import numerics.StepListener;
+import numerics.Trajectory;
 import plot.PlotObject;
 
 /**
@@ -13,63 +22,147 @@ import plot.PlotObject;
  */
 public class Uwertura
 {
-    
+
     public Uwertura(double c, double t, double dt)
     {
         y0 = new Vector( new double[]{ t, dt } );
-        rk = new DormandPrinceForUwertura().getMethod();
+        rk = new DormandPrince().getMethod();
+        rk.setMaxStep(maxStep);
+        rk.addEvent(makeDivergenceEvent());
         this.c = c;
     }
-    
+
     public void calculate(SimData sd)
     {
         makeODE(sd.time);
-        rk.solve(ode, sd.tolerance);
+        trajectory = new Trajectory(y0.getSize(), true);
+        rk.solve(ode, sd.tolerance, trajectory);
+    }
+
+    /**
+     * Calculates the solution without storing it, for headless runs. Only
+     * {@link #getLastT()} is available afterwards.
+     * @param sd parameters of the simulation.
+     * @param listener receives accepted steps.
+     */
+    public void calculate(SimData sd, StepListener listener)
+    {
+        makeODE(sd.time);
+        trajectory = null;
+        rk.solve(ode, sd.tolerance, listener);
+    }
+
+    /**
+     * Makes the boundary problem T'' = c T', T(0) = t, T(1) = 0 for the collocation, with
+     * the state (T, T').
+     * @param c parameter of the equation.
+     * @param t value of T at 0.
+     * @return the problem.
+     */
+    public static BVP makeBoundaryProblem(final double c, final double t)
+    {
+        return new BVP(0, 1, 2, 1) {
+            @Override public void f(double x, double[] y, double[] dydx) {
+                dydx[0] = y[1];
+                dydx[1] = c * y[1];
+            }
+            @Override public void leftConditions(double[] ya, double[] res) {
+                res[0] = ya[0] - t;
+            }
+            @Override public void rightConditions(double[] yb, double[] res) {
+                res[0] = yb[0];
+            }
+        };
     }
-     
+
+    /**
+     * Makes the equation as the linear system (T, T')' = A (T, T') on [0, 1].
+     * @param c parameter of the equation.
+     * @param t value of T at 0.
+     * @param dt value of T' at 0.
+     * @return the system.
+     */
+    public static LinearODE makeLinearODE(double c, double t, double dt)
+    {
+        return new LinearODE(0, 1, new Vector(new double[]{ t, dt }), 1,
+                new Matrix(new double[][]{ { 0, 1 }, { 0, c } }));
+    }
+
+    /**
+     * Computes the initial derivative for which T(1) = 0 directly: T(1) = P11 t + P12 T'(0)
+     * with the propagator P = exp(A) of the linear system.
+     * @param c parameter of the equation.
+     * @param t value of T at 0.
+     * @return the derivative.
+     */
+    public static double exactDerivative(double c, double t)
+    {
+        Matrix p = makeLinearODE(c, t, 0).propagator(1);
+        return -p.get(1, 1) * t / p.get(1, 2);
+    }
+
     private void makeODE(double time)
     {
-        ode = new ODE(0, time, y0, 1) {
-            @Override public Vector f(double x, Vector y) {
-                return Uwertura.this.f(x, y);
+        ode = new ArrayODE(0, time, y0, 1) {
+            @Override public void f(double x, double[] y, double[] dydx) {
+                Uwertura.this.f(x, y, dydx);
             }
         };
     }
-     
-    private Vector f(double x, Vector y)
+
+    /**
+     * Makes an event stopping the integration when T falls below the divergence limit.
+     */
+    private Event makeDivergenceEvent()
+    {
+        return new Event(Event.Direction.Falling, true) {
+            @Override public double g(double x, StateView y) {
+                return y.get(1) - divergenceLimit;
+            }
+        };
+    }
+
+    private void f(double x, double[] y, double[] dydx)
     {
-        double dy1 = y.get(2);
-        double dy2 = c * y.get(2);
-        return new Vector( new double[] {dy1, dy2} );
-    } 
-    
+        dydx[0] = y[1];
+        dydx[1] = c * y[1];
+    }
+
     public PlotObject getPlotObject(Color c)
     {
         PlotObject po = new PlotObject("", c, PlotObject.Type.Lines);
-        for (int i = 0; i < rk.getSteps(); ++i)
+        for (int i = 0; i < trajectory.getSize(); ++i)
         {
-            double x = rk.getXAt(i);
-            double y = rk.getYAt(i).get(1);
+            double x = trajectory.getX(i);
+            double y = trajectory.getY(i, 1);
             po.addPoint(x, y);
         }
         return po;
     }
-        
+
     public PlotObject getPOForStep()
     {
         PlotObject po = new PlotObject("step size", Color.BLUE, PlotObject.Type.Lines);
-        for (int i = 0; i < rk.getSteps(); ++i)
-            po.addPoint(rk.getXAt(i), rk.getHAt(i));
+        for (int i = 0; i < trajectory.getSize(); ++i)
+            po.addPoint(trajectory.getX(i), trajectory.getH(i));
         return po;
     }
-    
+
     public double getLastT()
     {
-        return rk.getYAt(rk.getSteps()-1).get(1);
+        return rk.getLastY().get(1);
     }
-    
+
+    public int getEvaluations()
+    {
+        return rk.getEvaluations();
+    }
+
     private final Vector y0;
-    private final RungeKuttaForUwertura rk;
+    private final RungeKutta rk;
     private ODE ode;
+    private Trajectory trajectory;
     private final double c;
+    private final double maxStep = 1.0/32;
+    private final double divergenceLimit = -10;
 }
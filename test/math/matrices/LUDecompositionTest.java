@@ -0,0 +1,41 @@
+package math.matrices;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class LUDecompositionTest
+{
+
+    /**
+     * The zero in the corner forces a row exchange; the solution is (1, 2, 3).
+     */
+    @Test
+    public void testSolve() throws UninvertibleMatrixException
+    {
+        LUDecomposition lu = new Matrix(new double[][]{
+            {0, 2, 1},
+            {1, 1, 1},
+            {2, -1, 3}
+        }).lu();
+        double[] x = new double[3];
+        lu.solve(new double[]{ 7, 6, 9 }, x);
+        assertArrayEquals(new double[]{ 1, 2, 3 }, x, 1e-14);
+        double[] b = { 7, 6, 9 };
+        lu.solve(b);
+        assertArrayEquals(new double[]{ 1, 2, 3 }, b, 1e-14);
+        Vector v = lu.solve(new Vector(new double[]{ 2, 2, 1 }));
+        assertEquals(1, v.get(1), 1e-14);
+        assertEquals(1, v.get(2), 1e-14);
+        assertEquals(0, v.get(3), 1e-14);
+    }
+
+    @Test(expected = UninvertibleMatrixException.class)
+    public void testSingular() throws UninvertibleMatrixException
+    {
+        new Matrix(new double[][]{ {1, 2}, {2, 4} }).lu();
+    }
+}
@@ -0,0 +1,99 @@
+package math.matrices;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class MatrixExpTest
+{
+
+    /**
+     * exp([[a, b], [-b, a]]) = e^a [[cos b, sin b], [-sin b, cos b]]; the arguments cover
+     * all degrees of the Pade approximant and the squarings.
+     */
+    @Test
+    public void testRotation()
+    {
+        double[][] args = { {0, 0.01}, {0.1, 0.2}, {0.3, 0.5}, {1, 1}, {0.5, 3}, {2, 20},
+            {0, 100} };
+        for (double[] arg: args)
+        {
+            double a = arg[0], b = arg[1];
+            Matrix e = new Matrix(new double[][]{ {a, b}, {-b, a} }).exp();
+            double s = Math.exp(a), eps = 1e-12 * s;
+            assertEquals(s * Math.cos(b), e.get(1, 1), eps);
+            assertEquals(s * Math.sin(b), e.get(1, 2), eps);
+            assertEquals(-s * Math.sin(b), e.get(2, 1), eps);
+            assertEquals(s * Math.cos(b), e.get(2, 2), eps);
+        }
+    }
+
+    /**
+     * The series of a nilpotent matrix ends with its third power.
+     */
+    @Test
+    public void testNilpotent()
+    {
+        double[][] n = {
+            {0, 1, 2, 3},
+            {0, 0, 4, 5},
+            {0, 0, 0, 6},
+            {0, 0, 0, 0}
+        };
+        double[][] expected = {
+            {1, 1, 4, 15.5},
+            {0, 1, 4, 17},
+            {0, 0, 1, 6},
+            {0, 0, 0, 1}
+        };
+        Matrix e = new Matrix(n).exp();
+        for (int i = 0; i < 4; ++i)
+            for (int j = 0; j < 4; ++j)
+                assertEquals(expected[i][j], e.get(i+1, j+1), 1e-13 * Math.max(1, expected[i][j]));
+    }
+
+    /**
+     * exp([[p, m], [0, q]]) = [[e^p, m (e^p - e^q) / (p - q)], [0, e^q]]; the norms of the
+     * larger matrices need squarings.
+     */
+    @Test
+    public void testTriangular()
+    {
+        double[][] args = { {0.1, -0.2, 0.3}, {1, 2, -1}, {-50, -20, 30}, {3, -4, 25} };
+        for (double[] arg: args)
+        {
+            double p = arg[0], q = arg[1], m = arg[2];
+            Matrix e = new Matrix(new double[][]{ {p, m}, {0, q} }).exp();
+            double offDiagonal = m * (Math.exp(p) - Math.exp(q)) / (p - q);
+            assertEquals(Math.exp(p), e.get(1, 1), 1e-12 * Math.exp(p));
+            assertEquals(offDiagonal, e.get(1, 2), 1e-12 * Math.abs(offDiagonal));
+            assertEquals(0, e.get(2, 1), 0);
+            assertEquals(Math.exp(q), e.get(2, 2), 1e-12 * Math.exp(q));
+        }
+    }
+
+    /**
+     * exp([[0, t], [t, 0]]) = [[cosh t, sinh t], [sinh t, cosh t]], with t of large norm.
+     */
+    @Test
+    public void testLargeNorm()
+    {
+        for (double t: new double[]{ 10, 40, 300 })
+        {
+            Matrix e = new Matrix(new double[][]{ {0, t}, {t, 0} }).exp();
+            assertEquals(Math.cosh(t), e.get(1, 1), 1e-12 * Math.cosh(t));
+            assertEquals(Math.sinh(t), e.get(1, 2), 1e-12 * Math.sinh(t));
+            assertEquals(Math.sinh(t), e.get(2, 1), 1e-12 * Math.sinh(t));
+            assertEquals(Math.cosh(t), e.get(2, 2), 1e-12 * Math.cosh(t));
+        }
+    }
+
+    @Test(expected = DimensionException.class)
+    public void testNonSquare()
+    {
+        new Matrix(2, 3).exp();
+    }
+}
@@ -0,0 +1,58 @@
+package numerics;
+
+import math.matrices.Vector;
+import org.junit.*;
+import static org.junit.Assert.*;
+import static numerics.TestProblems.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class BDFTest
+{
+
+    @Test
+    public void testRobertson()
+    {
+        BDF bdf = new BDF();
+        bdf.solve(robertson(40), 1e-8);
+        Vector y = bdf.getLastY();
+        assertEquals(robertsonAt40[0], y.get(1), 1e-6);
+        assertEquals(robertsonAt40[1], y.get(2), 1e-9);
+        assertEquals(robertsonAt40[2], y.get(3), 1e-6);
+    }
+
+    @Test
+    public void testVanDerPol()
+    {
+        BDF bdf = new BDF();
+        bdf.solve(vanDerPol(1000, 2000), 1e-6, ignoring());
+        assertTrue(bdf.getAcceptedSteps() < 1000);
+        assertEquals(1.706, bdf.getLastY().get(1), 1e-3);
+    }
+
+    /**
+     * On a smooth problem the order climbs from 1 to the maximal 5 and goes down again
+     * where a lower one allows a longer step.
+     */
+    @Test
+    public void testOrderChanges()
+    {
+        final BDF bdf = new BDF();
+        final int[] maxOrder = { 1 }, decreases = { 0 }, last = { 1 };
+        bdf.solve(expSin(10), 1e-8, new StepListener() {
+            @Override public boolean stepAccepted(double x, double h, StateView y) {
+                int order = bdf.getOrder();
+                maxOrder[0] = Math.max(maxOrder[0], order);
+                if (order < last[0])
+                    decreases[0]++;
+                last[0] = order;
+                return true;
+            }
+        });
+        assertEquals(5, maxOrder[0]);
+        assertTrue(decreases[0] > 0);
+        assertEquals(expSinSolution(10), bdf.getLastY().get(1), 1e-6);
+    }
+}
@@ -0,0 +1,70 @@
+package numerics;
+
+import java.util.Random;
+import math.matrices.LUDecomposition;
+import math.matrices.Matrix;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class BandedLUTest
+{
+
+    @Before
+    public void setUp()
+    {
+        random = new Random(17);
+    }
+
+    /**
+     * Small diagonal entries force row interchanges, which widen the upper band.
+     */
+    @Test
+    public void testSolveWithPivoting() throws Exception
+    {
+        checkSolve(40, 3, 2);
+        checkSolve(25, 1, 4);
+        checkSolve(10, 0, 0);
+        checkSolve(6, 5, 5);
+    }
+
+    @Test
+    public void testSingular()
+    {
+        BandedLU lu = new BandedLU(5, 1, 1);
+        for (int i = 0; i < 5; ++i)
+            for (int j = Math.max(0, i - 1); j <= Math.min(4, i + 1); ++j)
+                if (j != 2)
+                    lu.set(i, j, 1 + i + j);
+        assertFalse(lu.decompose());
+    }
+
+    private void checkSolve(int n, int lower, int upper) throws Exception
+    {
+        BandedLU banded = new BandedLU(n, lower, upper);
+        double[][] dense = new double[n][n];
+        for (int i = 0; i < n; ++i)
+        {
+            for (int j = Math.max(0, i - lower); j <= Math.min(n - 1, i + upper); ++j)
+            {
+                double v = i == j ? 1e-3 * random.nextDouble() : random.nextDouble() - 0.5;
+                banded.set(i, j, v);
+                dense[i][j] = v;
+            }
+        }
+        double[] b = new double[n];
+        for (int i = 0; i < n; ++i)
+            b[i] = random.nextDouble() - 0.5;
+        double[] expected = b.clone();
+        new LUDecomposition(new Matrix(dense)).solve(expected);
+        assertTrue(banded.decompose());
+        banded.solve(b);
+        for (int i = 0; i < n; ++i)
+            assertEquals(expected[i], b[i], 1e-10 * Math.max(1, Math.abs(expected[i])));
+    }
+
+    private Random random;
+}
@@ -0,0 +1,136 @@
+package numerics;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class BatchSolverTest
+{
+
+    @Before
+    public void setUp()
+    {
+        cube = new Function() {
+            @Override public double eval(double x) {
+                return x*x*x;
+            }
+        };
+        expMinus = new Function() {
+            @Override public double eval(double x) {
+                return Math.exp(-x);
+            }
+        };
+    }
+
+    /**
+     * Test of solve method for an increasing function; the evaluations in the middles of
+     * the intervals are shared, so there are fewer of them than separate solving needs.
+     */
+    @Test
+    public void testIncreasing()
+    {
+        double[] targets = new double[100], roots = new double[100];
+        for (int j = 0; j < targets.length; ++j)
+            targets[j] = -7.9 + 0.16 * j;
+        BatchSolver solver = new BatchSolver(cube, eps);
+        assertEquals(0, solver.solve(new Interval(-2, 2), targets, roots));
+        for (int j = 0; j < targets.length; ++j)
+            assertEquals(Math.cbrt(targets[j]), roots[j], eps);
+        int separate = 0;
+        for (double y: targets)
+        {
+            Brent brent = new Brent(cube, eps);
+            try {
+                brent.solve(-2, -8, 2, 8, y);
+            } catch (UnsatisfiedConditionsException ex) {
+                fail(ex.toString());
+            }
+            separate += brent.getEvaluations();
+        }
+        assertTrue(solver.getEvaluations() < separate);
+    }
+
+    /**
+     * Test of solve method for a decreasing function, with targets given in no order.
+     */
+    @Test
+    public void testDecreasing()
+    {
+        double[] targets = { 0.5, 0.9, 0.01, 0.3, 0.07, 0.2 };
+        double[] roots = new double[targets.length];
+        BatchSolver solver = new BatchSolver(expMinus, eps);
+        assertEquals(0, solver.solve(new Interval(0, 5), targets, roots));
+        for (int j = 0; j < targets.length; ++j)
+            assertEquals(-Math.log(targets[j]), roots[j], eps);
+    }
+
+    /**
+     * Targets outside of the range of the function, or NaN, get NaN and are counted.
+     */
+    @Test
+    public void testOutOfRange()
+    {
+        double[] targets = { -9, 1, Double.NaN, 8.5, 0 };
+        double[] roots = new double[targets.length];
+        BatchSolver solver = new BatchSolver(cube, eps);
+        assertEquals(3, solver.solve(new Interval(-2, 2), targets, roots));
+        assertTrue(Double.isNaN(roots[0]));
+        assertEquals(1, roots[1], eps);
+        assertTrue(Double.isNaN(roots[2]));
+        assertTrue(Double.isNaN(roots[3]));
+        assertEquals(0, roots[4], eps);
+    }
+
+    /**
+     * Overlapping intervals form one chain sharing the evaluations, the disjoint one is
+     * solved on its own.
+     */
+    @Test
+    public void testOverlappingIntervals()
+    {
+        Interval[] intervals = {
+            new Interval(0, 2), new Interval(3, 4), new Interval(1, 3), new Interval(-3, -1)
+        };
+        double[] targets = { 1, 50, 20, -8 };
+        double[] roots = new double[targets.length];
+        BatchSolver solver = new BatchSolver(cube, 1);
+        solver.setAccuracy(eps);
+        assertEquals(0, solver.solve(intervals, targets, roots));
+        for (int j = 0; j < targets.length; ++j)
+            assertEquals(Math.cbrt(targets[j]), roots[j], eps);
+    }
+
+    /**
+     * A root is searched for in the whole chain of overlapping intervals but must lie in the
+     * interval of its target: a root outside of it gives NaN, one within the accuracy from
+     * its end is clamped to it.
+     */
+    @Test
+    public void testOwningInterval()
+    {
+        double end = 1 - eps / 2;
+        Interval[] intervals = {
+            new Interval(0, end), new Interval(0.5, 2), new Interval(0, 1)
+        };
+        double[] targets = { 1, 1, 3.375 };
+        double[] roots = new double[targets.length];
+        BatchSolver solver = new BatchSolver(cube, eps);
+        assertEquals(1, solver.solve(intervals, targets, roots));
+        assertEquals(1, roots[0], eps);
+        assertTrue(roots[0] <= end);
+        assertEquals(1, roots[1], eps);
+        assertTrue(Double.isNaN(roots[2]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLengths()
+    {
+        new BatchSolver(cube, eps).solve(new Interval(0, 1), new double[2], new double[1]);
+    }
+
+    private Function cube, expMinus;
+    private static final double eps = 1e-10;
+}
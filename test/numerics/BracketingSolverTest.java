@@ -0,0 +1,114 @@
+package numerics;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class BracketingSolverTest
+{
+
+    @Before
+    public void setUp()
+    {
+        cubic = new DifferentiableFunction() {
+            @Override public double eval(double x) {
+                return (x-2)*(x-3)*(x-4);
+            }
+            @Override public double derivative(double x) {
+                return (x-3)*(x-4) + (x-2)*(x-4) + (x-2)*(x-3);
+            }
+        };
+        cosMinusX = new DifferentiableFunction() {
+            @Override public double eval(double x) {
+                return Math.cos(x) - x;
+            }
+            @Override public double derivative(double x) {
+                return -Math.sin(x) - 1;
+            }
+        };
+        multiple = new Function() {
+            @Override public double eval(double x) {
+                return Math.pow(x - 0.1, 9);
+            }
+        };
+    }
+
+    private BracketingSolver[] makeSolvers()
+    {
+        return new BracketingSolver[] {
+            new Bisection(), new Brent(), new Illinois(), new ITP(), new Newton()
+        };
+    }
+
+    /**
+     * Test of findRoot method; every solver must return a root of the cubic.
+     */
+    @Test
+    public void testFindRoot() throws Exception
+    {
+        for (BracketingSolver solver: makeSolvers())
+        {
+            solver.setFunction(cubic);
+            solver.setAccuracy(eps);
+            double result = solver.findRoot(new Interval(0, 8));
+            boolean succ =  Math.abs(result - 2) < eps  ||
+                            Math.abs(result - 3) < eps  ||
+                            Math.abs(result - 4) < eps;
+            assertTrue(solver.getClass().getSimpleName(), succ);
+        }
+    }
+
+    /**
+     * Test of solve method with nonzero target value.
+     */
+    @Test
+    public void testSolve() throws Exception
+    {
+        for (BracketingSolver solver: makeSolvers())
+        {
+            solver.setFunction(cosMinusX);
+            solver.setAccuracy(eps);
+            double result = solver.solve(new Interval(-1, 2), -0.5);
+            assertEquals(solver.getClass().getSimpleName(), 1.0218169, result, 1e-6);
+        }
+    }
+
+    /**
+     * The root of a smooth function must be found with fewer evaluations than bisection
+     * needs, and the root of high multiplicity must stay in the bracket.
+     */
+    @Test
+    public void testEvaluations() throws Exception
+    {
+        Bisection bisection = new Bisection(cosMinusX, eps);
+        bisection.findRoot(new Interval(0, 1));
+        assertEquals(bisection.getIterations() + 2, bisection.getEvaluations());
+        for (BracketingSolver solver: makeSolvers())
+        {
+            solver.setFunction(cosMinusX);
+            solver.setAccuracy(eps);
+            double result = solver.findRoot(new Interval(0, 1));
+            assertEquals(0.7390851332151607, result, eps);
+            if (!(solver instanceof Bisection))
+                assertTrue(solver.getClass().getSimpleName(),
+                        solver.getEvaluations() < bisection.getEvaluations() / 2);
+
+            solver.setFunction(multiple);
+            result = solver.findRoot(new Interval(-1, 1.5));
+            assertEquals(0.1, result, eps);
+        }
+    }
+
+    @Test(expected = UnsatisfiedConditionsException.class)
+    public void testNoSignChange() throws Exception
+    {
+        new Brent(cubic, eps).findRoot(new Interval(5, 6));
+    }
+
+    private DifferentiableFunction cubic, cosMinusX;
+    private Function multiple;
+    private double eps = 1e-10;
+}
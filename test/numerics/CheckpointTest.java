@@ -0,0 +1,92 @@
+package numerics;
+
+import java.io.File;
+import math.matrices.Vector;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class CheckpointTest
+{
+
+    @Before
+    public void setUp() throws Exception
+    {
+        vanDerPol = new ArrayODE(0, 20, new Vector(new double[]{ 2, 0 }), 0) {
+            @Override public void f(double x, double[] y, double[] dydx) {
+                dydx[0] = y[1];
+                dydx[1] = 5 * (1 - y[0] * y[0]) * y[1] - y[0];
+            }
+        };
+        file = File.createTempFile("checkpoint", ".cp");
+        file.deleteOnExit();
+        new File(file.getPath() + ".trajectory").deleteOnExit();
+    }
+
+    @After
+    public void tearDown()
+    {
+        file.delete();
+        new File(file.getPath() + ".trajectory").delete();
+    }
+
+    /**
+     * A run resumed from a checkpoint read back from a file must give bit-for-bit the same
+     * state, counters and trajectory as the run made straight through.
+     */
+    @Test
+    public void testResume() throws Exception
+    {
+        RungeKutta straight = new DormandPrince().getMethod();
+        straight.solve(vanDerPol, tol);
+
+        RungeKutta written = new DormandPrince().getMethod();
+        written.setCheckpointFile(file, 37);
+        written.solve(vanDerPol, tol);
+        Checkpoint cp = Checkpoint.read(file);
+        assertTrue(cp.getX() > vanDerPol.x0 && cp.getX() < vanDerPol.xn);
+        assertTrue(cp.getTolerance() == tol);
+
+        RungeKutta resumed = new DormandPrince().getMethod();
+        resumed.resume(vanDerPol, tol, cp);
+        assertTrue(straight.getLastX() == resumed.getLastX());
+        for (int i = 1; i <= 2; ++i)
+            assertTrue(straight.getLastY().get(i) == resumed.getLastY().get(i));
+        assertEquals(straight.getAcceptedSteps(), resumed.getAcceptedSteps());
+        assertEquals(straight.getRejectedSteps(), resumed.getRejectedSteps());
+        assertEquals(straight.getEvaluations(), resumed.getEvaluations());
+
+        Trajectory expected = straight.getTrajectory(), actual = resumed.getTrajectory();
+        assertEquals(expected.getSize(), actual.getSize());
+        assertEquals(expected.getDegree(), actual.getDegree());
+        int n = expected.getDimension() * expected.getDegree();
+        double[] denseExpected = new double[n], denseActual = new double[n];
+        for (int step = 0; step < expected.getSize(); ++step)
+        {
+            assertTrue(expected.getX(step) == actual.getX(step));
+            assertTrue(expected.getH(step) == actual.getH(step));
+            for (int i = 1; i <= 2; ++i)
+                assertTrue(expected.getY(step, i) == actual.getY(step, i));
+            expected.copyDense(step, denseExpected);
+            actual.copyDense(step, denseActual);
+            for (int j = 0; j < n; ++j)
+                assertTrue(denseExpected[j] == denseActual[j]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testToleranceMismatch() throws Exception
+    {
+        RungeKutta written = new DormandPrince().getMethod();
+        written.setCheckpointFile(file, 37);
+        written.solve(vanDerPol, tol);
+        new DormandPrince().getMethod().resume(vanDerPol, 2 * tol, Checkpoint.read(file));
+    }
+
+    private ODE vanDerPol;
+    private File file;
+    private final double tol = 1e-8;
+}
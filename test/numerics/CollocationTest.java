@@ -0,0 +1,79 @@
+package numerics;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+import static numerics.TestProblems.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class CollocationTest
+{
+
+    @Before
+    public void setUp()
+    {
+        collocation = new Collocation();
+        mesh = new double[points];
+        guess = new double[points][];
+        for (int i = 0; i < points; ++i)
+        {
+            mesh[i] = (double) i / (points - 1);
+            guess[i] = new double[]{ 1 - mesh[i], -1 };
+        }
+    }
+
+    /**
+     * Collocation of T'' = c T' with T(0) = 1 and T(1) = 0 must match its exact solution
+     * at the mesh points and between them.
+     */
+    @Test
+    public void testBoundaryLayer()
+    {
+        for (double c: new double[]{ 1, 10, 50 })
+        {
+            Trajectory solution = collocation.solve(layer(c), tol, mesh, guess);
+            assertEquals(0, solution.getX(0), 0);
+            assertEquals(1, solution.getX(solution.getSize() - 1), 0);
+            assertTrue(collocation.getMaxResidual() <= tol);
+            for (int i = 0; i < solution.getSize(); ++i)
+            {
+                double x = solution.getX(i);
+                assertEquals(layerSolution(c, x), solution.getY(i, 1), 1e-6);
+                assertEquals(layerDerivative(c, x), solution.getY(i, 2),
+                        1e-6 * Math.max(1, Math.abs(layerDerivative(c, x))));
+            }
+            for (int k = 0; k <= 1000; ++k)
+            {
+                double x = k / 1000.0;
+                assertEquals(layerSolution(c, x), solution.interpolate(x, 1), 1e-6);
+            }
+        }
+    }
+
+    /**
+     * Makes T'' = c T' with T(0) = 1 and T(1) = 0, with the state (T, T').
+     */
+    private static BVP layer(final double c)
+    {
+        return new BVP(0, 1, 2, 1) {
+            @Override public void f(double x, double[] y, double[] dydx) {
+                dydx[0] = y[1];
+                dydx[1] = c * y[1];
+            }
+            @Override public void leftConditions(double[] ya, double[] res) {
+                res[0] = ya[0] - 1;
+            }
+            @Override public void rightConditions(double[] yb, double[] res) {
+                res[0] = yb[0];
+            }
+        };
+    }
+
+    private Collocation collocation;
+    private double[] mesh;
+    private double[][] guess;
+    private final int points = 11;
+    private final double tol = 1e-6;
+}
@@ -0,0 +1,53 @@
+package numerics;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+import static numerics.TestProblems.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class DOP853Test
+{
+
+    @Test
+    public void testOrder()
+    {
+        double err = fixedStepError(new DOP853().getMethod(), 0.5);
+        double errHalf = fixedStepError(new DOP853().getMethod(), 0.25);
+        assertTrue(errHalf < 1e-10);
+        assertTrue(observedOrder(err, errHalf) > 7.5);
+    }
+
+    /**
+     * The last stage is the first one of the next step, also after a rejection, so every
+     * step costs 12 evaluations and only the very first stage is extra.
+     */
+    @Test
+    public void testEvaluations()
+    {
+        RungeKutta rk = new DOP853().getMethod();
+        rk.solve(expSin(50), 1e-9, ignoring());
+        assertTrue(rk.getRejectedSteps() > 0);
+        assertEquals(12 * (rk.getAcceptedSteps() + rk.getRejectedSteps()) + 1,
+                rk.getEvaluations());
+        assertEquals(expSinSolution(50), rk.getLastY().get(1), 1e-8);
+    }
+
+    /**
+     * The seventh order continuous extension is accurate between the steps.
+     */
+    @Test
+    public void testDenseOutput()
+    {
+        RungeKutta rk = new DOP853().getMethod();
+        rk.setStoreDenseOutput(true);
+        rk.solve(expSin(10), 1e-12);
+        for (int k = 0; k <= 1000; ++k)
+        {
+            double x = k / 100.0;
+            assertEquals(expSinSolution(x), rk.interpolateY(x).get(1), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package numerics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import math.matrices.Vector;
+import org.junit.*;
+import static org.junit.Assert.*;
+import static numerics.TestProblems.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class EnsembleTest
+{
+
+    /**
+     * Results come in the order of the problems, whose lengths differ, and a failure of
+     * one integration leaves the others intact.
+     */
+    @Test
+    public void testOrderAndFailures()
+    {
+        List<ODE> odes = new ArrayList<>();
+        for (int i = 0; i < 8; ++i)
+            odes.add(i == 3 ? failing() : expSin(8 - i));
+        EnsembleResult[] results = new Ensemble(new DormandPrince(), 1e-10).solve(odes);
+        assertEquals(8, results.length);
+        for (int i = 0; i < 8; ++i)
+        {
+            if (i == 3)
+            {
+                assertFalse(results[i].isSuccessful());
+                assertEquals("broken", results[i].failure.getMessage());
+                continue;
+            }
+            assertTrue(results[i].isSuccessful());
+            assertEquals(8 - i, results[i].x, 0);
+            assertEquals(expSinSolution(8 - i), results[i].y.get(1), 1e-8);
+        }
+    }
+
+    /**
+     * The threads of the pool outlive a call, so the next one runs on them again, with the
+     * solvers they keep.
+     */
+    @Test
+    public void testPoolReused()
+    {
+        final Set<Thread> first = Collections.synchronizedSet(new HashSet<Thread>());
+        final Set<Thread> second = Collections.synchronizedSet(new HashSet<Thread>());
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            Ensemble ensemble = new Ensemble(new DormandPrince(), 1e-8, pool);
+            ensemble.solve(Collections.nCopies(4, recordingThreads(first)));
+            ensemble.solve(Collections.nCopies(4, recordingThreads(second)));
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1, first.size());
+        assertEquals(first, second);
+    }
+
+    /**
+     * Steps across the jump of the derivative at 0.5 are rejected several times in a row,
+     * and every evaluation behind the jump is slow.
+     */
+    @Test
+    public void testTimeoutWhileRejecting()
+    {
+        ODE jump = new ArrayODE(0, 1, new Vector(new double[]{ 0 }), 0) {
+            @Override public void f(double x, double[] y, double[] dydx) {
+                if (x >= 0.5)
+                {
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                dydx[0] = x < 0.5 ? 0 : 1;
+            }
+        };
+        Ensemble ensemble = new Ensemble(new DormandPrince(), 1e-10);
+        ensemble.setTimeout(100, TimeUnit.MILLISECONDS);
+        EnsembleResult res = ensemble.solve(Collections.singletonList(jump))[0];
+        assertTrue(res.failure instanceof TimeoutException);
+        assertTrue(res.x < 0.5);
+        assertTrue(res.rejectedSteps > 0);
+    }
+
+    private static ODE failing()
+    {
+        return new ArrayODE(0, 1, new Vector(new double[]{ 1 }), 0) {
+            @Override public void f(double x, double[] y, double[] dydx) {
+                throw new RuntimeException("broken");
+            }
+        };
+    }
+
+    private static ODE recordingThreads(final Set<Thread> threads)
+    {
+        return new ArrayODE(0, 1, new Vector(new double[]{ 1 }), 0) {
+            @Override public void f(double x, double[] y, double[] dydx) {
+                threads.add(Thread.currentThread());
+                dydx[0] = y[0];
+            }
+        };
+    }
+}
@@ -0,0 +1,70 @@
+package numerics;
+
+import math.matrices.Vector;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class GraggBulirschStoerTest
+{
+
+    @Before
+    public void setUp()
+    {
+        exponential = new ArrayODE(0, 2, new Vector(new double[]{ 1 }), 0) {
+            @Override public void f(double x, double[] y, double[] dydx) {
+                dydx[0] = y[0];
+            }
+        };
+        oscillator = new ArrayODE(0, 20 * Math.PI, new Vector(new double[]{ 0, 1 }), 2 * Math.PI) {
+            @Override public void f(double x, double[] y, double[] dydx) {
+                dydx[0] = y[1];
+                dydx[1] = -y[0];
+            }
+        };
+    }
+
+    /**
+     * The solution of y' = y must match e^x within the tolerance at tight tolerances.
+     */
+    @Test
+    public void testExponential()
+    {
+        for (double tol: new double[]{ 1e-6, 1e-10, 1e-13 })
+        {
+            GraggBulirschStoer gbs = new GraggBulirschStoer();
+            gbs.solve(exponential, tol);
+            assertEquals(2, gbs.getLastX(), 0);
+            double exact = Math.exp(2);
+            assertEquals("tol = " + tol, exact, gbs.getLastY().get(1), 10 * tol * exact);
+            Trajectory tr = gbs.getTrajectory();
+            for (int i = 0; i < tr.getSize(); ++i)
+                assertEquals(Math.exp(tr.getX(i)), tr.getY(i, 1), 10 * tol * Math.exp(tr.getX(i)));
+        }
+    }
+
+    /**
+     * Ten periods of the harmonic oscillator must come back to the initial state, and the
+     * parallel computation of the lines must give the same result as the sequential one.
+     */
+    @Test
+    public void testOscillator()
+    {
+        GraggBulirschStoer sequential = new GraggBulirschStoer();
+        sequential.solve(oscillator, 1e-12);
+        assertEquals(0, sequential.getLastY().get(1), 1e-9);
+        assertEquals(1, sequential.getLastY().get(2), 1e-9);
+
+        GraggBulirschStoer parallel = new GraggBulirschStoer();
+        parallel.setParallel(true);
+        parallel.solve(oscillator, 1e-12);
+        assertTrue(sequential.getLastY().get(1) == parallel.getLastY().get(1));
+        assertTrue(sequential.getLastY().get(2) == parallel.getLastY().get(2));
+        assertEquals(sequential.getEvaluations(), parallel.getEvaluations());
+    }
+
+    private ODE exponential, oscillator;
+}
@@ -0,0 +1,45 @@
+package numerics;
+
+import math.matrices.Vector;
+import org.junit.*;
+import static org.junit.Assert.*;
+import static numerics.TestProblems.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class ImplicitMidpointTest
+{
+
+    /**
+     * The rule is of order 2 and keeps the quadratic invariant q^2 + p^2 up to the
+     * accuracy of the Newton iteration.
+     */
+    @Test
+    public void testCircle()
+    {
+        ImplicitMidpoint midpoint = new ImplicitMidpoint();
+        double err = circleError(midpoint, 0.2);
+        Vector y = midpoint.getLastY();
+        assertEquals(10, midpoint.getLastX(), 0);
+        assertEquals(1, Math.hypot(y.get(1), y.get(2)), 1e-10);
+        double errHalf = circleError(midpoint, 0.1);
+        assertEquals(2, observedOrder(err, errHalf), 0.1);
+    }
+
+    @Test
+    public void testEnergy()
+    {
+        ImplicitMidpoint midpoint = new ImplicitMidpoint();
+        double[] errors = pendulumEnergyErrors(midpoint);
+        assertTrue(errors[1] < 1e-3);
+        assertTrue(errors[1] < 1.01 * errors[0]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStepNotSet()
+    {
+        new ImplicitMidpoint().solve(circle(10), 1e-12);
+    }
+}
@@ -0,0 +1,80 @@
+package numerics;
+
+import math.matrices.Matrix;
+import math.matrices.Vector;
+import org.junit.*;
+import static org.junit.Assert.*;
+import static numerics.TestProblems.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class LinearODETest
+{
+
+    @Test
+    public void testSolveAt()
+    {
+        for (double c: cs)
+        {
+            LinearODE ode = layer(c);
+            for (int k = 0; k <= 20; ++k)
+            {
+                double x = k / 20.0;
+                Vector y = ode.solveAt(x);
+                assertEquals(layerSolution(c, x), y.get(1), 1e-12);
+                assertEquals(layerDerivative(c, x), y.get(2),
+                        1e-12 * Math.max(1, Math.abs(layerDerivative(c, x))));
+            }
+        }
+    }
+
+    @Test
+    public void testPropagator()
+    {
+        for (double c: cs)
+        {
+            LinearODE ode = layer(c);
+            Propagator propagator = new Propagator();
+            propagator.setMaxStep(0.03);
+            propagator.solve(ode, 0);
+            Trajectory t = propagator.getTrajectory();
+            assertEquals(35, t.getSize());
+            assertEquals(34, propagator.getAcceptedSteps());
+            assertEquals(0, propagator.getEvaluations());
+            assertEquals(1, propagator.getLastX(), 0);
+            for (int step = 0; step < t.getSize(); ++step)
+            {
+                double x = t.getX(step);
+                assertEquals(layerSolution(c, x), t.getY(step, 1), 1e-11);
+                assertEquals(layerDerivative(c, x), t.getY(step, 2),
+                        1e-11 * Math.max(1, Math.abs(layerDerivative(c, x))));
+            }
+            assertEquals(0, propagator.getLastY().get(1), 1e-11);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotLinear()
+    {
+        ODE ode = new ArrayODE(0, 1, new Vector(new double[]{ 1 }), 0) {
+            @Override public void f(double x, double[] y, double[] dydx) {
+                dydx[0] = y[0];
+            }
+        };
+        new Propagator().solve(ode, 0);
+    }
+
+    /**
+     * Makes T'' = c T' as the linear system (T, T')' = A (T, T') on [0, 1], starting from
+     * T(0) = 1 and the initial derivative for which T(1) = 0.
+     */
+    private static LinearODE layer(double c)
+    {
+        return new LinearODE(0, 1, new Vector(new double[]{ 1, layerDerivative(c, 0) }), 1,
+                new Matrix(new double[][]{ { 0, 1 }, { 0, c } }));
+    }
+
+    private final double[] cs = { 1, 5, 10 };
+}
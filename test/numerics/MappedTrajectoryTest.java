@@ -0,0 +1,112 @@
+package numerics;
+
+import java.io.File;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class MappedTrajectoryTest
+{
+
+    @Before
+    public void setUp() throws Exception
+    {
+        file = File.createTempFile("trajectory", ".bin");
+        file.deleteOnExit();
+    }
+
+    @After
+    public void tearDown()
+    {
+        file.delete();
+    }
+
+    @Test
+    public void testReopenAcrossBlocks() throws Exception
+    {
+        MappedTrajectory t = MappedTrajectory.create(file, dim, degree);
+        appendSteps(t, 0, blockSize + 100, 0);
+        t.close();
+
+        t = MappedTrajectory.open(file);
+        assertEquals(dim, t.getDimension());
+        assertEquals(degree, t.getDegree());
+        checkSteps(t, 0, blockSize + 100, 0);
+        appendSteps(t, blockSize + 100, 2 * blockSize + 1, 0);
+        t.close();
+
+        t = MappedTrajectory.open(file);
+        assertEquals(2 * blockSize + 1, t.getSize());
+        checkSteps(t, 0, 2 * blockSize + 1, 0);
+        t.close();
+    }
+
+    @Test
+    public void testTruncateAndReopen() throws Exception
+    {
+        MappedTrajectory t = MappedTrajectory.create(file, dim, degree);
+        appendSteps(t, 0, blockSize + 100, 0);
+        t.truncate(blockSize - 5);
+        assertEquals(blockSize - 5, t.getSize());
+        t.close();
+
+        t = MappedTrajectory.open(file);
+        assertEquals(blockSize - 5, t.getSize());
+        checkSteps(t, 0, blockSize - 5, 0);
+        appendSteps(t, blockSize - 5, blockSize + 10, 0.5);
+        t.close();
+
+        t = MappedTrajectory.open(file);
+        assertEquals(blockSize + 10, t.getSize());
+        checkSteps(t, 0, blockSize - 5, 0);
+        checkSteps(t, blockSize - 5, blockSize + 10, 0.5);
+        t.clear();
+        t.close();
+
+        t = MappedTrajectory.open(file);
+        assertEquals(0, t.getSize());
+        t.close();
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void testOpenInvalid() throws Exception
+    {
+        MappedTrajectory.open(file);
+    }
+
+    private void appendSteps(Trajectory t, int from, int to, double shift)
+    {
+        double[] y = new double[dim];
+        double[] dense = new double[dim * degree];
+        for (int step = from; step < to; ++step)
+        {
+            for (int i = 0; i < dim; ++i)
+                y[i] = step * (i + 1) + shift;
+            for (int j = 0; j < dense.length; ++j)
+                dense[j] = step + j / 8.0 + shift;
+            t.append(step, shift + 1, y, dense);
+        }
+    }
+
+    private void checkSteps(Trajectory t, int from, int to, double shift)
+    {
+        double[] dense = new double[dim * degree];
+        for (int step = from; step < to; ++step)
+        {
+            assertEquals(step, t.getX(step), 0);
+            assertEquals(shift + 1, t.getH(step), 0);
+            for (int i = 0; i < dim; ++i)
+                assertEquals(step * (i + 1) + shift, t.getY(step, i + 1), 0);
+            t.copyDense(step, dense);
+            for (int j = 0; j < dense.length; ++j)
+                assertEquals(step + j / 8.0 + shift, dense[j], 0);
+        }
+    }
+
+    private File file;
+    private final int dim = 2, degree = 3;
+    private final int blockSize = 1 << 14;
+}
@@ -0,0 +1,61 @@
+package numerics;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+import static numerics.TestProblems.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class PararealTest
+{
+
+    /**
+     * After a few iterations the states at the ends of all slices agree with a serial
+     * run of the fine solver within its tolerance.
+     */
+    @Test
+    public void testAgainstSerial()
+    {
+        double tol = 1e-10;
+        RungeKutta serial = new DormandPrince().getMethod();
+        serial.setStoreDenseOutput(true);
+        serial.solve(expSin(20), tol);
+        Parareal parareal = new Parareal(new DormandPrince(), tol, 8);
+        parareal.solve(expSin(20));
+        assertTrue(parareal.isConverged());
+        assertTrue(parareal.getIterations() < parareal.getSlices());
+        for (int n = 1; n <= parareal.getSlices(); ++n)
+        {
+            double y = serial.interpolateY(parareal.getX(n)).get(1);
+            assertEquals(y, parareal.getY(n).get(1), 10 * tol * (1 + Math.abs(y)));
+        }
+    }
+
+    @Test
+    public void testNotConverged()
+    {
+        Parareal parareal = new Parareal(new DormandPrince(), 1e-10, 8);
+        parareal.setMaxIterations(1);
+        parareal.solve(expSin(20));
+        assertEquals(1, parareal.getIterations());
+        assertFalse(parareal.isConverged());
+    }
+
+    /**
+     * With a single coarse step per slice the states keep changing, but after as many
+     * iterations as slices all of them come from the fine propagator.
+     */
+    @Test
+    public void testAllSlicesFine()
+    {
+        double tol = 1e-10;
+        Parareal parareal = new Parareal(new DormandPrince(), tol, 3);
+        parareal.setCoarseSteps(1);
+        parareal.solve(expSin(20));
+        assertEquals(3, parareal.getIterations());
+        assertTrue(parareal.isConverged());
+        assertEquals(expSinSolution(20), parareal.getLastY().get(1), 1e-8);
+    }
+}
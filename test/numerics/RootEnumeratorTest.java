@@ -0,0 +1,83 @@
+package numerics;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class RootEnumeratorTest
+{
+
+    @Before
+    public void setUp()
+    {
+        pairInCell = new Function() {
+            @Override public double eval(double x) {
+                return (x - 0.501) * (x - 0.503);
+            }
+        };
+        pairAtEnds = new Function() {
+            @Override public double eval(double x) {
+                return (x - 0.002) * (x - 0.004) * (x - 0.997) * (x - 0.999);
+            }
+        };
+        touching = new DifferentiableFunction() {
+            @Override public double eval(double x) {
+                return (x - 0.3) * (x - 0.3) * (x - 0.8);
+            }
+            @Override public double derivative(double x) {
+                return (x - 0.3) * (3 * x - 1.9);
+            }
+        };
+    }
+
+    /**
+     * Two roots closer than the width of a cell leave no sign change at the samples.
+     */
+    @Test
+    public void testPairInCell()
+    {
+        RootEnumerator enumerator = new RootEnumerator(pairInCell, eps);
+        double[] roots = enumerator.findRoots(new Interval(0, 1));
+        assertArrayEquals(new double[]{ 0.501, 0.503 }, roots, eps);
+    }
+
+    /**
+     * The cells at the ends of the interval have a single neighbour.
+     */
+    @Test
+    public void testPairsInEndCells()
+    {
+        RootEnumerator enumerator = new RootEnumerator(pairAtEnds, eps);
+        double[] roots = enumerator.findRoots(new Interval(0, 1));
+        assertArrayEquals(new double[]{ 0.002, 0.004, 0.997, 0.999 }, roots, eps);
+    }
+
+    @Test
+    public void testTangentialRoot()
+    {
+        RootEnumerator enumerator = new RootEnumerator(touching, eps);
+        assertArrayEquals(new double[]{ 0.8 }, enumerator.findRoots(new Interval(0, 1)), eps);
+        enumerator.setTangentTolerance(1e-12);
+        assertArrayEquals(new double[]{ 0.3, 0.8 }, enumerator.findRoots(new Interval(0, 1)),
+                eps);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeRefinements()
+    {
+        new RootEnumerator(pairInCell, eps).setRefinements(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTangentWithoutDerivative()
+    {
+        new RootEnumerator(pairInCell, eps).setTangentTolerance(0);
+    }
+
+    private Function pairInCell, pairAtEnds;
+    private DifferentiableFunction touching;
+    private final double eps = 1e-9;
+}
@@ -0,0 +1,51 @@
+package numerics;
+
+import math.matrices.Vector;
+import org.junit.*;
+import static org.junit.Assert.*;
+import static numerics.TestProblems.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class RosenbrockTest
+{
+
+    @Test
+    public void testRobertson()
+    {
+        Rosenbrock rb = new Rosenbrock();
+        rb.solve(robertson(40), 1e-8);
+        Vector y = rb.getLastY();
+        assertEquals(robertsonAt40[0], y.get(1), 1e-6);
+        assertEquals(robertsonAt40[1], y.get(2), 1e-9);
+        assertEquals(robertsonAt40[2], y.get(3), 1e-6);
+    }
+
+    /**
+     * With mu = 1000 an explicit method needs millions of steps, and so does this one
+     * when the Jacobian is kept too long.
+     */
+    @Test
+    public void testVanDerPol()
+    {
+        Rosenbrock rb = new Rosenbrock();
+        rb.solve(vanDerPol(1000, 2000), 1e-6, ignoring());
+        assertTrue(rb.getAcceptedSteps() < 3000);
+        assertEquals(1.706, rb.getLastY().get(1), 1e-3);
+    }
+
+    /**
+     * A change of the step size decomposes W again but keeps the Jacobian.
+     */
+    @Test
+    public void testJacobianReuse()
+    {
+        Rosenbrock rb = new Rosenbrock();
+        rb.solve(vanDerPol(10, 20), 1e-6, ignoring());
+        assertTrue(rb.getFactorizations() > 2 * rb.getJacobianEvaluations());
+        assertTrue(4 * rb.getJacobianEvaluations() < rb.getAcceptedSteps());
+        assertEquals(1.9394, rb.getLastY().get(1), 1e-3);
+    }
+}
@@ -0,0 +1,164 @@
+package numerics;
+
+import math.matrices.Vector;
+import org.junit.*;
+import static org.junit.Assert.*;
+import static numerics.TestProblems.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class RungeKuttaTest
+{
+
+    /**
+     * Inside the steps the continuous extension of DP5 is almost as accurate as the
+     * solution at the ends of the steps.
+     */
+    @Test
+    public void testDenseOutput()
+    {
+        RungeKutta rk = new DormandPrince().getMethod();
+        rk.setStoreDenseOutput(true);
+        rk.solve(expSin(10), 1e-8);
+        double nodeError = 0;
+        for (int i = 0; i < rk.getSteps(); ++i)
+            nodeError = Math.max(nodeError,
+                    Math.abs(rk.getYAt(i).get(1) - expSinSolution(rk.getXAt(i))));
+        for (int i = 1; i < rk.getSteps(); ++i)
+            for (double theta: new double[]{ 0.25, 0.5, 0.75 })
+            {
+                double x = (1 - theta) * rk.getXAt(i-1) + theta * rk.getXAt(i);
+                double err = Math.abs(rk.interpolateY(x).get(1) - expSinSolution(x));
+                assertTrue(err < 5 * nodeError);
+                assertTrue(err < 3e-7);
+            }
+    }
+
+    /**
+     * The controller which the PI one replaced recomputed the stages ten times per step;
+     * on this problem it needed 20 steps and 1337 evaluations. The PI controller takes
+     * as many steps, rejects few and evaluates ten times less.
+     */
+    @Test
+    public void testController()
+    {
+        RungeKutta rk = new DormandPrince().getMethod();
+        rk.solve(expSin(5), 1e-6);
+        assertTrue(rk.getAcceptedSteps() <= 20);
+        assertTrue(4 * rk.getRejectedSteps() <= rk.getAcceptedSteps());
+        assertTrue(10 * rk.getEvaluations() < 1337);
+        assertEquals(expSinSolution(5), rk.getLastY().get(1), 1e-6);
+    }
+
+    /**
+     * The last stage of DP5 is the first one of the next step, also after a rejection, so
+     * every step costs 6 evaluations and only the very first stage is extra.
+     */
+    @Test
+    public void testFSAL()
+    {
+        RungeKutta rk = new DormandPrince().getMethod();
+        rk.solve(expSin(50), 1e-8, ignoring());
+        assertTrue(rk.getRejectedSteps() > 0);
+        assertEquals(6 * (rk.getAcceptedSteps() + rk.getRejectedSteps()) + 1,
+                rk.getEvaluations());
+    }
+
+    /**
+     * exp(sin x) = 2 rises through 2 at asin(ln 2) + 2 k pi and falls at pi - asin(ln 2)
+     * + 2 k pi; on [0, 10] these are two crossings each.
+     */
+    @Test
+    public void testEventLocation()
+    {
+        RungeKutta rk = new DormandPrince().getMethod();
+        rk.setEventAccuracy(1e-12);
+        rk.addEvent(levelTwo(Event.Direction.Both, false));
+        rk.solve(expSin(10), 1e-10, ignoring());
+        double[] expected = { rising, Math.PI - rising, 2 * Math.PI + rising,
+            3 * Math.PI - rising };
+        assertEquals(expected.length, rk.getEventInfos().size());
+        for (int i = 0; i < expected.length; ++i)
+        {
+            EventInfo info = rk.getEventInfos().get(i);
+            assertEquals(expected[i], info.x, 1e-9);
+            assertEquals(2, info.y.get(1), 1e-9);
+        }
+        assertEquals(10, rk.getLastX(), 0);
+    }
+
+    @Test
+    public void testEventDirection()
+    {
+        RungeKutta rk = new DormandPrince().getMethod();
+        Event up = levelTwo(Event.Direction.Rising, false);
+        Event down = levelTwo(Event.Direction.Falling, false);
+        rk.addEvent(up);
+        rk.addEvent(down);
+        rk.solve(expSin(10), 1e-10, ignoring());
+        assertEquals(4, rk.getEventInfos().size());
+        for (int i = 0; i < 4; ++i)
+            assertSame(i % 2 == 0 ? up : down, rk.getEventInfos().get(i).event);
+        rk.clearEvents();
+        rk.addEvent(down);
+        rk.solve(expSin(10), 1e-10, ignoring());
+        assertEquals(2, rk.getEventInfos().size());
+        assertEquals(Math.PI - rising, rk.getEventInfos().get(0).x, 1e-8);
+    }
+
+    /**
+     * A terminal event ends the run at the located argument, with the interpolated state.
+     */
+    @Test
+    public void testTerminalEvent()
+    {
+        RungeKutta rk = new DormandPrince().getMethod();
+        rk.setEventAccuracy(1e-12);
+        rk.addEvent(levelTwo(Event.Direction.Falling, true));
+        rk.solve(expSin(10), 1e-10);
+        assertEquals(1, rk.getEventInfos().size());
+        double x = rk.getEventInfos().get(0).x;
+        assertEquals(Math.PI - rising, x, 1e-9);
+        assertEquals(x, rk.getLastX(), 0);
+        assertEquals(2, rk.getLastY().get(1), 1e-9);
+        assertEquals(x, rk.getXAt(rk.getSteps() - 1), 0);
+    }
+
+    /**
+     * A deadline which already passed stops the run at the first rejection, at the last
+     * accepted step, without waiting for the next accepted one.
+     */
+    @Test
+    public void testDeadlineWhileRejecting()
+    {
+        ODE jump = new ArrayODE(0, 1, new Vector(new double[]{ 0 }), 0) {
+            @Override public void f(double x, double[] y, double[] dydx) {
+                dydx[0] = x < 0.5 ? 0 : 1;
+            }
+        };
+        RungeKutta rk = new DormandPrince().getMethod();
+        rk.setDeadline(System.nanoTime());
+        rk.solve(jump, 1e-10, ignoring());
+        assertTrue(rk.isPastDeadline());
+        assertEquals(1, rk.getRejectedSteps());
+        assertTrue(rk.getLastX() < 0.5);
+        assertEquals(0, rk.getLastY().get(1), 0);
+        rk.clearDeadline();
+        rk.solve(jump, 1e-10, ignoring());
+        assertFalse(rk.isPastDeadline());
+        assertEquals(0.5, rk.getLastY().get(1), 1e-8);
+    }
+
+    private static Event levelTwo(Event.Direction direction, boolean terminal)
+    {
+        return new Event(direction, terminal) {
+            @Override public double g(double x, StateView y) {
+                return y.get(1) - 2;
+            }
+        };
+    }
+
+    private static final double rising = Math.asin(Math.log(2));
+}
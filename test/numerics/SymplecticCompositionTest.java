@@ -0,0 +1,50 @@
+package numerics;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+import static numerics.TestProblems.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class SymplecticCompositionTest
+{
+
+    @Test
+    public void testOrder()
+    {
+        SymplecticComposition[] methods = { new StormerVerlet(), new Yoshida4(),
+            new Yoshida6() };
+        int[] orders = { 2, 4, 6 };
+        for (int i = 0; i < methods.length; ++i)
+        {
+            double err = circleError(methods[i], 0.2), errHalf = circleError(methods[i], 0.1);
+            assertEquals(orders[i], observedOrder(err, errHalf), 0.1);
+        }
+    }
+
+    /**
+     * The energy error after 10^5 steps is no larger than during the first 1000 ones.
+     */
+    @Test
+    public void testEnergy()
+    {
+        SymplecticComposition[] methods = { new StormerVerlet(), new Yoshida4(),
+            new Yoshida6() };
+        double[] bounds = { 1e-2, 1e-4, 1e-7 };
+        for (int i = 0; i < methods.length; ++i)
+        {
+            double[] errors = pendulumEnergyErrors(methods[i]);
+            assertTrue(errors[1] < bounds[i]);
+            assertTrue(errors[1] < 1.01 * errors[0]);
+            assertEquals(100000, methods[i].getAcceptedSteps());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStepNotSet()
+    {
+        new Yoshida4().solve(circle(10), 0);
+    }
+}
@@ -0,0 +1,174 @@
+package numerics;
+
+import math.matrices.Vector;
+
+/**
+ * Problems with known solutions shared by the tests.
+ * @author Grzegorz Los
+ */
+class TestProblems
+{
+    /**
+     * y' = y cos x on [0, xn] with y(0) = 1, whose solution is exp(sin x).
+     */
+    static ODE expSin(double xn)
+    {
+        return new ArrayODE(0, xn, new Vector(new double[]{ 1 }), 0) {
+            @Override public void f(double x, double[] y, double[] dydx) {
+                dydx[0] = y[0] * Math.cos(x);
+            }
+        };
+    }
+
+    static double expSinSolution(double x)
+    {
+        return Math.exp(Math.sin(x));
+    }
+
+    /**
+     * Robertson's chemical reaction on [0, xn], a stiff problem whose components sum to 1.
+     */
+    static ODE robertson(double xn)
+    {
+        return new ArrayODE(0, xn, new Vector(new double[]{ 1, 0, 0 }), 0) {
+            @Override public void f(double x, double[] y, double[] dydx) {
+                dydx[0] = -0.04 * y[0] + 1e4 * y[1] * y[2];
+                dydx[2] = 3e7 * y[1] * y[1];
+                dydx[1] = -dydx[0] - dydx[2];
+            }
+        };
+    }
+
+    /**
+     * Solution of {@link #robertson(double)} at x = 40 computed by Hairer and Wanner.
+     */
+    static final double[] robertsonAt40 = { 0.7158270687, 9.185534764e-6, 0.2841637457 };
+
+    /**
+     * Van der Pol oscillator y'' = mu (1 - y^2) y' - y on [0, xn] with y(0) = 2,
+     * y'(0) = 0; it is stiff for large mu.
+     */
+    static ODE vanDerPol(final double mu, double xn)
+    {
+        return new ArrayODE(0, xn, new Vector(new double[]{ 2, 0 }), 0) {
+            @Override public void f(double x, double[] y, double[] dydx) {
+                dydx[0] = y[1];
+                dydx[1] = mu * (1 - y[0] * y[0]) * y[1] - y[0];
+            }
+        };
+    }
+
+    /**
+     * Harmonic oscillator q' = p, p' = -q on [0, xn] with q(0) = 1, p(0) = 0, whose
+     * solution moves along the unit circle: q = cos x, p = -sin x.
+     */
+    static SeparableODE circle(double xn)
+    {
+        return new SeparableODE(0, xn, new Vector(new double[]{ 1 }),
+                new Vector(new double[]{ 0 }), 2 * Math.PI) {
+            @Override public void velocity(double x, double[] p, double[] dqdx) {
+                dqdx[0] = p[0];
+            }
+            @Override public void force(double x, double[] q, double[] dpdx) {
+                dpdx[0] = -q[0];
+            }
+        };
+    }
+
+    /**
+     * Returns the distance from the solution of {@link #circle(double)} at x = 10 after a
+     * run with steps of size h.
+     */
+    static double circleError(Integrator integrator, double h)
+    {
+        integrator.setMaxStep(h);
+        integrator.solve(circle(10), 1e-12, ignoring());
+        Vector y = integrator.getLastY();
+        return Math.hypot(y.get(1) - Math.cos(10), y.get(2) + Math.sin(10));
+    }
+
+    /**
+     * Pendulum q' = p, p' = -sin q on [0, xn], released at rest from q = 2, with energy
+     * H = p^2/2 - cos q.
+     */
+    static SeparableODE pendulum(double xn)
+    {
+        return new SeparableODE(0, xn, new Vector(new double[]{ 2 }),
+                new Vector(new double[]{ 0 }), 0) {
+            @Override public void velocity(double x, double[] p, double[] dqdx) {
+                dqdx[0] = p[0];
+            }
+            @Override public void force(double x, double[] q, double[] dpdx) {
+                dpdx[0] = -Math.sin(q[0]);
+            }
+        };
+    }
+
+    /**
+     * Integrates {@link #pendulum(double)} on [0, 10000] with steps of 0.1 and returns
+     * the largest energy errors on [0, 100] and on the whole interval.
+     */
+    static double[] pendulumEnergyErrors(Integrator integrator)
+    {
+        final double[] res = new double[2];
+        final double h0 = -Math.cos(2);
+        integrator.setMaxStep(0.1);
+        integrator.solve(pendulum(10000), 1e-12, new StepListener() {
+            @Override public boolean stepAccepted(double x, double h, StateView y) {
+                double p = y.get(2);
+                double e = Math.abs(0.5 * p * p - Math.cos(y.get(1)) - h0);
+                if (x <= 100)
+                    res[0] = Math.max(res[0], e);
+                res[1] = Math.max(res[1], e);
+                return true;
+            }
+        });
+        return res;
+    }
+
+    /**
+     * Solution of T'' = c T' with T(0) = 1 and T(1) = 0, which has a boundary layer at 1
+     * for large c.
+     */
+    static double layerSolution(double c, double x)
+    {
+        return Math.expm1(c * (x - 1)) / Math.expm1(-c);
+    }
+
+    static double layerDerivative(double c, double x)
+    {
+        return c * Math.exp(c * (x - 1)) / Math.expm1(-c);
+    }
+
+    /**
+     * Solves {@link #expSin(double)} on [0, 10] with steps of size h, except for the first
+     * few growing ones, and returns the error at the end. The tolerance is so loose that
+     * no step is rejected and the step size is limited only by h.
+     */
+    static double fixedStepError(RungeKutta rk, double h)
+    {
+        rk.setMaxStep(h);
+        rk.solve(expSin(10), 1e30, ignoring());
+        return Math.abs(rk.getLastY().get(1) - expSinSolution(10));
+    }
+
+    /**
+     * Returns the order estimated from the errors of two runs whose steps differ twice.
+     */
+    static double observedOrder(double errH, double errHalf)
+    {
+        return Math.log(errH / errHalf) / Math.log(2);
+    }
+
+    /**
+     * Returns a listener accepting every step, for runs which do not keep the trajectory.
+     */
+    static StepListener ignoring()
+    {
+        return new StepListener() {
+            @Override public boolean stepAccepted(double x, double h, StateView y) {
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,78 @@
+package numerics;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+import static numerics.TestProblems.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class Verner98Test
+{
+
+    @Test
+    public void testOrder()
+    {
+        double err = fixedStepError(new Verner98().getMethod(), 0.5);
+        double errHalf = fixedStepError(new Verner98().getMethod(), 0.25);
+        assertTrue(errHalf < 1e-11);
+        assertTrue(observedOrder(err, errHalf) > 8.5);
+    }
+
+    /**
+     * Every step costs 16 evaluations; a rejected one reuses its first stage.
+     */
+    @Test
+    public void testEvaluations()
+    {
+        RungeKutta rk = new Verner98().getMethod();
+        rk.solve(expSin(50), 1e-9, ignoring());
+        assertTrue(rk.getRejectedSteps() > 0);
+        assertEquals(16 * rk.getAcceptedSteps() + 15 * rk.getRejectedSteps(),
+                rk.getEvaluations());
+        assertEquals(expSinSolution(50), rk.getLastY().get(1), 1e-8);
+    }
+
+    /**
+     * At a tight tolerance the pair is more accurate than DOP853 for fewer evaluations.
+     */
+    @Test
+    public void testAgainstDOP853()
+    {
+        RungeKutta verner = new Verner98().getMethod(), dop853 = new DOP853().getMethod();
+        verner.solve(expSin(50), 1e-13, ignoring());
+        dop853.solve(expSin(50), 1e-13, ignoring());
+        double exact = expSinSolution(50);
+        assertTrue(Math.abs(verner.getLastY().get(1) - exact)
+                < Math.abs(dop853.getLastY().get(1) - exact));
+        assertTrue(verner.getEvaluations() < dop853.getEvaluations());
+    }
+
+    /**
+     * The continuous extension is of order 6, so halving the step divides its error
+     * between the steps by about 2^7.
+     */
+    @Test
+    public void testDenseOutput()
+    {
+        double err = denseError(0.2), errHalf = denseError(0.1);
+        assertTrue(errHalf < 1e-10);
+        assertTrue(observedOrder(err, errHalf) > 6.5);
+    }
+
+    private double denseError(double h)
+    {
+        RungeKutta rk = new Verner98().getMethod();
+        rk.setStoreDenseOutput(true);
+        rk.setMaxStep(h);
+        rk.solve(expSin(2), 1e30);
+        double err = 0;
+        for (int k = 0; k <= 2000; ++k)
+        {
+            double x = k / 1000.0;
+            err = Math.max(err, Math.abs(rk.interpolateY(x).get(1) - expSinSolution(x)));
+        }
+        return err;
+    }
+}
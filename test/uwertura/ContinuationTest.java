@@ -0,0 +1,41 @@
+package uwertura;
+
+import arenstorf.SimData;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class ContinuationTest
+{
+
+    /**
+     * The sweep, split into two chunks, must agree with the derivatives obtained from the
+     * propagator of the linearised problem.
+     */
+    @Test
+    public void testAgainstExact()
+    {
+        Continuation continuation = new Continuation(new SimData(1e-9, 1), 1e-8);
+        continuation.setChunks(2);
+        continuation.sweep(1, 10, 10);
+        assertEquals(10, continuation.getPoints());
+        for (int i = 0; i < continuation.getPoints(); ++i)
+        {
+            double c = continuation.getC(i);
+            assertEquals(i + 1, c, 1e-12);
+            double exact = Uwertura.exactDerivative(c, 1);
+            assertEquals("c = " + c, exact, continuation.getDerivative(i),
+                    1e-6 * Math.abs(exact));
+            assertTrue(continuation.getRuns(i) <= 8);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoPoints()
+    {
+        new Continuation(new SimData(1e-9, 1), 1e-8).sweep(1, 10, 0);
+    }
+}
@@ -0,0 +1,64 @@
+package uwertura;
+
+import arenstorf.SimData;
+import numerics.UnsatisfiedConditionsException;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class ShootingTest
+{
+
+    /**
+     * The bracket [0.8 d, 0.5 d] around the exact derivative d < 0 misses the root, so it
+     * has to be widened before the rounds.
+     */
+    @Test
+    public void testAgainstExact() throws UnsatisfiedConditionsException
+    {
+        for (double c: new double[]{ 1, 5, 10 })
+        {
+            final double exact = Uwertura.exactDerivative(c, 1);
+            final double[] lowest = { 0 };
+            Shooting shooting = new Shooting(c, new SimData(1e-10, 1), 3);
+            double derivative = shooting.shoot(0.8 * exact, 0.5 * exact,
+                    1e-7 * Math.abs(exact), new Shooting.Listener() {
+                @Override public void tried(int round, double guess, Uwertura u) {
+                    lowest[0] = Math.min(lowest[0], guess);
+                }
+            });
+            assertEquals("c = " + c, exact, derivative, 1e-6 * Math.abs(exact));
+            assertTrue("c = " + c, lowest[0] < 0.8 * exact);
+        }
+    }
+
+    /**
+     * For c = 1 the maximal step of {@link Uwertura} bounds the cost of every simulation,
+     * whatever the tolerance, so only c = 5 and c = 10 are checked.
+     */
+    @Test
+    public void testCoarseTolerance() throws UnsatisfiedConditionsException
+    {
+        for (double c: new double[]{ 5, 10 })
+        {
+            double exact = Uwertura.exactDerivative(c, 1);
+            double accuracy = 1e-7 * Math.abs(exact);
+            Shooting shooting = new Shooting(c, new SimData(1e-10, 1), 3);
+            double coarse = shooting.shoot(0.8 * exact, 0.5 * exact, accuracy, null);
+            int coarseEvaluations = shooting.getEvaluations();
+            shooting.setCoarseTolerance(1e-10);
+            double fine = shooting.shoot(0.8 * exact, 0.5 * exact, accuracy, null);
+            assertTrue("c = " + c, coarseEvaluations < shooting.getEvaluations());
+            assertEquals("c = " + c, fine, coarse, 1e-6 * Math.abs(exact));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoGuesses()
+    {
+        new Shooting(1, new SimData(1e-10, 1), 0);
+    }
+}
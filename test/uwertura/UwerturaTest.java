@@ -0,0 +1,30 @@
+package uwertura;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Grzegorz Los
+ */
+public class UwerturaTest
+{
+
+    /**
+     * T'' = c T' with T(0) = t and T(1) = 0 has the solution
+     * T(x) = t expm1(c (x - 1)) / expm1(-c), so T'(0) = t c e^-c / expm1(-c).
+     */
+    @Test
+    public void testExactDerivative()
+    {
+        for (double c: new double[]{ 1, 5, 10 })
+        {
+            for (double t: new double[]{ 1, 2.5 })
+            {
+                double expected = t * c * Math.exp(-c) / Math.expm1(-c);
+                assertEquals(expected, Uwertura.exactDerivative(c, t),
+                        1e-12 * Math.abs(expected));
+            }
+        }
+    }
+}